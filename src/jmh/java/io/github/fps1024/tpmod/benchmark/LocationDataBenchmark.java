@@ -0,0 +1,62 @@
+package io.github.fps1024.tpmod.benchmark;
+
+import io.github.fps1024.tpmod.data.LocationData;
+import net.minecraft.nbt.CompoundTag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个传送点的NBT编解码基准测试（旧版每个传送点一个 CompoundTag 的格式）。
+ *
+ * @author FPS1024
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocationDataBenchmark {
+    private static final int SAMPLES = 1024;
+
+    private LocationData[] locations;
+    private CompoundTag[] tags;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        locations = LocationFixtures.locations(SAMPLES);
+        tags = new CompoundTag[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            tags[i] = locations[i].toNBT();
+        }
+    }
+
+    @Benchmark
+    public CompoundTag toNBT() {
+        cursor = (cursor + 1) & (SAMPLES - 1);
+        return locations[cursor].toNBT();
+    }
+
+    @Benchmark
+    public LocationData fromNBT() {
+        cursor = (cursor + 1) & (SAMPLES - 1);
+        return LocationData.fromNBT(tags[cursor]);
+    }
+
+    @Benchmark
+    public LocationData roundTrip() {
+        cursor = (cursor + 1) & (SAMPLES - 1);
+        return LocationData.fromNBT(locations[cursor].toNBT());
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.fps1024.tpmod.benchmark;
+
+import io.github.fps1024.tpmod.data.GlobalLocations;
+import io.github.fps1024.tpmod.data.LocationData;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+
+import java.util.SplittableRandom;
+
+/**
+ * 基准测试用的合成传送点数据。
+ * 名称形如 {@code <前缀>_<序号>}，前缀从一小组单词中选取，使前缀补全和过滤有真实的命中分布；
+ * 坐标在三个原版维度中均匀分布。固定随机种子，保证每次运行数据一致。
+ *
+ * @author FPS1024
+ */
+final class LocationFixtures {
+    /**
+     * 名称前缀，模拟地图服务器中按区域或用途命名的传送点。
+     */
+    static final String[] PREFIXES = {
+            "spawn", "shop", "farm", "base", "mine", "portal", "arena", "village",
+            "castle", "harbor", "tower", "temple", "market", "bridge", "camp", "gate"
+    };
+
+    @SuppressWarnings("unchecked")
+    private static final ResourceKey<Level>[] DIMENSIONS = new ResourceKey[]{
+            Level.OVERWORLD, Level.NETHER, Level.END
+    };
+
+    private static final long SEED = 0x7470_6D6F_64L;
+
+    private static final int WORLD_RADIUS = 30_000;
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private LocationFixtures() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * 生成指定数量的传送点名称。
+     *
+     * @param count 数量
+     * @return 名称数组，顺序打乱
+     */
+    static String[] names(int count) {
+        String[] names = new String[count];
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < count; i++) {
+            names[i] = PREFIXES[random.nextInt(PREFIXES.length)] + "_" + i;
+        }
+        // Fisher-Yates 洗牌，避免插入顺序恰好接近有序
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String swap = names[i];
+            names[i] = names[j];
+            names[j] = swap;
+        }
+        return names;
+    }
+
+    /**
+     * 生成与名称一一对应的位置数据。
+     *
+     * @param count 数量
+     * @return 位置数据数组
+     */
+    static LocationData[] locations(int count) {
+        LocationData[] locations = new LocationData[count];
+        SplittableRandom random = new SplittableRandom(SEED ^ count);
+        for (int i = 0; i < count; i++) {
+            locations[i] = new LocationData(
+                    DIMENSIONS[random.nextInt(DIMENSIONS.length)],
+                    BlockPos.asLong(
+                            random.nextInt(-WORLD_RADIUS, WORLD_RADIUS),
+                            random.nextInt(-64, 320),
+                            random.nextInt(-WORLD_RADIUS, WORLD_RADIUS)
+                    )
+            );
+        }
+        return locations;
+    }
+
+    /**
+     * 生成已填充的默认存储后端（不打开修改日志）。
+     *
+     * @param names     名称
+     * @param locations 位置数据
+     * @return 全局传送点数据
+     */
+    static GlobalLocations populate(String[] names, LocationData[] locations) {
+        GlobalLocations store = new GlobalLocations();
+        for (int i = 0; i < names.length; i++) {
+            store.addLocation(names[i], locations[i]);
+        }
+        return store;
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.fps1024.tpmod.benchmark;
+
+import io.github.fps1024.tpmod.data.GlobalLocations;
+import io.github.fps1024.tpmod.data.LocationData;
+import io.github.fps1024.tpmod.util.Constants;
+import net.minecraft.nbt.CompoundTag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 默认存储后端的基准测试：整体存档读写、按名称查找、分页列表和前缀补全。
+ * 每个测试分别在 1k、100k、1M 个传送点上运行。
+ *
+ * @author FPS1024
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4G")
+public class LocationStoreBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private String[] names;
+    private GlobalLocations store;
+    private CompoundTag savedTag;
+
+    /**
+     * 查询游标，每次调用换一个名称或前缀，避免总是命中同一条缓存行。
+     */
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        names = LocationFixtures.names(size);
+        LocationData[] locations = LocationFixtures.locations(size);
+        store = LocationFixtures.populate(names, locations);
+        savedTag = store.save(new CompoundTag(), null);
+    }
+
+    private int next(int bound) {
+        cursor = cursor + 1 == Integer.MAX_VALUE ? 0 : cursor + 1;
+        return cursor % bound;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MINUTES)
+    public CompoundTag save() {
+        return store.save(new CompoundTag(), null);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MINUTES)
+    public GlobalLocations load() {
+        return GlobalLocations.load(savedTag, null);
+    }
+
+    @Benchmark
+    public LocationData lookup() {
+        return store.getLocation(names[next(names.length)]);
+    }
+
+    @Benchmark
+    public LocationData lookupMissing() {
+        return store.getLocation("missing_" + next(names.length));
+    }
+
+    @Benchmark
+    public void listFirstPage(Blackhole blackhole) {
+        blackhole.consume(store.countLocationNames(""));
+        blackhole.consume(store.listLocationNames("", 0, Constants.LIST_PAGE_SIZE));
+    }
+
+    @Benchmark
+    public void listFilteredPage(Blackhole blackhole) {
+        String prefix = LocationFixtures.PREFIXES[next(LocationFixtures.PREFIXES.length)];
+        int total = store.countLocationNames(prefix);
+        int lastPage = Math.max(0, (total - 1) / Constants.LIST_PAGE_SIZE);
+        blackhole.consume(total);
+        blackhole.consume(store.listLocationNames(prefix, lastPage / 2 * Constants.LIST_PAGE_SIZE, Constants.LIST_PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<String> completeShortPrefix() {
+        return store.completeLocationNames(LocationFixtures.PREFIXES[next(LocationFixtures.PREFIXES.length)].substring(0, 2),
+                Constants.MAX_SUGGESTIONS);
+    }
+
+    @Benchmark
+    public List<String> completeLongPrefix() {
+        String name = names[next(names.length)];
+        return store.completeLocationNames(name.substring(0, name.length() - 1), Constants.MAX_SUGGESTIONS);
+    }
+}
@@ -1,11 +1,41 @@
 package io.github.fps1024.tpmod;
 
+import io.github.fps1024.tpmod.command.LocationSuggestions;
 import io.github.fps1024.tpmod.command.TPMCommand;
+import io.github.fps1024.tpmod.data.LocationRepositories;
+import io.github.fps1024.tpmod.data.LocationTags;
+import io.github.fps1024.tpmod.data.LocationUsage;
+import io.github.fps1024.tpmod.data.PlayerLocationStores;
+import io.github.fps1024.tpmod.data.PositionHistories;
+import io.github.fps1024.tpmod.data.RemovedLocations;
+import io.github.fps1024.tpmod.metrics.TPModMetrics;
+import io.github.fps1024.tpmod.network.TPModNetwork;
+import io.github.fps1024.tpmod.service.ChunkPreloader;
+import io.github.fps1024.tpmod.service.HotDestinationKeeper;
+import io.github.fps1024.tpmod.service.LocationSync;
+import io.github.fps1024.tpmod.service.LocationListRenderer;
+import io.github.fps1024.tpmod.service.SafeLandingResolver;
+import io.github.fps1024.tpmod.service.TeleportScheduler;
+import io.github.fps1024.tpmod.service.TeleportationService;
+import io.github.fps1024.tpmod.util.TPModConfig;
 import com.mojang.logging.LogUtils;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.Level;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.player.PermissionsChangedEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.level.BlockEvent;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.event.server.ServerStartingEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.event.server.ServerStoppingEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.config.ModConfig;
+import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
 import org.slf4j.Logger;
 
 /**
@@ -28,9 +58,14 @@ public final class TPMod {
 
     /**
      * 构造函数。
-     * 将当前类注册到 MinecraftForge 的事件总线，以监听游戏事件。
+     * 注册服务端配置、网络通道和补全提供者，并将当前类注册到 MinecraftForge 的事件总线，以监听游戏事件。
+     *
+     * @param context 模组加载上下文
      */
-    public TPMod() {
+    public TPMod(FMLJavaModLoadingContext context) {
+        context.registerConfig(ModConfig.Type.SERVER, TPModConfig.SPEC);
+        TPModNetwork.register();
+        LocationSuggestions.register();
         MinecraftForge.EVENT_BUS.register(this);
     }
 
@@ -45,5 +80,128 @@ public final class TPMod {
         TPMCommand.register(event.getDispatcher());
         LOGGER.info("TPM commands registered.");
     }
-}
 
+    /**
+     * 服务器启动时按配置的存储后端创建全局传送点仓库、加载传送点标签和使用统计，并开始统计运行指标。
+     * 仓库的外部修改（共享存储中其他实例的修改）交给 {@link TeleportationService#EXTERNAL_CHANGES} 处理。
+     *
+     * @param event 服务器启动事件
+     */
+    @SubscribeEvent
+    public void onServerStarting(ServerStartingEvent event) {
+        TPModMetrics.start();
+        LocationRepositories.open(event.getServer(), TPModConfig.STORAGE_BACKEND.get());
+        LocationTags.open(event.getServer());
+        LocationUsage.open(event.getServer());
+        PlayerLocationStores.open(event.getServer());
+        LocationRepositories.get().setChangeListener(TeleportationService.EXTERNAL_CHANGES);
+    }
+
+    /**
+     * 玩家登录时加载其私人传送点，并开始向其客户端同步全局传送点名称。
+     *
+     * @param event 玩家登录事件
+     */
+    @SubscribeEvent
+    public void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        PlayerLocationStores.get(event.getEntity().getUUID());
+        if (event.getEntity() instanceof ServerPlayer player) {
+            LocationSync.subscribe(player);
+        }
+    }
+
+    /**
+     * 玩家退出时写回其私人传送点并移出缓存，丢弃其位置历史，停止名称同步。
+     *
+     * @param event 玩家退出事件
+     */
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        PlayerLocationStores.unload(event.getEntity().getUUID());
+        PositionHistories.unload(event.getEntity().getUUID());
+        if (event.getEntity() instanceof ServerPlayer player) {
+            LocationSync.unsubscribe(player);
+        }
+    }
+
+    /**
+     * 玩家权限等级变化时开始或停止名称同步。
+     *
+     * @param event 权限变化事件
+     */
+    @SubscribeEvent
+    public void onPermissionsChanged(PermissionsChangedEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            LocationSync.onPermissionsChanged(player, event.getNewLevel());
+        }
+    }
+
+    /**
+     * 主世界保存时写回全局传送点仓库和已修改的私人传送点。
+     *
+     * @param event 世界保存事件
+     */
+    @SubscribeEvent
+    public void onLevelSave(LevelEvent.Save event) {
+        if (event.getLevel() instanceof ServerLevel level && level.dimension() == Level.OVERWORLD) {
+            LocationRepositories.flush();
+            PlayerLocationStores.saveAll();
+        }
+    }
+
+    /**
+     * 方块变化时使所在区块段的安全落点缓存失效。
+     *
+     * @param event 方块邻居更新事件，方块状态改变时触发
+     */
+    @SubscribeEvent
+    public void onBlockChanged(BlockEvent.NeighborNotifyEvent event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            SafeLandingResolver.onBlockChanged(level, event.getPos());
+        }
+    }
+
+    /**
+     * 服务端 tick 结束时推进异步任务，例如检查目标区块是否加载完成。
+     *
+     * @param event 服务端 tick 事件
+     */
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent.Post event) {
+        ChunkPreloader.tick();
+        TeleportScheduler.tick();
+        HotDestinationKeeper.tick();
+        LocationSync.tick();
+    }
+
+    /**
+     * 服务器关闭时取消未执行的传送，释放模组持有的区块票据和缓存。
+     *
+     * @param event 服务器关闭事件
+     */
+    @SubscribeEvent
+    public void onServerStopping(ServerStoppingEvent event) {
+        TeleportScheduler.clear();
+        ChunkPreloader.clear();
+        HotDestinationKeeper.clear();
+        LocationSync.clear();
+        PositionHistories.clear();
+        LocationListRenderer.clear();
+        SafeLandingResolver.clear();
+        RemovedLocations.clear();
+    }
+
+    /**
+     * 服务器完全停止（最后一次保存之后）时关闭全局传送点仓库、写回私人传送点并注销运行指标。
+     *
+     * @param event 服务器停止事件
+     */
+    @SubscribeEvent
+    public void onServerStopped(ServerStoppedEvent event) {
+        LocationRepositories.close();
+        LocationTags.close();
+        LocationUsage.close();
+        PlayerLocationStores.close();
+        TPModMetrics.stop();
+    }
+}
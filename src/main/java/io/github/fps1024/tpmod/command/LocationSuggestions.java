@@ -0,0 +1,81 @@
+package io.github.fps1024.tpmod.command;
+
+import io.github.fps1024.tpmod.TPMod;
+import io.github.fps1024.tpmod.metrics.TPModMetrics;
+import io.github.fps1024.tpmod.network.ClientLocationCache;
+import io.github.fps1024.tpmod.service.TeleportationService;
+import io.github.fps1024.tpmod.util.Constants;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.suggestion.SuggestionProvider;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.SharedSuggestionProvider;
+import net.minecraft.commands.synchronization.SuggestionProviders;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 全局传送点名称的补全提供者。
+ * 提供者以固定ID注册到 {@link SuggestionProviders}，命令树同步到客户端时只发送该ID：
+ * 安装了模组的客户端在本地用 {@link ClientLocationCache} 补全，不再为每次按键请求服务端；
+ * 未安装模组的客户端不认识该ID，自动退回到向服务端请求，由服务端的前缀索引补全。
+ *
+ * @author FPS1024
+ */
+public final class LocationSuggestions {
+    /**
+     * 全局传送点名称的补全提供者。
+     */
+    public static final SuggestionProvider<CommandSourceStack> GLOBAL_LOCATIONS = SuggestionProviders.register(
+            ResourceLocation.fromNamespaceAndPath(TPMod.MODID, "global_locations"),
+            LocationSuggestions::suggestGlobalLocations
+    );
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private LocationSuggestions() {
+        throw new UnsupportedOperationException("Command class cannot be instantiated");
+    }
+
+    /**
+     * 在模组构造时调用（客户端和服务端都需要），确保提供者在收到命令树之前完成注册。
+     */
+    public static void register() {
+        // 提供者在类初始化时注册
+    }
+
+    /**
+     * 补全全局传送点名称。
+     * 服务端通过前缀索引查找，只处理匹配的名称，调用次数和耗时计入运行指标；
+     * 客户端查询本地缓存，缓存尚未同步时把请求转交服务端。
+     *
+     * @param ctx     命令上下文
+     * @param builder 建议构建器
+     * @return 补全建议
+     */
+    private static CompletableFuture<Suggestions> suggestGlobalLocations(
+            CommandContext<SharedSuggestionProvider> ctx,
+            SuggestionsBuilder builder
+    ) {
+        if (!(ctx.getSource() instanceof CommandSourceStack)) {
+            if (!ClientLocationCache.isSynced()) {
+                return ctx.getSource().customSuggestion(ctx);
+            }
+            for (String name : ClientLocationCache.complete(builder.getRemaining(), Constants.MAX_SUGGESTIONS)) {
+                builder.suggest(name);
+            }
+            return builder.buildFuture();
+        }
+
+        long start = System.nanoTime();
+        for (String name : TeleportationService.completeLocationNames(builder.getRemaining())) {
+            builder.suggest(name);
+        }
+        CompletableFuture<Suggestions> suggestions = builder.buildFuture();
+        TPModMetrics.get().recordSuggestion(start);
+        return suggestions;
+    }
+}
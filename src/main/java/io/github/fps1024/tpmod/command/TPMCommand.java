@@ -1,20 +1,35 @@
 package io.github.fps1024.tpmod.command;
 
-import io.github.fps1024.tpmod.data.GlobalLocations;
 import io.github.fps1024.tpmod.data.LocationData;
+import io.github.fps1024.tpmod.data.SpatialIndex;
+import io.github.fps1024.tpmod.metrics.LatencyHistogram;
+import io.github.fps1024.tpmod.metrics.TPModMetrics;
+import io.github.fps1024.tpmod.service.HotDestinationKeeper;
+import io.github.fps1024.tpmod.service.LocationTransfer;
+import io.github.fps1024.tpmod.service.TeleportScheduler;
 import io.github.fps1024.tpmod.service.TeleportationService;
 import io.github.fps1024.tpmod.util.Constants;
+import io.github.fps1024.tpmod.util.TPModConfig;
+import com.mojang.brigadier.Command;
 import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.exceptions.SimpleCommandExceptionType;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.Commands;
-import net.minecraft.commands.SharedSuggestionProvider;
 import net.minecraft.commands.arguments.EntityArgument;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerPlayer;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * TPM命令注册和处理类。
@@ -24,6 +39,20 @@ import java.util.Set;
  * @author FPS1024
  */
 public final class TPMCommand {
+    /**
+     * 传送点名称超长时的错误。
+     */
+    private static final SimpleCommandExceptionType NAME_TOO_LONG = new SimpleCommandExceptionType(
+            Component.literal("Location names can be at most " + Constants.MAX_NAME_LENGTH + " characters long.")
+    );
+
+    /**
+     * 标签超长时的错误。
+     */
+    private static final SimpleCommandExceptionType TAG_TOO_LONG = new SimpleCommandExceptionType(
+            Component.literal("Tags can be at most " + Constants.MAX_NAME_LENGTH + " characters long.")
+    );
+
     /**
      * 私有构造函数，防止实例化。
      */
@@ -36,9 +65,22 @@ public final class TPMCommand {
      * 子命令包括：
      * <ul>
      *   <li>/tpm set &lt;name&gt; - 将当前位置保存为全局传送点</li>
-     *   <li>/tpm &lt;player&gt; &lt;name&gt; - 将指定玩家传送到指定全局传送点</li>
+     *   <li>/tpm &lt;targets&gt; &lt;name&gt; - 将指定玩家（支持选择器）传送到指定全局传送点</li>
      *   <li>/tpm rm &lt;name&gt; - 删除指定名称的全局传送点</li>
-     *   <li>/tpm ls - 列出所有全局传送点</li>
+     *   <li>/tpm ls [page] [filter] - 按名称顺序分页列出全局传送点，可按名称前缀和 tag:&lt;tag&gt; 过滤</li>
+     *   <li>/tpm tag|untag &lt;name&gt; &lt;tag&gt; - 给全局传送点添加或移除标签</li>
+     *   <li>/tpm tags &lt;name&gt; - 显示全局传送点的标签</li>
+     *   <li>/tpm near [radius] - 列出当前位置附近的全局传送点</li>
+     *   <li>/tpm nearest - 显示距离当前位置最近的全局传送点</li>
+     *   <li>/tpm my set|rm &lt;name&gt; - 保存或删除自己的私人传送点</li>
+     *   <li>/tpm my ls [page] - 分页列出自己的私人传送点</li>
+     *   <li>/tpm my &lt;name&gt; - 传送到自己的私人传送点</li>
+     *   <li>/tpm back [n] - 回到倒数第n次（默认最近一次）传送之前的位置</li>
+     *   <li>/tpm undo [n] - 撤销最近n次（默认一次）全局传送点修改</li>
+     *   <li>/tpm history - 列出可撤销到的全局传送点历史版本</li>
+     *   <li>/tpm export &lt;file&gt; - 在后台将全局传送点导出为 JSON 或 CSV 文件</li>
+     *   <li>/tpm import &lt;file&gt; [merge|replace] - 在后台读取 JSON 或 CSV 文件，合并或替换全局传送点</li>
+     *   <li>/tpm stats - 显示模组的运行指标</li>
      * </ul>
      *
      * @param dispatcher 命令分发器
@@ -48,33 +90,174 @@ public final class TPMCommand {
                 .requires(source -> source.hasPermission(Constants.REQUIRED_PERMISSION_LEVEL))
                 .then(Commands.literal("set")
                         .then(Commands.argument("name", StringArgumentType.word())
-                                .executes(ctx -> executeSetLocation(
+                                .executes(timed("set", ctx -> executeSetLocation(
                                         ctx.getSource(),
                                         StringArgumentType.getString(ctx, "name")
-                                ))))
-                .then(Commands.argument("player", EntityArgument.player())
+                                )))))
+                .then(Commands.argument("targets", EntityArgument.players())
                         .then(Commands.argument("name", StringArgumentType.word())
-                                .suggests((ctx, builder) -> SharedSuggestionProvider.suggest(
-                                        getLocationNames(ctx.getSource()),
-                                        builder
-                                ))
-                                .executes(ctx -> executeTeleportPlayer(
+                                .suggests(LocationSuggestions.GLOBAL_LOCATIONS)
+                                .executes(timed("teleport", ctx -> executeTeleportPlayers(
                                         ctx.getSource(),
-                                        EntityArgument.getPlayer(ctx, "player"),
+                                        EntityArgument.getPlayers(ctx, "targets"),
                                         StringArgumentType.getString(ctx, "name")
-                                ))))
+                                )))))
                 .then(Commands.literal("rm")
                         .then(Commands.argument("name", StringArgumentType.word())
-                                .suggests((ctx, builder) -> SharedSuggestionProvider.suggest(
-                                        getLocationNames(ctx.getSource()),
-                                        builder
-                                ))
-                                .executes(ctx -> executeRemoveLocation(
+                                .suggests(LocationSuggestions.GLOBAL_LOCATIONS)
+                                .executes(timed("rm", ctx -> executeRemoveLocation(
                                         ctx.getSource(),
                                         StringArgumentType.getString(ctx, "name")
-                                ))))
+                                )))))
                 .then(Commands.literal("ls")
-                        .executes(ctx -> executeListLocations(ctx.getSource()))));
+                        .executes(timed("ls", ctx -> executeListLocations(ctx.getSource(), 1, "")))
+                        .then(Commands.argument("page", IntegerArgumentType.integer(1))
+                                .executes(timed("ls", ctx -> executeListLocations(
+                                        ctx.getSource(),
+                                        IntegerArgumentType.getInteger(ctx, "page"),
+                                        ""
+                                )))
+                                .then(Commands.argument("filter", StringArgumentType.greedyString())
+                                        .suggests(TPMCommand::suggestListFilter)
+                                        .executes(timed("ls", ctx -> executeListLocations(
+                                                ctx.getSource(),
+                                                IntegerArgumentType.getInteger(ctx, "page"),
+                                                StringArgumentType.getString(ctx, "filter")
+                                        )))))
+                        // 页码参数在前注册，纯数字优先解析为页码
+                        .then(Commands.argument("filter", StringArgumentType.greedyString())
+                                .suggests(TPMCommand::suggestListFilter)
+                                .executes(timed("ls", ctx -> executeListLocations(
+                                        ctx.getSource(),
+                                        1,
+                                        StringArgumentType.getString(ctx, "filter")
+                                )))))
+                .then(Commands.literal("tag")
+                        .then(Commands.argument("name", StringArgumentType.word())
+                                .suggests(LocationSuggestions.GLOBAL_LOCATIONS)
+                                .then(Commands.argument("tag", StringArgumentType.word())
+                                        .suggests(TPMCommand::suggestTags)
+                                        .executes(timed("tag", ctx -> executeTagLocation(
+                                                ctx.getSource(),
+                                                StringArgumentType.getString(ctx, "name"),
+                                                StringArgumentType.getString(ctx, "tag")
+                                        ))))))
+                .then(Commands.literal("untag")
+                        .then(Commands.argument("name", StringArgumentType.word())
+                                .suggests(LocationSuggestions.GLOBAL_LOCATIONS)
+                                .then(Commands.argument("tag", StringArgumentType.word())
+                                        .suggests(TPMCommand::suggestLocationTags)
+                                        .executes(timed("untag", ctx -> executeUntagLocation(
+                                                ctx.getSource(),
+                                                StringArgumentType.getString(ctx, "name"),
+                                                StringArgumentType.getString(ctx, "tag")
+                                        ))))))
+                .then(Commands.literal("tags")
+                        .then(Commands.argument("name", StringArgumentType.word())
+                                .suggests(LocationSuggestions.GLOBAL_LOCATIONS)
+                                .executes(timed("tags", ctx -> executeShowTags(
+                                        ctx.getSource(),
+                                        StringArgumentType.getString(ctx, "name")
+                                )))))
+                .then(Commands.literal("near")
+                        .executes(timed("near", ctx -> executeNear(ctx.getSource(), Constants.NEAR_DEFAULT_RADIUS)))
+                        .then(Commands.argument("radius", IntegerArgumentType.integer(1))
+                                .executes(timed("near", ctx -> executeNear(
+                                        ctx.getSource(),
+                                        IntegerArgumentType.getInteger(ctx, "radius")
+                                )))))
+                .then(Commands.literal("nearest")
+                        .executes(timed("nearest", ctx -> executeNearest(ctx.getSource()))))
+                .then(Commands.literal("my")
+                        .then(Commands.literal("set")
+                                .then(Commands.argument("name", StringArgumentType.word())
+                                        .executes(timed("my set", ctx -> executeSetPrivateLocation(
+                                                ctx.getSource(),
+                                                StringArgumentType.getString(ctx, "name")
+                                        )))))
+                        .then(Commands.literal("rm")
+                                .then(Commands.argument("name", StringArgumentType.word())
+                                        .suggests(TPMCommand::suggestPrivateLocationNames)
+                                        .executes(timed("my rm", ctx -> executeRemovePrivateLocation(
+                                                ctx.getSource(),
+                                                StringArgumentType.getString(ctx, "name")
+                                        )))))
+                        .then(Commands.literal("ls")
+                                .executes(timed("my ls", ctx -> executeListPrivateLocations(ctx.getSource(), 1)))
+                                .then(Commands.argument("page", IntegerArgumentType.integer(1))
+                                        .executes(timed("my ls", ctx -> executeListPrivateLocations(
+                                                ctx.getSource(),
+                                                IntegerArgumentType.getInteger(ctx, "page")
+                                        )))))
+                        .then(Commands.argument("name", StringArgumentType.word())
+                                .suggests(TPMCommand::suggestPrivateLocationNames)
+                                .executes(timed("my", ctx -> executeTeleportPrivate(
+                                        ctx.getSource(),
+                                        StringArgumentType.getString(ctx, "name")
+                                )))))
+                .then(Commands.literal("back")
+                        .executes(timed("back", ctx -> executeTeleportBack(ctx.getSource(), 1)))
+                        .then(Commands.argument("n", IntegerArgumentType.integer(1, Constants.BACK_HISTORY_SIZE))
+                                .executes(timed("back", ctx -> executeTeleportBack(
+                                        ctx.getSource(),
+                                        IntegerArgumentType.getInteger(ctx, "n")
+                                )))))
+                .then(Commands.literal("undo")
+                        .executes(timed("undo", ctx -> executeUndo(ctx.getSource(), 1)))
+                        .then(Commands.argument("n", IntegerArgumentType.integer(1, Constants.UNDO_HISTORY_SIZE))
+                                .executes(timed("undo", ctx -> executeUndo(
+                                        ctx.getSource(),
+                                        IntegerArgumentType.getInteger(ctx, "n")
+                                )))))
+                .then(Commands.literal("history")
+                        .executes(timed("history", ctx -> executeHistory(ctx.getSource()))))
+                .then(Commands.literal("export")
+                        .then(Commands.argument("file", StringArgumentType.word())
+                                .executes(timed("export", ctx -> executeExport(
+                                        ctx.getSource(),
+                                        StringArgumentType.getString(ctx, "file")
+                                )))))
+                .then(Commands.literal("import")
+                        .then(Commands.argument("file", StringArgumentType.word())
+                                .executes(timed("import", ctx -> executeImport(
+                                        ctx.getSource(),
+                                        StringArgumentType.getString(ctx, "file"),
+                                        false
+                                )))
+                                .then(Commands.literal("merge")
+                                        .executes(timed("import", ctx -> executeImport(
+                                                ctx.getSource(),
+                                                StringArgumentType.getString(ctx, "file"),
+                                                false
+                                        ))))
+                                .then(Commands.literal("replace")
+                                        .executes(timed("import", ctx -> executeImport(
+                                                ctx.getSource(),
+                                                StringArgumentType.getString(ctx, "file"),
+                                                true
+                                        ))))))
+                .then(Commands.literal("stats")
+                        .executes(ctx -> executeStats(ctx.getSource()))));
+    }
+
+    /**
+     * 包装子命令，记录其在服务端主线程上的同步执行耗时。
+     * 异步传送只统计提交部分，玩家实际到达的耗时不计入。
+     *
+     * @param subcommand 子命令名称
+     * @param command    子命令实现
+     * @return 带耗时统计的命令
+     */
+    private static Command<CommandSourceStack> timed(String subcommand, Command<CommandSourceStack> command) {
+        LatencyHistogram histogram = TPModMetrics.get().command(subcommand);
+        return ctx -> {
+            long start = System.nanoTime();
+            try {
+                return command.run(ctx);
+            } finally {
+                histogram.recordSince(start);
+            }
+        };
     }
 
     /**
@@ -83,10 +266,13 @@ public final class TPMCommand {
      * @param source 命令源
      * @param name   传送点名称
      * @return 命令执行结果代码
-     * @throws CommandSyntaxException 如果命令语法错误
+     * @throws CommandSyntaxException 如果命令语法错误或名称过长
      */
     private static int executeSetLocation(CommandSourceStack source, String name)
             throws CommandSyntaxException {
+        if (name.length() > Constants.MAX_NAME_LENGTH) {
+            throw NAME_TOO_LONG.create();
+        }
         ServerPlayer player = source.getPlayerOrException();
         Component message = TeleportationService.setLocation(player, name);
         source.sendSuccess(() -> message, true);
@@ -95,6 +281,59 @@ public final class TPMCommand {
 
     /**
      * 执行传送玩家命令。
+     * 单个玩家直接传送；多个玩家按批次交给调度器，并定期向管理员报告进度。
+     *
+     * @param source       命令源
+     * @param targets      目标玩家集合
+     * @param locationName 传送点名称
+     * @return 命令执行结果代码
+     */
+    private static int executeTeleportPlayers(
+            CommandSourceStack source,
+            Collection<ServerPlayer> targets,
+            String locationName
+    ) {
+        if (targets.size() == 1) {
+            return executeTeleportPlayer(source, targets.iterator().next(), locationName);
+        }
+
+        int total = targets.size();
+        int[] completed = new int[1];
+
+        source.sendSuccess(() -> Component.literal(String.format(
+                "Teleporting %d players to '%s'...",
+                total,
+                locationName
+        )), true);
+
+        TeleportationService.teleportPlayers(targets, locationName, (player, result) -> {
+            completed[0]++;
+            if (result.getPlayerMessage() != null) {
+                player.sendSystemMessage(result.getPlayerMessage());
+            }
+            int done = completed[0];
+            if (done % Constants.BATCH_PROGRESS_INTERVAL == 0 && done < total) {
+                source.sendSuccess(() -> Component.literal(String.format(
+                        "Teleporting to '%s': %d/%d done.",
+                        locationName,
+                        done,
+                        total
+                )), false);
+            }
+        }).thenAccept(summary -> {
+            if (summary.isSuccess()) {
+                source.sendSuccess(summary::getAdminMessage, true);
+            } else {
+                source.sendFailure(summary.getAdminMessage());
+            }
+        });
+
+        return total;
+    }
+
+    /**
+     * 执行单个玩家的传送。
+     * 传送是异步的，结果消息在玩家实际到达后才发送；请求被立即拒绝时返回0。
      *
      * @param source       命令源
      * @param targetPlayer 目标玩家
@@ -106,19 +345,21 @@ public final class TPMCommand {
             ServerPlayer targetPlayer,
             String locationName
     ) {
-        TeleportationService.TeleportationResult result =
+        CompletableFuture<TeleportationService.TeleportationResult> future =
                 TeleportationService.teleportPlayer(targetPlayer, locationName);
-
-        if (result.isSuccess()) {
-            source.sendSuccess(() -> result.getAdminMessage(), true);
-            if (result.getPlayerMessage() != null) {
-                targetPlayer.sendSystemMessage(result.getPlayerMessage());
+        future.thenAccept(result -> {
+            if (result.isSuccess()) {
+                source.sendSuccess(() -> result.getAdminMessage(), true);
+                if (result.getPlayerMessage() != null) {
+                    targetPlayer.sendSystemMessage(result.getPlayerMessage());
+                }
+            } else {
+                source.sendFailure(result.getAdminMessage());
             }
-        } else {
-            source.sendFailure(result.getAdminMessage());
-        }
+        });
 
-        return 1;
+        // 立即失败（传送点不存在、队列已满等）时返回0，命令方块可据此感知背压
+        return future.isDone() && !future.join().isSuccess() ? 0 : 1;
     }
 
     /**
@@ -132,7 +373,7 @@ public final class TPMCommand {
     private static int executeRemoveLocation(CommandSourceStack source, String name)
             throws CommandSyntaxException {
         source.getPlayerOrException(); // 验证玩家存在
-        Component message = TeleportationService.removeLocation(source.getLevel(), name);
+        Component message = TeleportationService.removeLocation(name);
 
         if (message.getString().contains("removed")) {
             source.sendSuccess(() -> message, true);
@@ -145,13 +386,16 @@ public final class TPMCommand {
 
     /**
      * 执行列出传送点命令。
+     * 每页作为一条多行消息发送。
      *
      * @param source 命令源
+     * @param page   页码（从1开始）
+     * @param filter 名称前缀过滤条件，空字符串表示不过滤
      * @return 命令执行结果代码
      */
-    private static int executeListLocations(CommandSourceStack source) {
+    private static int executeListLocations(CommandSourceStack source, int page, String filter) {
         TeleportationService.LocationListResult result =
-                TeleportationService.listLocations(source.getLevel());
+                TeleportationService.listLocations(page, filter);
 
         if (result.isEmpty()) {
             source.sendSuccess(
@@ -161,37 +405,474 @@ public final class TPMCommand {
             return 1;
         }
 
+        if (!result.isPageFound()) {
+            source.sendFailure(result.getMessage());
+            return 0;
+        }
+
+        source.sendSuccess(result::getMessage, false);
+        return 1;
+    }
+
+    /**
+     * 执行添加标签命令。
+     *
+     * @param source 命令源
+     * @param name   传送点名称
+     * @param tag    标签
+     * @return 命令执行结果代码
+     * @throws CommandSyntaxException 如果标签过长
+     */
+    private static int executeTagLocation(CommandSourceStack source, String name, String tag)
+            throws CommandSyntaxException {
+        if (tag.length() > Constants.MAX_NAME_LENGTH) {
+            throw TAG_TOO_LONG.create();
+        }
+        Component message = TeleportationService.tagLocation(name, tag);
+        source.sendSuccess(() -> message, true);
+        return 1;
+    }
+
+    /**
+     * 执行移除标签命令。
+     *
+     * @param source 命令源
+     * @param name   传送点名称
+     * @param tag    标签
+     * @return 命令执行结果代码
+     */
+    private static int executeUntagLocation(CommandSourceStack source, String name, String tag) {
+        if (!TeleportationService.untagLocation(name, tag)) {
+            source.sendFailure(Component.literal(String.format(
+                    "Global location '%s' is not tagged with '%s'.",
+                    name,
+                    tag
+            )));
+            return 0;
+        }
+        source.sendSuccess(() -> Component.literal(String.format(
+                "Removed tag '%s' from global location '%s'.",
+                tag,
+                name
+        )), true);
+        return 1;
+    }
+
+    /**
+     * 执行标签查询命令。
+     *
+     * @param source 命令源
+     * @param name   传送点名称
+     * @return 标签数量
+     */
+    private static int executeShowTags(CommandSourceStack source, String name) {
+        Set<String> tags = TeleportationService.getTags(name);
+        if (tags.isEmpty()) {
+            source.sendSuccess(() -> Component.literal(String.format("Global location '%s' has no tags.", name)), false);
+            return 0;
+        }
+        source.sendSuccess(() -> Component.literal(String.format(
+                "Tags of '%s': %s",
+                name,
+                String.join(", ", tags)
+        )), false);
+        return tags.size();
+    }
+
+    /**
+     * 执行附近传送点查询命令。
+     *
+     * @param source 命令源
+     * @param radius 搜索半径
+     * @return 找到的传送点数量
+     */
+    private static int executeNear(CommandSourceStack source, int radius) {
+        List<SpatialIndex.Match> matches =
+                TeleportationService.findNearby(source.getLevel(), source.getPosition(), radius);
+
+        if (matches.isEmpty()) {
+            source.sendSuccess(
+                    () -> Component.literal(String.format("No global locations within %d blocks.", radius)),
+                    false
+            );
+            return 0;
+        }
+
         source.sendSuccess(
-                () -> Component.literal("Saved global locations:"),
+                () -> Component.literal(String.format(
+                        "%d global locations within %d blocks:",
+                        matches.size(),
+                        radius
+                )),
                 false
         );
 
-        GlobalLocations locations = result.getLocations();
-        Set<String> locationNames = result.getLocationNames();
+        matches.stream().limit(Constants.NEAR_MAX_RESULTS).forEach(match -> {
+            Component matchInfo = formatMatch(match);
+            source.sendSuccess(() -> matchInfo, false);
+        });
 
-        locationNames.forEach(name -> {
-            LocationData loc = locations.getLocation(name);
-            Component locationInfo = Component.literal(String.format(
-                    "%s %d %d %d",
-                    name,
-                    loc.getX(),
-                    loc.getY(),
-                    loc.getZ()
-            ));
-            source.sendSuccess(() -> locationInfo, false);
+        return matches.size();
+    }
+
+    /**
+     * 执行最近传送点查询命令。
+     *
+     * @param source 命令源
+     * @return 命令执行结果代码
+     */
+    private static int executeNearest(CommandSourceStack source) {
+        SpatialIndex.Match match = TeleportationService.findNearest(source.getLevel(), source.getPosition());
+
+        if (match == null) {
+            source.sendFailure(Component.literal("There are no global locations in this dimension."));
+            return 0;
+        }
+
+        Component matchInfo = formatMatch(match);
+        source.sendSuccess(() -> matchInfo, false);
+        return 1;
+    }
+
+    /**
+     * 执行设置私人传送点命令。
+     *
+     * @param source 命令源
+     * @param name   传送点名称
+     * @return 命令执行结果代码
+     * @throws CommandSyntaxException 如果命令源不是玩家或名称过长
+     */
+    private static int executeSetPrivateLocation(CommandSourceStack source, String name)
+            throws CommandSyntaxException {
+        if (name.length() > Constants.MAX_NAME_LENGTH) {
+            throw NAME_TOO_LONG.create();
+        }
+        ServerPlayer player = source.getPlayerOrException();
+        Component message = TeleportationService.setPrivateLocation(player, name);
+        source.sendSuccess(() -> message, false);
+        return 1;
+    }
+
+    /**
+     * 执行删除私人传送点命令。
+     *
+     * @param source 命令源
+     * @param name   传送点名称
+     * @return 命令执行结果代码
+     * @throws CommandSyntaxException 如果命令源不是玩家
+     */
+    private static int executeRemovePrivateLocation(CommandSourceStack source, String name)
+            throws CommandSyntaxException {
+        ServerPlayer player = source.getPlayerOrException();
+
+        if (TeleportationService.removePrivateLocation(player, name)) {
+            source.sendSuccess(() -> Component.literal(String.format("Private location '%s' removed.", name)), false);
+            return 1;
+        }
+
+        source.sendFailure(Component.literal(String.format("Private location '%s' not found.", name)));
+        return 0;
+    }
+
+    /**
+     * 执行列出私人传送点命令。
+     *
+     * @param source 命令源
+     * @param page   页码（从1开始）
+     * @return 命令执行结果代码
+     * @throws CommandSyntaxException 如果命令源不是玩家
+     */
+    private static int executeListPrivateLocations(CommandSourceStack source, int page)
+            throws CommandSyntaxException {
+        ServerPlayer player = source.getPlayerOrException();
+        TeleportationService.LocationListResult result = TeleportationService.listPrivateLocations(player, page);
+
+        if (result.isEmpty()) {
+            source.sendSuccess(() -> Component.literal("You have no private locations."), false);
+            return 1;
+        }
+
+        if (!result.isPageFound()) {
+            source.sendFailure(result.getMessage());
+            return 0;
+        }
+
+        source.sendSuccess(result::getMessage, false);
+        return 1;
+    }
+
+    /**
+     * 执行传送到私人传送点命令。
+     *
+     * @param source 命令源
+     * @param name   传送点名称
+     * @return 命令执行结果代码
+     * @throws CommandSyntaxException 如果命令源不是玩家
+     */
+    private static int executeTeleportPrivate(CommandSourceStack source, String name)
+            throws CommandSyntaxException {
+        ServerPlayer player = source.getPlayerOrException();
+        TeleportationService.teleportToPrivateLocation(player, name).thenAccept(result -> {
+            if (result.isSuccess()) {
+                source.sendSuccess(() -> Component.literal(String.format("Teleported to '%s'.", name)), false);
+            } else {
+                source.sendFailure(result.getAdminMessage());
+            }
+        });
+        return 1;
+    }
+
+    /**
+     * 执行回到先前位置命令。
+     *
+     * @param source 命令源
+     * @param steps  回退的步数
+     * @return 命令执行结果代码
+     * @throws CommandSyntaxException 如果命令源不是玩家
+     */
+    private static int executeTeleportBack(CommandSourceStack source, int steps) throws CommandSyntaxException {
+        ServerPlayer player = source.getPlayerOrException();
+        CompletableFuture<TeleportationService.TeleportationResult> future =
+                TeleportationService.teleportBack(player, steps);
+        future.thenAccept(result -> {
+            if (result.isSuccess()) {
+                source.sendSuccess(() -> Component.literal("Teleported back to your previous position."), false);
+            } else {
+                source.sendFailure(result.getAdminMessage());
+            }
         });
+        return future.isDone() && !future.join().isSuccess() ? 0 : 1;
+    }
+
+    /**
+     * 执行撤销命令。
+     *
+     * @param source 命令源
+     * @param steps  撤销的修改次数
+     * @return 命令执行结果代码
+     */
+    private static int executeUndo(CommandSourceStack source, int steps) {
+        TeleportationService.UndoResult result = TeleportationService.undo(steps);
+
+        if (result.isSuccess()) {
+            source.sendSuccess(result::getMessage, true);
+            return 1;
+        }
+        source.sendFailure(result.getMessage());
+        return 0;
+    }
 
+    /**
+     * 执行历史列表命令。
+     *
+     * @param source 命令源
+     * @return 命令执行结果代码
+     */
+    private static int executeHistory(CommandSourceStack source) {
+        Component message = TeleportationService.listHistory();
+        source.sendSuccess(() -> message, false);
+        return 1;
+    }
+
+    /**
+     * 执行导出命令。文件在后台线程写出，完成后再通知命令源。
+     *
+     * @param source   命令源
+     * @param fileName 文件名
+     * @return 命令执行结果代码
+     */
+    private static int executeExport(CommandSourceStack source, String fileName) {
+        CompletableFuture<LocationTransfer.Result> future =
+                LocationTransfer.exportLocations(source.getServer(), fileName);
+        return reportTransfer(source, future);
+    }
+
+    /**
+     * 执行导入命令。文件在后台线程解析并准备好索引，只有最终替换在主线程完成。
+     *
+     * @param source   命令源
+     * @param fileName 文件名
+     * @param replace  是否替换全部已有传送点
+     * @return 命令执行结果代码
+     */
+    private static int executeImport(CommandSourceStack source, String fileName, boolean replace) {
+        CompletableFuture<LocationTransfer.Result> future =
+                LocationTransfer.importLocations(source.getServer(), fileName, replace);
+        return reportTransfer(source, future);
+    }
+
+    private static int reportTransfer(CommandSourceStack source, CompletableFuture<LocationTransfer.Result> future) {
+        if (future.isDone() && !future.join().isSuccess()) {
+            source.sendFailure(future.join().getMessage());
+            return 0;
+        }
+        source.sendSuccess(() -> Component.literal("Transfer started in the background..."), false);
+        future.thenAccept(result -> {
+            if (result.isSuccess()) {
+                source.sendSuccess(result::getMessage, true);
+            } else {
+                source.sendFailure(result.getMessage());
+            }
+        });
         return 1;
     }
 
     /**
-     * 获取所有全局传送点名称，用于命令补全。
+     * 执行运行指标查询命令。
+     * 耗时单位为微秒，分位数为直方图估算值。
      *
      * @param source 命令源
-     * @return 传送点名称集合
+     * @return 命令执行结果代码
      */
-    private static Set<String> getLocationNames(CommandSourceStack source) {
-        return TeleportationService.getLocationNames(source.getLevel());
+    private static int executeStats(CommandSourceStack source) {
+        TPModMetrics metrics = TPModMetrics.get();
+        StringBuilder content = new StringBuilder(512);
+
+        content.append(String.format(
+                "Teleports: %d succeeded, %d failed (%d dimension not loaded)",
+                metrics.getTeleportCount(),
+                metrics.getTeleportFailureCount(),
+                metrics.getDimensionRejectionCount()
+        ));
+        content.append('\n').append(String.format(
+                "Queue: %d pending, %d coalesced, %d rejected (queue full)",
+                TeleportScheduler.pendingCount(),
+                metrics.getCoalescedTeleportCount(),
+                metrics.getRejectedTeleportCount()
+        ));
+        content.append('\n').append(String.format(
+                "Hot chunks: %d kept loaded (budget %d)",
+                HotDestinationKeeper.heldChunkCount(),
+                TPModConfig.HOT_CHUNK_BUDGET.get()
+        ));
+        content.append('\n').append(String.format(
+                "Suggestions: %d calls, mean %.1f us, p99 %.1f us",
+                metrics.getSuggestionCount(),
+                metrics.getSuggestionMeanMicros(),
+                metrics.getSuggestionP99Micros()
+        ));
+        content.append('\n').append(String.format(
+                "Saves: %d, last %.2f ms for %d locations (%d bytes), p99 %.2f ms",
+                metrics.getSaveCount(),
+                metrics.getLastSaveMillis(),
+                metrics.getLastSaveLocations(),
+                metrics.getLastSaveBytes(),
+                metrics.getSaveP99Millis()
+        ));
+        content.append('\n').append("Commands (count, mean / p50 / p99 / max us):");
+        for (Map.Entry<String, LatencyHistogram> entry : metrics.getCommands().entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            content.append('\n').append(String.format(
+                    "  %s: %d, %.1f / %.1f / %.1f / %.1f",
+                    entry.getKey(),
+                    histogram.getCount(),
+                    histogram.getMeanMicros(),
+                    histogram.getPercentileMicros(0.5),
+                    histogram.getPercentileMicros(0.99),
+                    histogram.getMaxMicros()
+            ));
+        }
+
+        Component message = Component.literal(content.toString());
+        source.sendSuccess(() -> message, false);
+        return 1;
+    }
+
+    /**
+     * 格式化一条空间查询结果。
+     *
+     * @param match 查询结果
+     * @return 可显示的消息
+     */
+    private static Component formatMatch(SpatialIndex.Match match) {
+        LocationData loc = match.getLocation();
+        return Component.literal(String.format(
+                "%s %d %d %d (%.1f blocks)",
+                match.getName(),
+                loc.getX(),
+                loc.getY(),
+                loc.getZ(),
+                match.getDistance()
+        ));
+    }
+
+    /**
+     * 补全已有的标签。
+     *
+     * @param ctx     命令上下文
+     * @param builder 建议构建器
+     * @return 补全建议
+     */
+    private static CompletableFuture<Suggestions> suggestTags(
+            CommandContext<CommandSourceStack> ctx,
+            SuggestionsBuilder builder
+    ) {
+        for (String tag : TeleportationService.completeTags(builder.getRemaining())) {
+            builder.suggest(tag);
+        }
+        return builder.buildFuture();
+    }
+
+    /**
+     * 补全已输入的传送点自身带有的标签。
+     *
+     * @param ctx     命令上下文
+     * @param builder 建议构建器
+     * @return 补全建议
+     */
+    private static CompletableFuture<Suggestions> suggestLocationTags(
+            CommandContext<CommandSourceStack> ctx,
+            SuggestionsBuilder builder
+    ) {
+        String prefix = builder.getRemainingLowerCase();
+        for (String tag : TeleportationService.getTags(StringArgumentType.getString(ctx, "name"))) {
+            if (tag.startsWith(prefix)) {
+                builder.suggest(tag);
+            }
+        }
+        return builder.buildFuture();
+    }
+
+    /**
+     * 补全 /tpm ls 过滤条件的最后一个词：标签、标签范围内的名称或名称前缀。
+     *
+     * @param ctx     命令上下文
+     * @param builder 建议构建器
+     * @return 补全建议
+     */
+    private static CompletableFuture<Suggestions> suggestListFilter(
+            CommandContext<CommandSourceStack> ctx,
+            SuggestionsBuilder builder
+    ) {
+        long start = System.nanoTime();
+        String remaining = builder.getRemaining();
+        SuggestionsBuilder word = builder.createOffset(builder.getStart() + remaining.lastIndexOf(' ') + 1);
+        for (String candidate : TeleportationService.completeListFilter(remaining)) {
+            word.suggest(candidate);
+        }
+        CompletableFuture<Suggestions> suggestions = word.buildFuture();
+        TPModMetrics.get().recordSuggestion(start);
+        return suggestions;
     }
-}
 
+    /**
+     * 补全命令执行者自己的私人传送点名称。
+     *
+     * @param ctx     命令上下文
+     * @param builder 建议构建器
+     * @return 补全建议
+     */
+    private static CompletableFuture<Suggestions> suggestPrivateLocationNames(
+            CommandContext<CommandSourceStack> ctx,
+            SuggestionsBuilder builder
+    ) {
+        ServerPlayer player = ctx.getSource().getPlayer();
+        if (player == null) {
+            return builder.buildFuture();
+        }
+        for (String name : TeleportationService.completePrivateLocationNames(player, builder.getRemaining())) {
+            builder.suggest(name);
+        }
+        return builder.buildFuture();
+    }
+}
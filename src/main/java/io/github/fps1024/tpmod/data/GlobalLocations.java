@@ -1,31 +1,83 @@
 package io.github.fps1024.tpmod.data;
 
 import io.github.fps1024.tpmod.TPMod;
+import io.github.fps1024.tpmod.metrics.TPModMetrics;
 import io.github.fps1024.tpmod.util.Constants;
+import com.mojang.logging.LogUtils;
 import net.minecraft.core.HolderLookup;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.server.level.ServerLevel;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.datafix.DataFixTypes;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.saveddata.SavedData;
 import net.minecraft.world.level.storage.DimensionDataStorage;
+import net.minecraft.world.level.storage.LevelResource;
+import org.slf4j.Logger;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 全局传送点数据存储类。
  * 负责在服务端保存、加载、管理所有全局传送点（名称->坐标）。
- * 继承自 SavedData，自动随世界存档持久化。
+ * 继承自 SavedData，自动随世界存档持久化；作为默认的 {@link LocationRepository} 后端。
+ * 单次修改只追加到 {@link LocationJournal}，累计足够多的修改后才标记为脏、由自动保存写出完整快照；
+ * 启动时先加载快照再重放日志。
+ * 传送点保存在 {@link PersistentLocationMap} 中，每次修改产生一个共享未修改部分的新版本，
+ * 最近的版本保存在 {@link LocationHistory} 中，可以撤销修改。
  *
  * @author FPS1024
  */
-public final class GlobalLocations extends SavedData {
+public final class GlobalLocations extends SavedData implements LocationRepository {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    /**
+     * 存储所有全局传送点的当前版本，key为名称，value为位置数据。批量导入时与两个索引一起整体替换。
+     * 版本本身不可变，工作线程可以直接读取。
+     */
+    private volatile PersistentLocationMap locations = PersistentLocationMap.EMPTY;
+
+    /**
+     * 最近的版本，第0个始终与 {@link #locations} 相同。服务端首次获取数据后开始记录。
+     */
+    private final LocationHistory history = new LocationHistory(Constants.UNDO_HISTORY_SIZE + 1);
+
+    /**
+     * 按维度分区的空间索引，随 addLocation/removeLocation 同步更新。
+     */
+    private SpatialIndex spatialIndex = new SpatialIndex();
+
+    /**
+     * 名称前缀索引，用于命令补全。
+     */
+    private LocationNameIndex nameIndex = new LocationNameIndex();
+
+    /**
+     * 数据版本号，每次修改递增，供缓存判断是否失效。
+     */
+    private long version;
+
+    /**
+     * 最近发布的不可变快照，包装 {@link #locations} 的当前版本，每次修改后由主线程在 {@link #publish()} 中替换。
+     */
+    private volatile LocationSnapshot snapshot = LocationSnapshot.EMPTY;
+
     /**
-     * 存储所有全局传送点，key为名称，value为位置数据。
+     * 修改日志，服务端首次获取数据时打开。
      */
-    private final Map<String, LocationData> locations = new HashMap<>();
+    private LocationJournal journal;
+
+    /**
+     * 最后分配的日志序号；保存时写入快照，表示快照已包含到此序号为止的修改。
+     */
+    private long journalSequence;
+
+    /**
+     * 上次保存快照后追加的日志记录数。
+     */
+    private int journalRecordsSinceSnapshot;
 
     /**
      * 默认构造函数。
@@ -36,6 +88,7 @@ public final class GlobalLocations extends SavedData {
 
     /**
      * 从NBT数据加载全局传送点。
+     * 旧版本每个传送点一个 CompoundTag 的数据会被读取并标记为脏，下次保存时自动迁移为列式格式。
      *
      * @param tag      存档NBT
      * @param provider 数据修复器
@@ -43,18 +96,19 @@ public final class GlobalLocations extends SavedData {
      */
     public static GlobalLocations load(CompoundTag tag, HolderLookup.Provider provider) {
         GlobalLocations savedData = new GlobalLocations();
-        CompoundTag locationsTag = tag.getCompound(Constants.NBT_KEY_LOCATIONS);
+        boolean legacy = LocationCodec.read(tag, savedData::putLoaded);
+        savedData.journalSequence = tag.getLong(Constants.NBT_KEY_JOURNAL_SEQUENCE);
 
-        for (String name : locationsTag.getAllKeys()) {
-            CompoundTag locationTag = locationsTag.getCompound(name);
-            savedData.locations.put(name, LocationData.fromNBT(locationTag));
+        if (legacy) {
+            LOGGER.info("Migrating {} global locations to the columnar save format.", savedData.locations.size());
+            savedData.setDirty();
         }
 
         return savedData;
     }
 
     /**
-     * 将全局传送点保存为NBT。
+     * 将全局传送点以列式格式保存为NBT，按名称顺序写出。耗时和大小计入运行指标。
      *
      * @param compoundTag 目标NBT
      * @param provider    数据修复器
@@ -62,28 +116,113 @@ public final class GlobalLocations extends SavedData {
      */
     @Override
     public CompoundTag save(CompoundTag compoundTag, HolderLookup.Provider provider) {
-        CompoundTag locationsTag = new CompoundTag();
-        locations.forEach((name, loc) -> locationsTag.put(name, loc.toNBT()));
-        compoundTag.put(Constants.NBT_KEY_LOCATIONS, locationsTag);
+        long start = System.nanoTime();
+        LocationCodec.write(nameIndex.sortedNames(), locations::get, compoundTag);
+        compoundTag.putLong(Constants.NBT_KEY_JOURNAL_SEQUENCE, journalSequence);
+        if (journal != null) {
+            journal.rotate();
+        }
+        journalRecordsSinceSnapshot = 0;
+        TPModMetrics.get().recordSave(start, locations.size(), compoundTag.sizeInBytes());
         return compoundTag;
     }
 
     /**
-     * 获取当前世界的全局传送点数据（仅限服务端）。
+     * 加载时放入一个传送点并更新索引。
      *
-     * @param level 世界对象
-     * @return GlobalLocations实例
-     * @throws RuntimeException 如果在客户端调用此方法
+     * @param name     传送点名称
+     * @param location 位置数据
      */
-    public static GlobalLocations get(Level level) {
-        if (!(level instanceof ServerLevel serverLevel)) {
-            throw new RuntimeException("Cannot get locations on client side!");
+    private void putLoaded(String name, LocationData location) {
+        LocationData previous = locations.get(name);
+        locations = locations.put(name, location);
+        if (previous != null) {
+            spatialIndex.remove(name, previous);
+        } else {
+            nameIndex.add(name);
         }
+        spatialIndex.add(name, location);
+    }
 
-        DimensionDataStorage storage = serverLevel.getServer().overworld().getDataStorage();
+    /**
+     * 移除一个传送点并更新索引，不记录日志。
+     *
+     * @param name 传送点名称
+     * @return 被移除的位置数据，不存在时返回null
+     */
+    private LocationData removeLoaded(String name) {
+        LocationData removed = locations.get(name);
+        if (removed != null) {
+            locations = locations.remove(name);
+            spatialIndex.remove(name, removed);
+            nameIndex.remove(name);
+        }
+        return removed;
+    }
+
+    /**
+     * 打开修改日志并重放快照之后的记录。
+     *
+     * @param directory 日志所在目录
+     */
+    private void openJournal(Path directory) {
+        journal = new LocationJournal(directory);
+        long snapshotSequence = journalSequence;
+        journalSequence = journal.replay(snapshotSequence, new LocationJournal.Visitor() {
+            @Override
+            public void put(String name, LocationData location) {
+                putLoaded(name, location);
+                journalRecordsSinceSnapshot++;
+            }
+
+            @Override
+            public void remove(String name) {
+                removeLoaded(name);
+                journalRecordsSinceSnapshot++;
+            }
+
+            @Override
+            public void clear() {
+                locations = PersistentLocationMap.EMPTY;
+                spatialIndex.clear();
+                nameIndex.clear();
+                journalRecordsSinceSnapshot++;
+            }
+        });
+
+        if (journalRecordsSinceSnapshot > 0) {
+            LOGGER.info("Replayed {} location journal records.", journalRecordsSinceSnapshot);
+            version++;
+        }
+        publish();
+        if (journalRecordsSinceSnapshot >= Constants.JOURNAL_COMPACT_THRESHOLD) {
+            setDirty();
+        }
+    }
+
+    /**
+     * 记录一次修改：有日志时只在累计足够多记录后标记为脏（触发压缩为快照），否则每次都标记为脏。
+     */
+    private void onChanged() {
+        version++;
+        publish();
+        if (journal == null || ++journalRecordsSinceSnapshot >= Constants.JOURNAL_COMPACT_THRESHOLD) {
+            setDirty();
+        }
+    }
+
+    /**
+     * 从主世界的数据存储中获取全局传送点数据并打开修改日志。
+     * 由 {@link LocationRepositories} 在服务器启动时调用。
+     *
+     * @param server 服务器实例
+     * @return GlobalLocations实例
+     */
+    public static GlobalLocations open(MinecraftServer server) {
+        DimensionDataStorage storage = server.overworld().getDataStorage();
         String dataKey = TPMod.MODID + Constants.SAVED_DATA_SUFFIX;
 
-        return storage.computeIfAbsent(
+        GlobalLocations savedData = storage.computeIfAbsent(
                 new SavedData.Factory<>(
                         GlobalLocations::new,
                         GlobalLocations::load,
@@ -91,6 +230,23 @@ public final class GlobalLocations extends SavedData {
                 ),
                 dataKey
         );
+
+        if (savedData.journal == null) {
+            savedData.openJournal(server.getWorldPath(LevelResource.ROOT).resolve("data"));
+            savedData.history.record(savedData.locations, "server start");
+        }
+        return savedData;
+    }
+
+    /**
+     * 等待日志写完并关闭。服务器最后一次保存之后调用。
+     */
+    @Override
+    public void close() {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
     }
 
     /**
@@ -99,9 +255,14 @@ public final class GlobalLocations extends SavedData {
      * @param name     传送点名称
      * @param location 位置数据
      */
+    @Override
     public void addLocation(String name, LocationData location) {
-        locations.put(name, location);
-        setDirty();
+        putLoaded(name, location);
+        if (journal != null) {
+            journal.appendPut(++journalSequence, name, location);
+        }
+        history.record(locations, "set " + name);
+        onChanged();
     }
 
     /**
@@ -110,6 +271,7 @@ public final class GlobalLocations extends SavedData {
      * @param name 传送点名称
      * @return 位置数据，若不存在返回null
      */
+    @Override
     public LocationData getLocation(String name) {
         return locations.get(name);
     }
@@ -120,21 +282,216 @@ public final class GlobalLocations extends SavedData {
      * @param name 传送点名称
      * @return 是否删除成功
      */
+    @Override
     public boolean removeLocation(String name) {
-        if (locations.remove(name) != null) {
+        if (removeLoaded(name) == null) {
+            return false;
+        }
+        if (journal != null) {
+            journal.appendRemove(++journalSequence, name);
+        }
+        history.record(locations, "rm " + name);
+        onChanged();
+        return true;
+    }
+
+    /**
+     * 在工作线程上基于当前版本构建导入后的完整数据和索引，提交时只在主线程交换引用，
+     * 十万级的导入也不会占用服务端 tick。整批修改作为一次批量记录写入日志，并标记为脏以便尽快压缩为快照。
+     * 合并导入与当前版本共享未修改的部分，整批导入在历史中是一个版本，可以一次撤销。
+     *
+     * @param baseVersion 准备时的数据版本号
+     * @param names       导入的传送点名称
+     * @param imported    与名称一一对应的位置数据
+     * @param replace     是否替换全部已有传送点
+     * @return 待提交的导入；准备之后数据又被修改时提交返回false
+     */
+    @Override
+    public BulkImport prepareImport(
+            long baseVersion,
+            List<String> names,
+            List<LocationData> imported,
+            boolean replace
+    ) {
+        // 读到的数据比 baseVersion 新时，提交会因版本号不一致而失败并重新准备
+        PersistentLocationMap merged = replace ? PersistentLocationMap.EMPTY : locations;
+        for (int i = 0; i < names.size(); i++) {
+            merged = merged.put(names.get(i), imported.get(i));
+        }
+        PersistentLocationMap result = merged;
+
+        LocationNameIndex mergedNames = new LocationNameIndex();
+        SpatialIndex mergedSpatial = new SpatialIndex();
+        result.forEach((name, location) -> {
+            mergedNames.add(name);
+            mergedSpatial.add(name, location);
+        });
+
+        return () -> {
+            if (version != baseVersion) {
+                return false;
+            }
+            locations = result;
+            nameIndex = mergedNames;
+            spatialIndex = mergedSpatial;
+            if (journal != null) {
+                journal.appendBatch(++journalSequence, replace, names, imported);
+            }
+            history.record(result, (replace ? "import (replace) " : "import ") + names.size() + " locations");
+            version++;
+            publish();
             setDirty();
             return true;
+        };
+    }
+
+    /**
+     * 列出保留的历史版本，第0项为当前版本。
+     *
+     * @return 从当前版本开始的版本信息
+     */
+    @Override
+    public List<LocationHistory.Entry> getHistory() {
+        return history.entries();
+    }
+
+    /**
+     * 恢复到之前第n个版本：替换当前版本只是一次引用赋值，索引和日志按两个版本的差异增量更新，
+     * 由于版本之间共享未修改的节点，差异比较的开销只与被撤销的修改量有关。
+     *
+     * @param steps 撤销的修改次数
+     * @return 发生变化的传送点；历史中没有足够的版本时返回null
+     */
+    @Override
+    public LocationHistory.Changes undo(int steps) {
+        if (steps < 1 || steps >= history.size()) {
+            return null;
         }
-        return false;
+
+        PersistentLocationMap target = history.get(steps);
+        List<String> updated = new ArrayList<>();
+        List<LocationData> updatedLocations = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        PersistentLocationMap.diff(locations, target, (name, before, after) -> {
+            if (before != null) {
+                spatialIndex.remove(name, before);
+            }
+            if (after == null) {
+                nameIndex.remove(name);
+                removed.add(name);
+            } else {
+                if (before == null) {
+                    nameIndex.add(name);
+                }
+                spatialIndex.add(name, after);
+                updated.add(name);
+                updatedLocations.add(after);
+            }
+        });
+
+        locations = target;
+        history.discard(steps);
+        if (journal != null) {
+            journal.appendChanges(++journalSequence, removed, updated, updatedLocations);
+        }
+        version++;
+        publish();
+        journalRecordsSinceSnapshot += removed.size() + updated.size();
+        if (journal == null || journalRecordsSinceSnapshot >= Constants.JOURNAL_COMPACT_THRESHOLD) {
+            setDirty();
+        }
+        return new LocationHistory.Changes(updated, removed);
     }
 
     /**
-     * 获取所有全局传送点名称集合。
+     * 获取当前数据的不可变快照。快照在每次修改后由主线程发布，这里只读取 volatile 字段，任意线程都可以调用。
      *
-     * @return 名称集合
+     * @return 不可变快照
      */
-    public Set<String> getLocationNames() {
-        return locations.keySet();
+    @Override
+    public LocationSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 用当前版本发布新的快照。版本本身不可变，包装它只需 O(1)，不复制名称。
+     */
+    private void publish() {
+        snapshot = LocationSnapshot.of(locations, version);
+    }
+
+    /**
+     * 查找以指定前缀开头的传送点名称，用于命令补全。
+     *
+     * @param prefix 前缀（忽略大小写）
+     * @param limit  最多返回的数量
+     * @return 有序的匹配名称
+     */
+    @Override
+    public List<String> completeLocationNames(String prefix, int limit) {
+        return nameIndex.complete(prefix, limit);
+    }
+
+    /**
+     * 按名称顺序读取以指定前缀开头的传送点名称中的一段。
+     *
+     * @param prefix 前缀（忽略大小写），空字符串表示全部
+     * @param offset 跳过的数量
+     * @param limit  最多返回的数量
+     * @return 有序的名称列表
+     */
+    @Override
+    public List<String> listLocationNames(String prefix, int offset, int limit) {
+        return nameIndex.page(prefix, offset, limit);
     }
-}
 
+    /**
+     * 统计以指定前缀开头的传送点数量。
+     *
+     * @param prefix 前缀（忽略大小写），空字符串表示全部
+     * @return 匹配数量
+     */
+    @Override
+    public int countLocationNames(String prefix) {
+        return nameIndex.count(prefix);
+    }
+
+    /**
+     * 获取数据版本号。每次添加或删除传送点后版本号都会变化。
+     *
+     * @return 版本号
+     */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 查找指定维度中距离给定坐标最近的传送点。
+     *
+     * @param dimension 维度
+     * @param x         X坐标
+     * @param y         Y坐标
+     * @param z         Z坐标
+     * @return 最近的传送点，不存在时返回null
+     */
+    @Override
+    public SpatialIndex.Match findNearest(ResourceKey<Level> dimension, double x, double y, double z) {
+        return spatialIndex.nearest(dimension, x, y, z);
+    }
+
+    /**
+     * 查找指定维度中给定半径内的传送点，按距离排序。
+     *
+     * @param dimension 维度
+     * @param x         X坐标
+     * @param y         Y坐标
+     * @param z         Z坐标
+     * @param radius    半径
+     * @return 匹配结果列表
+     */
+    @Override
+    public List<SpatialIndex.Match> findWithin(ResourceKey<Level> dimension, double x, double y, double z, double radius) {
+        return spatialIndex.within(dimension, x, y, z, radius);
+    }
+}
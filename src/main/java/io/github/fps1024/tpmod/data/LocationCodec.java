@@ -0,0 +1,123 @@
+package io.github.fps1024.tpmod.data;
+
+import io.github.fps1024.tpmod.util.Constants;
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.IntArrayTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.LongArrayTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+import org.slf4j.Logger;
+
+import java.util.Collection;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 传送点存档编解码工具类。
+ * 当前格式（版本 {@link Constants#SAVE_FORMAT_VERSION}）按列存储：
+ * 名称列表、维度调色板、每个传送点的调色板下标（IntArray）以及打包坐标（LongArray）。
+ * 读取时兼容旧版本每个传送点一个 CompoundTag 的格式。
+ *
+ * @author FPS1024
+ */
+public final class LocationCodec {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private LocationCodec() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * 以列式格式写入传送点。
+     *
+     * @param names    按写出顺序排列的传送点名称
+     * @param lookup   名称到位置数据的查找函数
+     * @param tag      目标NBT
+     */
+    public static void write(Collection<String> names, Function<String, LocationData> lookup, CompoundTag tag) {
+        ListTag nameList = new ListTag();
+        ListTag palette = new ListTag();
+        Reference2IntMap<ResourceKey<Level>> paletteIds = new Reference2IntOpenHashMap<>();
+        int[] dimensionIds = new int[names.size()];
+        long[] positions = new long[names.size()];
+        int index = 0;
+
+        for (String name : names) {
+            LocationData location = lookup.apply(name);
+            ResourceKey<Level> dimension = location.getDimension();
+            int paletteId = paletteIds.computeIfAbsent(dimension, key -> {
+                palette.add(StringTag.valueOf(dimension.location().toString()));
+                return palette.size() - 1;
+            });
+
+            nameList.add(StringTag.valueOf(name));
+            dimensionIds[index] = paletteId;
+            positions[index] = location.getPackedPos();
+            index++;
+        }
+
+        tag.putInt(Constants.NBT_KEY_FORMAT_VERSION, Constants.SAVE_FORMAT_VERSION);
+        tag.put(Constants.NBT_KEY_NAMES, nameList);
+        tag.put(Constants.NBT_KEY_DIMENSION_PALETTE, palette);
+        tag.put(Constants.NBT_KEY_DIMENSION_IDS, new IntArrayTag(dimensionIds));
+        tag.put(Constants.NBT_KEY_POSITIONS, new LongArrayTag(positions));
+    }
+
+    /**
+     * 读取传送点，自动识别列式格式与旧版格式。
+     *
+     * @param tag      存档NBT
+     * @param consumer 接收每个传送点的回调
+     * @return 数据是否为旧版格式（需要重新保存以完成迁移）
+     */
+    public static boolean read(CompoundTag tag, BiConsumer<String, LocationData> consumer) {
+        if (!tag.contains(Constants.NBT_KEY_FORMAT_VERSION, Tag.TAG_INT)) {
+            CompoundTag locationsTag = tag.getCompound(Constants.NBT_KEY_LOCATIONS);
+            for (String name : locationsTag.getAllKeys()) {
+                consumer.accept(name, LocationData.fromNBT(locationsTag.getCompound(name)));
+            }
+            return !locationsTag.isEmpty();
+        }
+
+        ListTag nameList = tag.getList(Constants.NBT_KEY_NAMES, Tag.TAG_STRING);
+        ListTag palette = tag.getList(Constants.NBT_KEY_DIMENSION_PALETTE, Tag.TAG_STRING);
+        int[] dimensionIds = tag.getIntArray(Constants.NBT_KEY_DIMENSION_IDS);
+        long[] positions = tag.getLongArray(Constants.NBT_KEY_POSITIONS);
+
+        int count = Math.min(nameList.size(), Math.min(dimensionIds.length, positions.length));
+        if (count != nameList.size()) {
+            LOGGER.warn("Location columns have mismatched lengths, only {} of {} entries were loaded.",
+                    count, nameList.size());
+        }
+
+        @SuppressWarnings("unchecked")
+        ResourceKey<Level>[] dimensions = new ResourceKey[palette.size()];
+        for (int i = 0; i < dimensions.length; i++) {
+            dimensions[i] = LocationData.parseDimension(palette.getString(i));
+        }
+
+        int skipped = 0;
+        for (int i = 0; i < count; i++) {
+            int dimensionId = dimensionIds[i];
+            if (dimensionId < 0 || dimensionId >= dimensions.length) {
+                skipped++;
+                continue;
+            }
+            consumer.accept(nameList.getString(i), new LocationData(dimensions[dimensionId], positions[i]));
+        }
+        if (skipped > 0) {
+            LOGGER.warn("{} locations reference dimensions missing from the palette of {} entries and were skipped.",
+                    skipped, dimensions.length);
+        }
+        return false;
+    }
+}
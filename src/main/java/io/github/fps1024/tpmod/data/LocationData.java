@@ -1,67 +1,88 @@
 package io.github.fps1024.tpmod.data;
 
 import io.github.fps1024.tpmod.util.Constants;
+import com.mojang.brigadier.StringReader;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.Registries;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.Level;
 
 /**
  * 位置数据类。
  * 用于存储和管理一个三维坐标点及其所在维度的信息。
+ * 维度保存为规范化（驻留）的 {@link ResourceKey}，同一维度的所有位置共享同一个实例，
+ * 可直接用 {@code ==} 比较；坐标按 {@link BlockPos#asLong()} 打包为一个 long。
  * 提供了将数据序列化为NBT格式和从NBT反序列化的方法，便于数据持久化和网络传输。
  *
  * @author FPS1024
  */
 public final class LocationData {
     /**
-     * 维度名称。
+     * 旧版本存档中维度字符串的前缀（{@link ResourceKey#toString()} 的格式）。
      */
-    private final String dimension;
+    private static final String LEGACY_DIMENSION_PREFIX = "ResourceKey[";
 
     /**
-     * X坐标。
+     * 维度。
      */
-    private final int x;
+    private final ResourceKey<Level> dimension;
 
     /**
-     * Y坐标。
+     * 打包后的方块坐标。
      */
-    private final int y;
-
-    /**
-     * Z坐标。
-     */
-    private final int z;
+    private final long packedPos;
 
     /**
      * 构造方法，初始化维度和坐标。
      *
-     * @param dimension 维度名称
+     * @param dimension 维度
      * @param x         X坐标
      * @param y         Y坐标
      * @param z         Z坐标
      */
-    public LocationData(String dimension, int x, int y, int z) {
+    public LocationData(ResourceKey<Level> dimension, int x, int y, int z) {
+        this(dimension, BlockPos.asLong(x, y, z));
+    }
+
+    /**
+     * 构造方法，使用已打包的坐标。
+     *
+     * @param dimension 维度
+     * @param packedPos 按 {@link BlockPos#asLong()} 打包的坐标
+     */
+    public LocationData(ResourceKey<Level> dimension, long packedPos) {
         this.dimension = dimension;
-        this.x = x;
-        this.y = y;
-        this.z = z;
+        this.packedPos = packedPos;
     }
 
     /**
-     * 获取维度名称。
+     * 获取维度。
      *
-     * @return 维度名称
+     * @return 维度
      */
-    public String getDimension() {
+    public ResourceKey<Level> getDimension() {
         return dimension;
     }
 
+    /**
+     * 判断位置是否位于指定维度。维度实例是驻留的，因此只做引用比较。
+     *
+     * @param level 维度
+     * @return 是否位于该维度
+     */
+    public boolean isIn(ResourceKey<Level> level) {
+        return dimension == level;
+    }
+
     /**
      * 获取X坐标。
      *
      * @return X坐标
      */
     public int getX() {
-        return x;
+        return BlockPos.getX(packedPos);
     }
 
     /**
@@ -70,7 +91,7 @@ public final class LocationData {
      * @return Y坐标
      */
     public int getY() {
-        return y;
+        return BlockPos.getY(packedPos);
     }
 
     /**
@@ -79,7 +100,16 @@ public final class LocationData {
      * @return Z坐标
      */
     public int getZ() {
-        return z;
+        return BlockPos.getZ(packedPos);
+    }
+
+    /**
+     * 获取打包后的坐标。
+     *
+     * @return 按 {@link BlockPos#asLong()} 打包的坐标
+     */
+    public long getPackedPos() {
+        return packedPos;
     }
 
     /**
@@ -89,10 +119,10 @@ public final class LocationData {
      */
     public CompoundTag toNBT() {
         CompoundTag nbt = new CompoundTag();
-        nbt.putString(Constants.NBT_KEY_DIMENSION, dimension);
-        nbt.putInt(Constants.NBT_KEY_X, x);
-        nbt.putInt(Constants.NBT_KEY_Y, y);
-        nbt.putInt(Constants.NBT_KEY_Z, z);
+        nbt.putString(Constants.NBT_KEY_DIMENSION, dimension.location().toString());
+        nbt.putInt(Constants.NBT_KEY_X, getX());
+        nbt.putInt(Constants.NBT_KEY_Y, getY());
+        nbt.putInt(Constants.NBT_KEY_Z, getZ());
         return nbt;
     }
 
@@ -104,11 +134,44 @@ public final class LocationData {
      */
     public static LocationData fromNBT(CompoundTag nbt) {
         return new LocationData(
-                nbt.getString(Constants.NBT_KEY_DIMENSION),
+                parseDimension(nbt.getString(Constants.NBT_KEY_DIMENSION)),
                 nbt.getInt(Constants.NBT_KEY_X),
                 nbt.getInt(Constants.NBT_KEY_Y),
                 nbt.getInt(Constants.NBT_KEY_Z)
         );
     }
-}
 
+    /**
+     * 检查传送点名称是否能通过命令输入和保存：非空、不超过 {@link Constants#MAX_NAME_LENGTH} 个字符，
+     * 且只包含命令中不加引号的单词允许的字符（ASCII 字母、数字和 {@code _-.+}），
+     * 因此 UTF-8 编码后的字节数与字符数相同，也满足内存映射后端的定长记录限制。
+     *
+     * @param name 传送点名称
+     * @return 名称是否有效
+     */
+    public static boolean isValidName(String name) {
+        if (name == null || name.isEmpty() || name.length() > Constants.MAX_NAME_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (!StringReader.isAllowedInUnquotedString(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 解析维度名称，兼容旧版本保存的 {@code ResourceKey[minecraft:dimension / minecraft:overworld]} 格式。
+     *
+     * @param dimension 维度名称
+     * @return 驻留的维度键
+     */
+    public static ResourceKey<Level> parseDimension(String dimension) {
+        String location = dimension;
+        if (location.startsWith(LEGACY_DIMENSION_PREFIX)) {
+            location = location.substring(location.lastIndexOf(' ') + 1, location.length() - 1);
+        }
+        return ResourceKey.create(Registries.DIMENSION, ResourceLocation.parse(location));
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.fps1024.tpmod.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 全局传送点的最近若干个版本，用于 /tpm undo 和 /tpm history。
+ * 每个版本是一个 {@link PersistentLocationMap}，相邻版本共享未修改的节点，
+ * 因此保留的内存只随各版本之间的修改量增长。第0个版本始终是当前数据。
+ * 历史只保存在内存中，服务器重启后从启动时的数据重新开始。只能在服务端主线程访问。
+ *
+ * @author FPS1024
+ */
+public final class LocationHistory {
+    private final PersistentLocationMap[] versions;
+    private final String[] descriptions;
+    private final long[] times;
+
+    /**
+     * 最新版本所在的下标。
+     */
+    private int newest = -1;
+
+    private int size;
+
+    /**
+     * 创建历史。
+     *
+     * @param capacity 最多保留的版本数量（含当前版本）
+     */
+    public LocationHistory(int capacity) {
+        this.versions = new PersistentLocationMap[capacity];
+        this.descriptions = new String[capacity];
+        this.times = new long[capacity];
+    }
+
+    /**
+     * 记录一个新版本，超出容量时丢弃最旧的版本。
+     *
+     * @param version     新版本的数据
+     * @param description 产生该版本的修改描述
+     */
+    public void record(PersistentLocationMap version, String description) {
+        newest = (newest + 1) % versions.length;
+        versions[newest] = version;
+        descriptions[newest] = description;
+        times[newest] = System.currentTimeMillis();
+        size = Math.min(size + 1, versions.length);
+    }
+
+    /**
+     * 获取保留的版本数量（含当前版本）。
+     *
+     * @return 版本数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 获取当前版本之前第n个版本。
+     *
+     * @param steps 回退的版本数，0表示当前版本
+     * @return 版本数据
+     */
+    public PersistentLocationMap get(int steps) {
+        return versions[index(steps)];
+    }
+
+    /**
+     * 丢弃最新的若干个版本，使原先的第n个版本成为当前版本。
+     *
+     * @param steps 丢弃的版本数
+     */
+    public void discard(int steps) {
+        for (int i = 0; i < steps && size > 1; i++) {
+            versions[newest] = null;
+            descriptions[newest] = null;
+            newest = index(1);
+            size--;
+        }
+    }
+
+    /**
+     * 列出保留的版本，从当前版本开始。
+     *
+     * @return 版本信息列表
+     */
+    public List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>(size);
+        for (int steps = 0; steps < size; steps++) {
+            int index = index(steps);
+            entries.add(new Entry(descriptions[index], times[index], versions[index].size()));
+        }
+        return entries;
+    }
+
+    private int index(int steps) {
+        return Math.floorMod(newest - steps, versions.length);
+    }
+
+    /**
+     * 一个历史版本的信息。
+     *
+     * @param description   产生该版本的修改描述
+     * @param timeMillis    产生该版本的时间
+     * @param locationCount 该版本中的传送点数量
+     */
+    public record Entry(String description, long timeMillis, int locationCount) {
+    }
+
+    /**
+     * 恢复到历史版本时发生变化的传送点。
+     *
+     * @param updated 被恢复或位置改变的传送点名称
+     * @param removed 被删除的传送点名称
+     */
+    public record Changes(List<String> updated, List<String> removed) {
+    }
+}
@@ -0,0 +1,439 @@
+package io.github.fps1024.tpmod.data;
+
+import io.github.fps1024.tpmod.util.Constants;
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 传送点修改的预写日志（只追加）。
+ * 每次添加或删除传送点都会带上递增的序号追加一条记录，写入在专用后台线程完成，不阻塞服务端主线程。
+ * 每次保存快照时日志会轮转：当前日志改名为 {@code .old}，上一轮的 {@code .old} 此时已被更早的快照覆盖，直接删除。
+ * 启动时先加载快照，再按序号重放两个日志文件中比快照更新的记录。
+ * 批量修改夹在开始和提交两条标记记录之间，重放时先缓存批内的记录，读到提交标记才一起生效；
+ * 崩溃时没写完的批次整个丢弃并从文件末尾截掉。
+ *
+ * @author FPS1024
+ */
+public final class LocationJournal {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    /**
+     * 记录类型：添加或覆盖传送点。
+     */
+    private static final byte OP_PUT = 1;
+
+    /**
+     * 记录类型：删除传送点。
+     */
+    private static final byte OP_REMOVE = 2;
+
+    /**
+     * 记录类型：清空所有传送点（替换式批量导入）。
+     */
+    private static final byte OP_CLEAR = 3;
+
+    /**
+     * 记录类型：批量修改开始，之后直到 {@link #OP_COMMIT} 的记录属于同一批。
+     */
+    private static final byte OP_BEGIN = 4;
+
+    /**
+     * 记录类型：批量修改结束，批内的记录此时才生效。
+     */
+    private static final byte OP_COMMIT = 5;
+
+    /**
+     * 当前日志文件。
+     */
+    private final Path currentFile;
+
+    /**
+     * 上一轮轮转下来的日志文件。
+     */
+    private final Path previousFile;
+
+    /**
+     * 执行所有文件写入的单线程执行器，保证记录按提交顺序落盘。
+     */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tpmod-journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 当前日志的输出流和通道，只在写线程中访问。
+     */
+    private FileChannel channel;
+    private DataOutputStream output;
+
+    /**
+     * 创建日志，文件在首次写入时打开。
+     *
+     * @param directory 日志所在目录
+     */
+    public LocationJournal(Path directory) {
+        this.currentFile = directory.resolve(Constants.JOURNAL_FILE_NAME);
+        this.previousFile = directory.resolve(Constants.JOURNAL_FILE_NAME + ".old");
+    }
+
+    /**
+     * 重放日志中序号大于快照序号的记录。只应在追加任何记录之前调用。
+     *
+     * @param snapshotSequence 快照包含的最后一个序号
+     * @param visitor          接收记录的回调
+     * @return 日志中出现的最大序号；没有记录时返回快照序号
+     */
+    public long replay(long snapshotSequence, Visitor visitor) {
+        long lastSequence = snapshotSequence;
+        for (Path file : new Path[]{previousFile, currentFile}) {
+            if (Files.exists(file)) {
+                lastSequence = Math.max(lastSequence, replayFile(file, snapshotSequence, visitor));
+            }
+        }
+        return lastSequence;
+    }
+
+    private long replayFile(Path file, long snapshotSequence, Visitor visitor) {
+        long lastSequence = snapshotSequence;
+        long validLength = 0;
+        // 未提交批次中的记录，不在批次中时为null
+        List<Pending> batch = null;
+        try (InputStream stream = Files.newInputStream(file);
+             CountingInputStream counter = new CountingInputStream(new BufferedInputStream(stream));
+             DataInputStream input = new DataInputStream(counter)) {
+            while (true) {
+                long sequence = input.readLong();
+                byte op = input.readByte();
+                String name = input.readUTF();
+                Pending record;
+                if (op == OP_PUT) {
+                    record = new Pending(op, name, new LocationData(
+                            LocationData.parseDimension(input.readUTF()),
+                            input.readLong()
+                    ));
+                } else if (op == OP_REMOVE || op == OP_CLEAR) {
+                    record = new Pending(op, name, null);
+                } else if (op == OP_BEGIN) {
+                    if (batch != null) {
+                        // 上一批写到一半时写入失败，没有提交标记
+                        LOGGER.warn("Discarding an uncommitted batch of {} records from {}.", batch.size(), file);
+                    }
+                    batch = new ArrayList<>();
+                    continue;
+                } else if (op == OP_COMMIT) {
+                    if (batch == null) {
+                        throw new IOException("Journal commit without a batch at sequence " + sequence);
+                    }
+                    if (sequence > snapshotSequence) {
+                        batch.forEach(pending -> pending.apply(visitor));
+                    }
+                    batch = null;
+                    lastSequence = Math.max(lastSequence, sequence);
+                    validLength = counter.count;
+                    continue;
+                } else {
+                    throw new IOException("Unknown journal operation " + op);
+                }
+
+                if (batch != null) {
+                    batch.add(record);
+                    continue;
+                }
+                if (sequence > snapshotSequence) {
+                    record.apply(visitor);
+                }
+                lastSequence = Math.max(lastSequence, sequence);
+                validLength = counter.count;
+            }
+        } catch (EOFException e) {
+            // 正常结束，或崩溃时最后一条记录或最后一个批次只写了一半
+        } catch (IOException e) {
+            LOGGER.error("Failed to replay location journal {}, later records are ignored.", file, e);
+        }
+
+        if (batch != null) {
+            LOGGER.warn("Discarding an uncommitted batch of {} records from {}.", batch.size(), file);
+        }
+        truncateTail(file, validLength);
+        return lastSequence;
+    }
+
+    /**
+     * 截掉日志末尾不完整的记录，避免之后追加的记录接在损坏的数据后面。
+     */
+    private static void truncateTail(Path file, long validLength) {
+        try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (truncate.size() > validLength) {
+                LOGGER.warn("Discarding {} bytes of incomplete records from {}.", truncate.size() - validLength, file);
+                truncate.truncate(validLength);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to truncate location journal {}.", file, e);
+        }
+    }
+
+    /**
+     * 异步追加一条添加记录。
+     *
+     * @param sequence 序号
+     * @param name     传送点名称
+     * @param location 位置数据
+     */
+    public void appendPut(long sequence, String name, LocationData location) {
+        String dimension = location.getDimension().location().toString();
+        long packedPos = location.getPackedPos();
+        writer.execute(() -> write(out -> {
+            out.writeLong(sequence);
+            out.writeByte(OP_PUT);
+            out.writeUTF(name);
+            out.writeUTF(dimension);
+            out.writeLong(packedPos);
+        }));
+    }
+
+    /**
+     * 异步追加一条删除记录。
+     *
+     * @param sequence 序号
+     * @param name     传送点名称
+     */
+    public void appendRemove(long sequence, String name) {
+        writer.execute(() -> write(out -> {
+            out.writeLong(sequence);
+            out.writeByte(OP_REMOVE);
+            out.writeUTF(name);
+        }));
+    }
+
+    /**
+     * 异步追加一次批量修改：替换时先写一条清空记录，再为每个传送点写一条添加记录，全部写完后只同步一次磁盘。
+     * 所有记录共用同一个序号并夹在开始和提交标记之间，重放时要么全部生效要么全部跳过。
+     *
+     * @param sequence  序号
+     * @param replace   是否先清空已有传送点
+     * @param names     传送点名称
+     * @param locations 与名称一一对应的位置数据
+     */
+    public void appendBatch(long sequence, boolean replace, List<String> names, List<LocationData> locations) {
+        writer.execute(() -> write(out -> {
+            writeMarker(out, sequence, OP_BEGIN);
+            if (replace) {
+                out.writeLong(sequence);
+                out.writeByte(OP_CLEAR);
+                out.writeUTF("");
+            }
+            writePuts(out, sequence, names, locations);
+            writeMarker(out, sequence, OP_COMMIT);
+        }));
+    }
+
+    /**
+     * 异步追加一组删除和添加记录（例如恢复到历史版本），全部写完后只同步一次磁盘。
+     * 与 {@link #appendBatch} 一样作为一个批次写入，重放时要么全部生效要么全部跳过。
+     *
+     * @param sequence  序号
+     * @param removed   删除的传送点名称
+     * @param names     添加或覆盖的传送点名称
+     * @param locations 与名称一一对应的位置数据
+     */
+    public void appendChanges(long sequence, List<String> removed, List<String> names, List<LocationData> locations) {
+        writer.execute(() -> write(out -> {
+            writeMarker(out, sequence, OP_BEGIN);
+            for (String name : removed) {
+                out.writeLong(sequence);
+                out.writeByte(OP_REMOVE);
+                out.writeUTF(name);
+            }
+            writePuts(out, sequence, names, locations);
+            writeMarker(out, sequence, OP_COMMIT);
+        }));
+    }
+
+    private static void writeMarker(DataOutputStream out, long sequence, byte op) throws IOException {
+        out.writeLong(sequence);
+        out.writeByte(op);
+        out.writeUTF("");
+    }
+
+    private static void writePuts(
+            DataOutputStream out,
+            long sequence,
+            List<String> names,
+            List<LocationData> locations
+    ) throws IOException {
+        for (int i = 0; i < names.size(); i++) {
+            LocationData location = locations.get(i);
+            out.writeLong(sequence);
+            out.writeByte(OP_PUT);
+            out.writeUTF(names.get(i));
+            out.writeUTF(location.getDimension().location().toString());
+            out.writeLong(location.getPackedPos());
+        }
+    }
+
+    /**
+     * 在保存快照时调用：异步轮转日志文件。
+     * 此前提交的记录都已包含在正在保存的快照中；被删除的 {@code .old} 只包含更早快照已覆盖的记录。
+     */
+    public void rotate() {
+        writer.execute(() -> {
+            try {
+                closeOutput();
+                Files.deleteIfExists(previousFile);
+                if (Files.exists(currentFile)) {
+                    Files.move(currentFile, previousFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                LOGGER.error("Failed to rotate location journal {}.", currentFile, e);
+            }
+        });
+    }
+
+    /**
+     * 等待所有记录写完并关闭日志。
+     */
+    public void close() {
+        writer.execute(this::closeOutput);
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOGGER.warn("Location journal did not finish writing in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(RecordWriter record) {
+        try {
+            if (output == null) {
+                Files.createDirectories(currentFile.getParent());
+                channel = FileChannel.open(
+                        currentFile,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND
+                );
+                output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            }
+            record.write(output);
+            output.flush();
+            channel.force(false);
+        } catch (IOException e) {
+            LOGGER.error("Failed to append to location journal {}.", currentFile, e);
+        }
+    }
+
+    private void closeOutput() {
+        if (output == null) {
+            return;
+        }
+        try {
+            output.close();
+        } catch (IOException e) {
+            LOGGER.error("Failed to close location journal {}.", currentFile, e);
+        }
+        output = null;
+        channel = null;
+    }
+
+    /**
+     * 统计已读取字节数的输入流，用于定位最后一条完整记录的结尾。
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                count++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * 重放时读到的一条记录，批次提交前暂存。
+     *
+     * @param op       记录类型
+     * @param name     传送点名称
+     * @param location 添加记录的位置数据，其他记录为null
+     */
+    private record Pending(byte op, String name, LocationData location) {
+        private void apply(Visitor visitor) {
+            switch (op) {
+                case OP_PUT -> visitor.put(name, location);
+                case OP_REMOVE -> visitor.remove(name);
+                default -> visitor.clear();
+            }
+        }
+    }
+
+    /**
+     * 写入一条记录的操作。
+     */
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream output) throws IOException;
+    }
+
+    /**
+     * 重放记录的接收者。
+     */
+    public interface Visitor {
+        /**
+         * 重放一条添加记录。
+         *
+         * @param name     传送点名称
+         * @param location 位置数据
+         */
+        void put(String name, LocationData location);
+
+        /**
+         * 重放一条删除记录。
+         *
+         * @param name 传送点名称
+         */
+        void remove(String name);
+
+        /**
+         * 重放一条清空记录。
+         */
+        void clear();
+    }
+}
@@ -0,0 +1,127 @@
+package io.github.fps1024.tpmod.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * 传送点名称的有序前缀索引。
+ * 名称按忽略大小写的顺序排列，同一前缀的名称在索引中连续，
+ * 前缀补全只需一次二分定位再顺序读取结果，开销与结果数量成正比，而非与传送点总数成正比。
+ *
+ * @author FPS1024
+ */
+public final class LocationNameIndex {
+    /**
+     * 忽略大小写排序，大小写不同的同名项再按自然顺序区分。
+     */
+    static final Comparator<String> ORDER =
+            String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    /**
+     * 有序名称集合。
+     */
+    private final NavigableSet<String> names = new TreeSet<>(ORDER);
+
+    /**
+     * 添加名称。
+     *
+     * @param name 传送点名称
+     */
+    public void add(String name) {
+        names.add(name);
+    }
+
+    /**
+     * 移除名称。
+     *
+     * @param name 传送点名称
+     */
+    public void remove(String name) {
+        names.remove(name);
+    }
+
+    /**
+     * 清空索引。
+     */
+    public void clear() {
+        names.clear();
+    }
+
+    /**
+     * 查找以指定前缀开头（忽略大小写）的名称。
+     *
+     * @param prefix 前缀
+     * @param limit  最多返回的数量
+     * @return 按顺序排列的匹配名称
+     */
+    public List<String> complete(String prefix, int limit) {
+        return page(prefix, 0, limit);
+    }
+
+    /**
+     * 按顺序读取以指定前缀开头（忽略大小写）的名称中的一段，用于分页。
+     *
+     * @param prefix 前缀，空字符串表示全部名称
+     * @param offset 跳过的数量
+     * @param limit  最多返回的数量
+     * @return 按顺序排列的匹配名称
+     */
+    public List<String> page(String prefix, int offset, int limit) {
+        List<String> result = new ArrayList<>(Math.min(limit, 16));
+        int skipped = 0;
+        for (String name : matching(prefix)) {
+            if (result.size() >= limit || !name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                break;
+            }
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 统计以指定前缀开头（忽略大小写）的名称数量。
+     *
+     * @param prefix 前缀，空字符串表示全部名称
+     * @return 匹配数量
+     */
+    public int count(String prefix) {
+        if (prefix.isEmpty()) {
+            return names.size();
+        }
+        int count = 0;
+        for (String name : matching(prefix)) {
+            if (!name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 从第一个可能匹配前缀的名称开始的有序视图。
+     * 匹配项连续排列，调用方在遇到第一个不匹配的名称时停止即可。
+     */
+    private NavigableSet<String> matching(String prefix) {
+        // 大写字母排在小写之前，以全大写前缀为下界可覆盖所有大小写变体
+        return names.tailSet(prefix.toUpperCase(Locale.ROOT), true);
+    }
+
+    /**
+     * 获取按顺序排列的全部名称（只读视图）。
+     *
+     * @return 有序名称集合
+     */
+    public NavigableSet<String> sortedNames() {
+        return Collections.unmodifiableNavigableSet(names);
+    }
+}
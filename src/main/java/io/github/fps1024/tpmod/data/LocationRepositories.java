@@ -0,0 +1,107 @@
+package io.github.fps1024.tpmod.data;
+
+import io.github.fps1024.tpmod.util.Constants;
+import com.mojang.logging.LogUtils;
+import net.minecraft.server.MinecraftServer;
+import org.slf4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 全局传送点仓库的持有者。
+ * 服务器启动时按后端名称创建仓库，停止时关闭并清空；
+ * 热路径上获取仓库只是一次字段读取。其他存储后端可通过 {@link #register(String, Function)} 接入。
+ *
+ * @author FPS1024
+ */
+public final class LocationRepositories {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    /**
+     * 已注册的存储后端，key为后端名称。
+     */
+    private static final Map<String, Function<MinecraftServer, LocationRepository>> BACKENDS =
+            new ConcurrentHashMap<>();
+
+    /**
+     * 当前服务器使用的仓库，服务器未运行时为null。
+     */
+    private static volatile LocationRepository current;
+
+    static {
+        register(Constants.STORAGE_BACKEND_SAVED_DATA, GlobalLocations::open);
+        register(Constants.STORAGE_BACKEND_MAPPED, MappedLocationStore::open);
+        register(Constants.STORAGE_BACKEND_SHARED, SharedLocationStore::open);
+    }
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private LocationRepositories() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * 注册一个存储后端。
+     *
+     * @param name    后端名称
+     * @param factory 根据服务器创建仓库的工厂
+     */
+    public static void register(String name, Function<MinecraftServer, LocationRepository> factory) {
+        BACKENDS.put(name, factory);
+    }
+
+    /**
+     * 服务器启动时创建仓库。未知的后端名称会回退到默认后端。
+     *
+     * @param server  服务器实例
+     * @param backend 后端名称
+     */
+    public static void open(MinecraftServer server, String backend) {
+        Function<MinecraftServer, LocationRepository> factory = BACKENDS.get(backend);
+        if (factory == null) {
+            LOGGER.warn("Unknown location storage backend '{}', using '{}'.",
+                    backend, Constants.STORAGE_BACKEND_SAVED_DATA);
+            factory = BACKENDS.get(Constants.STORAGE_BACKEND_SAVED_DATA);
+        }
+        current = factory.apply(server);
+        LOGGER.info("Location repository opened with backend '{}'.", backend);
+    }
+
+    /**
+     * 获取当前仓库。
+     *
+     * @return 当前仓库
+     * @throws IllegalStateException 如果服务器未运行
+     */
+    public static LocationRepository get() {
+        LocationRepository repository = current;
+        if (repository == null) {
+            throw new IllegalStateException("Location repository is not available, the server is not running.");
+        }
+        return repository;
+    }
+
+    /**
+     * 把当前仓库的修改写回磁盘，服务器未运行时什么也不做。
+     */
+    public static void flush() {
+        LocationRepository repository = current;
+        if (repository != null) {
+            repository.flush();
+        }
+    }
+
+    /**
+     * 服务器停止时关闭并清空当前仓库。
+     */
+    public static void close() {
+        LocationRepository repository = current;
+        current = null;
+        if (repository != null) {
+            repository.close();
+        }
+    }
+}
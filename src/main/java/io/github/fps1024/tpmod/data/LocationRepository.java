@@ -0,0 +1,230 @@
+package io.github.fps1024.tpmod.data;
+
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 全局传送点仓库接口。
+ * 服务层只通过此接口读写传送点，具体存储方式由各后端实现，
+ * 当前仓库由 {@link LocationRepositories} 随服务器生命周期创建和关闭。
+ *
+ * @author FPS1024
+ */
+public interface LocationRepository {
+    /**
+     * 添加或覆盖一个全局传送点。
+     *
+     * @param name     传送点名称
+     * @param location 位置数据
+     */
+    void addLocation(String name, LocationData location);
+
+    /**
+     * 获取指定名称的全局传送点。
+     *
+     * @param name 传送点名称
+     * @return 位置数据，若不存在返回null
+     */
+    LocationData getLocation(String name);
+
+    /**
+     * 删除指定名称的全局传送点。
+     *
+     * @param name 传送点名称
+     * @return 是否删除成功
+     */
+    boolean removeLocation(String name);
+
+    /**
+     * 获取当前数据的不可变快照。
+     * 只能在服务端主线程调用；数据自上次快照后有修改时才重新复制，同一 tick 内的多次调用共享同一份快照。
+     * 返回的快照可以交给任意线程读取。
+     *
+     * @return 不可变快照
+     */
+    LocationSnapshot snapshot();
+
+    /**
+     * 依次把每个全局传送点名称交给指定操作，不保证顺序。
+     * 用于向客户端发送全部名称；默认遍历当前快照，数据不常驻堆内的后端应直接遍历存储，避免复制快照。
+     *
+     * @param action 对每个名称执行的操作
+     */
+    default void forEachLocationName(Consumer<String> action) {
+        snapshot().names().forEach(action);
+    }
+
+    /**
+     * 查找以指定前缀开头的传送点名称，用于命令补全。
+     *
+     * @param prefix 前缀（忽略大小写）
+     * @param limit  最多返回的数量
+     * @return 有序的匹配名称
+     */
+    List<String> completeLocationNames(String prefix, int limit);
+
+    /**
+     * 按名称顺序读取以指定前缀开头的传送点名称中的一段。
+     *
+     * @param prefix 前缀（忽略大小写），空字符串表示全部
+     * @param offset 跳过的数量
+     * @param limit  最多返回的数量
+     * @return 有序的名称列表
+     */
+    List<String> listLocationNames(String prefix, int offset, int limit);
+
+    /**
+     * 统计以指定前缀开头的传送点数量。
+     *
+     * @param prefix 前缀（忽略大小写），空字符串表示全部
+     * @return 匹配数量
+     */
+    int countLocationNames(String prefix);
+
+    /**
+     * 获取数据版本号。每次添加或删除传送点后版本号都会变化。
+     *
+     * @return 版本号
+     */
+    long getVersion();
+
+    /**
+     * 查找指定维度中距离给定坐标最近的传送点。
+     *
+     * @param dimension 维度
+     * @param x         X坐标
+     * @param y         Y坐标
+     * @param z         Z坐标
+     * @return 最近的传送点，不存在时返回null
+     */
+    SpatialIndex.Match findNearest(ResourceKey<Level> dimension, double x, double y, double z);
+
+    /**
+     * 查找指定维度中给定半径内的传送点，按距离排序。
+     *
+     * @param dimension 维度
+     * @param x         X坐标
+     * @param y         Y坐标
+     * @param z         Z坐标
+     * @param radius    半径
+     * @return 匹配结果列表
+     */
+    List<SpatialIndex.Match> findWithin(ResourceKey<Level> dimension, double x, double y, double z, double radius);
+
+    /**
+     * 准备一次批量导入，在工作线程上调用。
+     * 实现可以在调用线程上基于当前数据构建导入后的完整数据，由 {@link BulkImport#commit()} 在主线程一次性替换；
+     * 默认实现只在调用线程上检查全部名称，提交时在主线程逐条写入。
+     *
+     * @param baseVersion 准备时的数据版本号（{@link #getVersion()}），提交时据此判断数据是否又被修改
+     * @param names       导入的传送点名称
+     * @param locations   与名称一一对应的位置数据
+     * @param replace     是否替换全部已有传送点（否则合并，同名覆盖）
+     * @return 待提交的导入
+     * @throws IllegalArgumentException 如果有名称无效（此时不做任何修改）
+     */
+    default BulkImport prepareImport(
+            long baseVersion,
+            List<String> names,
+            List<LocationData> locations,
+            boolean replace
+    ) {
+        // 在修改任何数据之前检查全部名称，避免替换导入删掉已有传送点后才中途失败
+        for (String name : names) {
+            if (!LocationData.isValidName(name)) {
+                throw new IllegalArgumentException("Invalid location name '" + name + "'");
+            }
+        }
+        return () -> {
+            if (replace) {
+                for (String name : snapshot().names()) {
+                    removeLocation(name);
+                }
+            }
+            for (int i = 0; i < names.size(); i++) {
+                addLocation(names.get(i), locations.get(i));
+            }
+            return true;
+        };
+    }
+
+    /**
+     * 列出保留的历史版本，第0项为当前版本。不保存历史的后端返回空列表。
+     *
+     * @return 从当前版本开始的版本信息
+     */
+    default List<LocationHistory.Entry> getHistory() {
+        return List.of();
+    }
+
+    /**
+     * 撤销最近的若干次修改，恢复到对应的历史版本；被撤销的版本从历史中移除。
+     *
+     * @param steps 撤销的修改次数
+     * @return 恢复时发生变化的传送点；历史中没有足够的版本或后端不保存历史时返回null
+     */
+    default LocationHistory.Changes undo(int steps) {
+        return null;
+    }
+
+    /**
+     * 设置接收外部修改（例如共享存储中其他服务器实例的修改）的监听器。
+     * 通过本接口方法完成的修改不会通知监听器；只在会被外部修改的后端中生效。
+     *
+     * @param listener 在服务端主线程回调的监听器
+     */
+    default void setChangeListener(ChangeListener listener) {
+    }
+
+    /**
+     * 主世界保存时调用，把尚未落盘的修改写回磁盘。自行管理文件的后端在这里确定一个一致的保存点。
+     */
+    default void flush() {
+    }
+
+    /**
+     * 服务器停止时关闭仓库，释放文件等资源。
+     */
+    default void close() {
+    }
+
+    /**
+     * 外部修改的监听器，所有方法在服务端主线程调用，调用时仓库中的数据已更新。
+     */
+    interface ChangeListener {
+        /**
+         * 一个传送点被外部添加或覆盖。
+         *
+         * @param name 传送点名称
+         */
+        void locationAdded(String name);
+
+        /**
+         * 一个传送点被外部删除。
+         *
+         * @param name 传送点名称
+         */
+        void locationRemoved(String name);
+
+        /**
+         * 全部传送点被外部整体替换。
+         */
+        void locationsReplaced();
+    }
+
+    /**
+     * 已准备好的批量导入。
+     */
+    @FunctionalInterface
+    interface BulkImport {
+        /**
+         * 在服务端主线程应用导入。
+         *
+         * @return 是否已应用；准备之后数据又被修改时返回false，调用方应基于新版本重新准备
+         */
+        boolean commit();
+    }
+}
@@ -0,0 +1,241 @@
+package io.github.fps1024.tpmod.data;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 全局传送点的不可变快照。
+ * 名称按 {@link LocationNameIndex} 的顺序存放在数组中，位置数据按相同下标存放，
+ * 按名称查找和前缀查询都通过二分定位完成。快照创建后不再改变，可以在任意线程读取而无需加锁，
+ * 适合交给补全、导出、异步保存等工作线程使用。
+ * 也可以直接包装一个 {@link PersistentLocationMap} 版本，创建只需 O(1)：按名称查找直接读取该版本，
+ * 有序名称数组在第一次按顺序读取时才排序生成。
+ *
+ * @author FPS1024
+ */
+public final class LocationSnapshot {
+    /**
+     * 空快照。
+     */
+    public static final LocationSnapshot EMPTY = new LocationSnapshot(new String[0], new LocationData[0], null, 0);
+
+    /**
+     * 有序名称。包装 {@link PersistentLocationMap} 时在第一次使用前为null，
+     * 多个线程同时生成只会得到相同的结果，由 volatile 保证发布后的数组对所有线程可见。
+     */
+    private volatile String[] names;
+
+    /**
+     * 与 {@link #names} 下标对应的位置数据；包装 {@link PersistentLocationMap} 时为null。
+     */
+    private final LocationData[] locations;
+
+    /**
+     * 包装的不可变版本；从数组创建时为null。
+     */
+    private final PersistentLocationMap map;
+    private final long version;
+
+    private LocationSnapshot(String[] names, LocationData[] locations, PersistentLocationMap map, long version) {
+        this.names = names;
+        this.locations = locations;
+        this.map = map;
+        this.version = version;
+    }
+
+    /**
+     * 从有序名称和查找函数复制出快照。
+     *
+     * @param sortedNames 按 {@link LocationNameIndex} 顺序排列的名称
+     * @param lookup      名称到位置数据的查找函数
+     * @param version     数据版本号
+     * @return 快照
+     */
+    static LocationSnapshot copyOf(Collection<String> sortedNames, Function<String, LocationData> lookup, long version) {
+        String[] names = sortedNames.toArray(new String[0]);
+        LocationData[] locations = new LocationData[names.length];
+        for (int i = 0; i < names.length; i++) {
+            locations[i] = lookup.apply(names[i]);
+        }
+        return new LocationSnapshot(names, locations, null, version);
+    }
+
+    /**
+     * 包装一个不可变版本，不复制数据。
+     *
+     * @param map     传送点的不可变版本
+     * @param version 数据版本号
+     * @return 快照
+     */
+    static LocationSnapshot of(PersistentLocationMap map, long version) {
+        return new LocationSnapshot(null, null, map, version);
+    }
+
+    /**
+     * 获取快照对应的数据版本号。
+     *
+     * @return 版本号
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 获取传送点数量。
+     *
+     * @return 传送点数量
+     */
+    public int size() {
+        return map != null ? map.size() : locations.length;
+    }
+
+    /**
+     * 获取指定名称的传送点。
+     *
+     * @param name 传送点名称
+     * @return 位置数据，若不存在返回null
+     */
+    public LocationData getLocation(String name) {
+        if (map != null) {
+            return map.get(name);
+        }
+        int index = Arrays.binarySearch(names, name, LocationNameIndex.ORDER);
+        return index >= 0 ? locations[index] : null;
+    }
+
+    /**
+     * 按名称顺序遍历所有传送点。
+     *
+     * @param consumer 接收名称和位置数据的回调
+     */
+    public void forEach(BiConsumer<String, LocationData> consumer) {
+        String[] names = sortedNames();
+        for (int i = 0; i < names.length; i++) {
+            consumer.accept(names[i], map != null ? map.get(names[i]) : locations[i]);
+        }
+    }
+
+    /**
+     * 获取按顺序排列的全部名称（只读集合）。
+     *
+     * @return 名称集合
+     */
+    public Set<String> names() {
+        String[] names = sortedNames();
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < names.length;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (next >= names.length) {
+                            throw new NoSuchElementException();
+                        }
+                        return names[next++];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return names.length;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String name && Arrays.binarySearch(names, name, LocationNameIndex.ORDER) >= 0;
+            }
+        };
+    }
+
+    /**
+     * 查找以指定前缀开头（忽略大小写）的名称。
+     *
+     * @param prefix 前缀
+     * @param limit  最多返回的数量
+     * @return 按顺序排列的匹配名称
+     */
+    public List<String> complete(String prefix, int limit) {
+        return page(prefix, 0, limit);
+    }
+
+    /**
+     * 按顺序读取以指定前缀开头（忽略大小写）的名称中的一段。
+     *
+     * @param prefix 前缀，空字符串表示全部名称
+     * @param offset 跳过的数量
+     * @param limit  最多返回的数量
+     * @return 按顺序排列的匹配名称
+     */
+    public List<String> page(String prefix, int offset, int limit) {
+        String[] names = sortedNames();
+        List<String> result = new ArrayList<>(Math.min(limit, 16));
+        for (int i = lowerBound(prefix) + offset; i < names.length && result.size() < limit; i++) {
+            if (!names[i].regionMatches(true, 0, prefix, 0, prefix.length())) {
+                break;
+            }
+            result.add(names[i]);
+        }
+        return result;
+    }
+
+    /**
+     * 统计以指定前缀开头（忽略大小写）的名称数量。
+     *
+     * @param prefix 前缀，空字符串表示全部名称
+     * @return 匹配数量
+     */
+    public int count(String prefix) {
+        if (prefix.isEmpty()) {
+            return size();
+        }
+        String[] names = sortedNames();
+        int count = 0;
+        for (int i = lowerBound(prefix); i < names.length; i++) {
+            if (!names[i].regionMatches(true, 0, prefix, 0, prefix.length())) {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 获取有序名称数组，包装的版本第一次使用时排序生成。
+     */
+    private String[] sortedNames() {
+        String[] sorted = names;
+        if (sorted == null) {
+            List<String> collected = new ArrayList<>(map.size());
+            map.forEach((name, location) -> collected.add(name));
+            collected.sort(LocationNameIndex.ORDER);
+            sorted = collected.toArray(new String[0]);
+            names = sorted;
+        }
+        return sorted;
+    }
+
+    /**
+     * 第一个不小于前缀全大写形式的下标，与 {@link LocationNameIndex} 的前缀定位方式一致。
+     */
+    private int lowerBound(String prefix) {
+        int index = Arrays.binarySearch(sortedNames(), prefix.toUpperCase(Locale.ROOT), LocationNameIndex.ORDER);
+        return index >= 0 ? index : -index - 1;
+    }
+}
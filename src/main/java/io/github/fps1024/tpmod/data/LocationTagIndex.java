@@ -0,0 +1,238 @@
+package io.github.fps1024.tpmod.data;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 传送点标签的倒排索引。
+ * 每个带标签的传送点名称分配一个紧凑的整数编号（删除后回收复用），每个标签对应一个按编号置位的 {@link BitSet}，
+ * 多个标签的交集只是几次按位与，开销与编号范围（带标签的传送点数量）成正比，与传送点总数无关。
+ * 标签统一转为小写，按字母顺序保存，便于前缀补全。
+ *
+ * @author FPS1024
+ */
+public final class LocationTagIndex {
+    /**
+     * 名称到编号的映射。
+     */
+    private final Object2IntMap<String> ids = new Object2IntOpenHashMap<>();
+
+    /**
+     * 编号到名称的映射，已回收的编号处为null。
+     */
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * 编号到该传送点标签集合的映射，与 {@link #names} 一一对应。
+     */
+    private final List<Set<String>> tagsById = new ArrayList<>();
+
+    /**
+     * 已回收、可复用的编号。
+     */
+    private final IntArrayList freeIds = new IntArrayList();
+
+    /**
+     * 标签到成员编号位图的映射，按标签排序。
+     */
+    private final NavigableMap<String, BitSet> members = new TreeMap<>();
+
+    /**
+     * 创建空索引。
+     */
+    public LocationTagIndex() {
+        ids.defaultReturnValue(-1);
+    }
+
+    /**
+     * 规范化标签：去掉首尾空白并转为小写。
+     *
+     * @param tag 标签
+     * @return 规范化后的标签
+     */
+    public static String normalize(String tag) {
+        return tag.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 给传送点添加标签。
+     *
+     * @param name 传送点名称
+     * @param tag  标签（已规范化）
+     * @return 标签此前是否不存在
+     */
+    public boolean add(String name, String tag) {
+        int id = ids.getInt(name);
+        if (id < 0) {
+            id = allocate(name);
+        }
+        if (!tagsById.get(id).add(tag)) {
+            return false;
+        }
+        members.computeIfAbsent(tag, key -> new BitSet()).set(id);
+        return true;
+    }
+
+    /**
+     * 移除传送点的一个标签。
+     *
+     * @param name 传送点名称
+     * @param tag  标签（已规范化）
+     * @return 是否移除成功
+     */
+    public boolean remove(String name, String tag) {
+        int id = ids.getInt(name);
+        if (id < 0 || !tagsById.get(id).remove(tag)) {
+            return false;
+        }
+        clearMember(tag, id);
+        if (tagsById.get(id).isEmpty()) {
+            release(name, id);
+        }
+        return true;
+    }
+
+    /**
+     * 移除传送点的全部标签。
+     *
+     * @param name 传送点名称
+     * @return 传送点此前是否带有标签
+     */
+    public boolean removeAll(String name) {
+        int id = ids.getInt(name);
+        if (id < 0) {
+            return false;
+        }
+        for (String tag : tagsById.get(id)) {
+            clearMember(tag, id);
+        }
+        tagsById.get(id).clear();
+        release(name, id);
+        return true;
+    }
+
+    /**
+     * 清空索引。
+     */
+    public void clear() {
+        ids.clear();
+        names.clear();
+        tagsById.clear();
+        freeIds.clear();
+        members.clear();
+    }
+
+    /**
+     * 获取传送点的标签。
+     *
+     * @param name 传送点名称
+     * @return 按字母顺序排列的标签（只读）
+     */
+    public Set<String> tagsOf(String name) {
+        int id = ids.getInt(name);
+        return id < 0 ? Collections.emptySet() : Collections.unmodifiableSet(tagsById.get(id));
+    }
+
+    /**
+     * 获取所有带标签的传送点名称（无序）。
+     *
+     * @return 名称列表
+     */
+    public List<String> taggedNames() {
+        return new ArrayList<>(ids.keySet());
+    }
+
+    /**
+     * 查找以指定前缀开头的标签。
+     *
+     * @param prefix 前缀（已规范化）
+     * @param limit  最多返回的数量
+     * @return 按字母顺序排列的标签
+     */
+    public List<String> completeTags(String prefix, int limit) {
+        List<String> result = new ArrayList<>(Math.min(limit, 16));
+        for (String tag : members.tailMap(prefix, true).keySet()) {
+            if (result.size() >= limit || !tag.startsWith(prefix)) {
+                break;
+            }
+            result.add(tag);
+        }
+        return result;
+    }
+
+    /**
+     * 查找同时带有全部指定标签、且名称以指定前缀开头（忽略大小写）的传送点。
+     * 从成员最少的标签开始按位与，再按名称顺序排序。
+     *
+     * @param tags   标签（已规范化），不能为空
+     * @param prefix 名称前缀，空字符串表示不过滤
+     * @return 按名称顺序排列的传送点名称
+     */
+    public List<String> query(Collection<String> tags, String prefix) {
+        List<BitSet> sets = new ArrayList<>(tags.size());
+        for (String tag : tags) {
+            BitSet set = members.get(tag);
+            if (set == null) {
+                return new ArrayList<>();
+            }
+            sets.add(set);
+        }
+        sets.sort(Comparator.comparingInt(BitSet::cardinality));
+
+        BitSet result = (BitSet) sets.get(0).clone();
+        for (int i = 1; i < sets.size() && !result.isEmpty(); i++) {
+            result.and(sets.get(i));
+        }
+
+        List<String> matches = new ArrayList<>(result.cardinality());
+        for (int id = result.nextSetBit(0); id >= 0; id = result.nextSetBit(id + 1)) {
+            String name = names.get(id);
+            if (name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                matches.add(name);
+            }
+        }
+        matches.sort(LocationNameIndex.ORDER);
+        return matches;
+    }
+
+    private int allocate(String name) {
+        int id;
+        if (freeIds.isEmpty()) {
+            id = names.size();
+            names.add(name);
+            tagsById.add(new TreeSet<>());
+        } else {
+            id = freeIds.popInt();
+            names.set(id, name);
+        }
+        ids.put(name, id);
+        return id;
+    }
+
+    private void release(String name, int id) {
+        ids.removeInt(name);
+        names.set(id, null);
+        freeIds.add(id);
+    }
+
+    private void clearMember(String tag, int id) {
+        BitSet set = members.get(tag);
+        set.clear(id);
+        if (set.isEmpty()) {
+            members.remove(tag);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package io.github.fps1024.tpmod.data;
+
+import io.github.fps1024.tpmod.TPMod;
+import io.github.fps1024.tpmod.util.Constants;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.datafix.DataFixTypes;
+import net.minecraft.world.level.saveddata.SavedData;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 全局传送点的标签数据。
+ * 标签与存储后端无关，单独保存在主世界数据存储的 {@code tpmod_tags} 中，查询由 {@link LocationTagIndex} 完成。
+ * 存档按标签分组写出：每个标签一个名称列表。
+ * 服务器启动时打开，停止时释放；所有方法只能在服务端主线程调用。
+ *
+ * @author FPS1024
+ */
+public final class LocationTags extends SavedData {
+    /**
+     * 当前服务器的标签数据，服务器未运行时为null。
+     */
+    private static LocationTags current;
+
+    /**
+     * 标签倒排索引。
+     */
+    private final LocationTagIndex index = new LocationTagIndex();
+
+    /**
+     * 数据版本号，每次修改递增，供列表缓存判断是否失效。
+     */
+    private long version;
+
+    /**
+     * 默认构造函数。
+     */
+    public LocationTags() {
+        super();
+    }
+
+    /**
+     * 从NBT数据加载标签。
+     *
+     * @param tag      存档NBT
+     * @param provider 数据修复器
+     * @return 加载后的LocationTags对象
+     */
+    public static LocationTags load(CompoundTag tag, HolderLookup.Provider provider) {
+        LocationTags savedData = new LocationTags();
+        CompoundTag tagsTag = tag.getCompound(Constants.NBT_KEY_TAGS);
+        for (String tagName : tagsTag.getAllKeys()) {
+            ListTag names = tagsTag.getList(tagName, Tag.TAG_STRING);
+            for (int i = 0; i < names.size(); i++) {
+                savedData.index.add(names.getString(i), tagName);
+            }
+        }
+        return savedData;
+    }
+
+    /**
+     * 按标签分组保存为NBT。
+     *
+     * @param compoundTag 目标NBT
+     * @param provider    数据修复器
+     * @return 保存后的NBT
+     */
+    @Override
+    public CompoundTag save(CompoundTag compoundTag, HolderLookup.Provider provider) {
+        CompoundTag tagsTag = new CompoundTag();
+        for (String name : index.taggedNames()) {
+            for (String tagName : index.tagsOf(name)) {
+                if (!tagsTag.contains(tagName, Tag.TAG_LIST)) {
+                    tagsTag.put(tagName, new ListTag());
+                }
+                tagsTag.getList(tagName, Tag.TAG_STRING).add(StringTag.valueOf(name));
+            }
+        }
+        compoundTag.put(Constants.NBT_KEY_TAGS, tagsTag);
+        return compoundTag;
+    }
+
+    /**
+     * 服务器启动时从主世界的数据存储中获取标签数据。
+     *
+     * @param server 服务器实例
+     */
+    public static void open(MinecraftServer server) {
+        current = server.overworld().getDataStorage().computeIfAbsent(
+                new SavedData.Factory<>(LocationTags::new, LocationTags::load, DataFixTypes.LEVEL),
+                TPMod.MODID + Constants.TAGS_DATA_SUFFIX
+        );
+    }
+
+    /**
+     * 获取当前服务器的标签数据。
+     *
+     * @return 标签数据
+     * @throws IllegalStateException 如果服务器未运行
+     */
+    public static LocationTags get() {
+        if (current == null) {
+            throw new IllegalStateException("Location tags are not available, the server is not running.");
+        }
+        return current;
+    }
+
+    /**
+     * 服务器停止时释放标签数据。
+     */
+    public static void close() {
+        current = null;
+    }
+
+    /**
+     * 给传送点添加标签。
+     *
+     * @param name 传送点名称
+     * @param tag  标签
+     * @return 标签此前是否不存在
+     */
+    public boolean addTag(String name, String tag) {
+        return changed(index.add(name, LocationTagIndex.normalize(tag)));
+    }
+
+    /**
+     * 移除传送点的一个标签。
+     *
+     * @param name 传送点名称
+     * @param tag  标签
+     * @return 是否移除成功
+     */
+    public boolean removeTag(String name, String tag) {
+        return changed(index.remove(name, LocationTagIndex.normalize(tag)));
+    }
+
+    /**
+     * 传送点被删除时移除其全部标签。
+     *
+     * @param name 传送点名称
+     */
+    public void removeLocation(String name) {
+        changed(index.removeAll(name));
+    }
+
+    /**
+     * 移除所有不满足条件的传送点的标签，用于替换式批量导入之后清理已不存在的传送点。
+     *
+     * @param exists 传送点是否仍然存在
+     */
+    public void retainLocations(Predicate<String> exists) {
+        for (String name : index.taggedNames()) {
+            if (!exists.test(name)) {
+                removeLocation(name);
+            }
+        }
+    }
+
+    /**
+     * 获取传送点的标签。
+     *
+     * @param name 传送点名称
+     * @return 按字母顺序排列的标签（只读）
+     */
+    public Set<String> getTags(String name) {
+        return index.tagsOf(name);
+    }
+
+    /**
+     * 查找以指定前缀开头的标签。
+     *
+     * @param prefix 前缀
+     * @param limit  最多返回的数量
+     * @return 按字母顺序排列的标签
+     */
+    public List<String> completeTags(String prefix, int limit) {
+        return index.completeTags(LocationTagIndex.normalize(prefix), limit);
+    }
+
+    /**
+     * 查找同时带有全部指定标签、且名称以指定前缀开头的传送点。
+     *
+     * @param tags   标签（已规范化），不能为空
+     * @param prefix 名称前缀（忽略大小写），空字符串表示不过滤
+     * @return 按名称顺序排列的传送点名称
+     */
+    public List<String> query(Collection<String> tags, String prefix) {
+        return index.query(tags, prefix);
+    }
+
+    /**
+     * 获取数据版本号。每次标签变化后版本号都会变化。
+     *
+     * @return 版本号
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    private boolean changed(boolean changed) {
+        if (changed) {
+            version++;
+            setDirty();
+        }
+        return changed;
+    }
+}
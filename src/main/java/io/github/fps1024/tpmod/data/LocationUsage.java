@@ -0,0 +1,305 @@
+package io.github.fps1024.tpmod.data;
+
+import io.github.fps1024.tpmod.TPMod;
+import io.github.fps1024.tpmod.util.Constants;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.DoubleTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.datafix.DataFixTypes;
+import net.minecraft.world.level.saveddata.SavedData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 全局传送点的使用频率统计，用于对补全结果排序。
+ * 计数按 {@link Constants#USAGE_HALF_LIFE_HOURS} 小时的半衰期指数衰减，但不需要定期衰减所有计数：
+ * 每次使用时加上随时间指数增长的权重 2^(t/半衰期)，所有计数始终处于同一尺度，可以直接比较；
+ * 权重过大时把所有计数和基准时间一起归一化。
+ * 另外维护按计数从高到低排列的前 {@link Constants#USAGE_RANKED_SIZE} 个传送点，
+ * 补全时只需扫描这个定长列表，每次按键增加的开销与传送点总数无关。
+ * 与标签一样单独保存在主世界数据存储中；所有方法只能在服务端主线程调用。
+ *
+ * @author FPS1024
+ */
+public final class LocationUsage extends SavedData {
+    /**
+     * 当前服务器的使用统计，服务器未运行时为null。
+     */
+    private static LocationUsage current;
+
+    /**
+     * 每个传送点的计数（按基准时间的尺度）。
+     */
+    private final Object2DoubleMap<String> scores = new Object2DoubleOpenHashMap<>();
+
+    /**
+     * 计数最高的传送点，按计数从高到低排列。
+     */
+    private final List<String> ranked = new ArrayList<>(Constants.USAGE_RANKED_SIZE + 1);
+
+    /**
+     * 排名列表的修改次数，不保存。同步到客户端时据此判断排名是否变化。
+     */
+    private long rankVersion;
+
+    /**
+     * 计数尺度的基准时间（毫秒），此时一次使用的权重为1。
+     */
+    private long epochMillis = System.currentTimeMillis();
+
+    /**
+     * 默认构造函数。
+     */
+    public LocationUsage() {
+        super();
+    }
+
+    /**
+     * 从NBT数据加载使用统计。
+     *
+     * @param tag      存档NBT
+     * @param provider 数据修复器
+     * @return 加载后的LocationUsage对象
+     */
+    public static LocationUsage load(CompoundTag tag, HolderLookup.Provider provider) {
+        LocationUsage savedData = new LocationUsage();
+        if (tag.contains(Constants.NBT_KEY_USAGE_EPOCH, Tag.TAG_LONG)) {
+            savedData.epochMillis = tag.getLong(Constants.NBT_KEY_USAGE_EPOCH);
+        }
+        ListTag names = tag.getList(Constants.NBT_KEY_NAMES, Tag.TAG_STRING);
+        ListTag scores = tag.getList(Constants.NBT_KEY_USAGE_SCORES, Tag.TAG_DOUBLE);
+        int count = Math.min(names.size(), scores.size());
+        for (int i = 0; i < count; i++) {
+            String name = names.getString(i);
+            savedData.scores.put(name, scores.getDouble(i));
+            savedData.updateRank(name);
+        }
+        return savedData;
+    }
+
+    /**
+     * 保存为NBT：名称列表和计数列表按下标对应。
+     *
+     * @param compoundTag 目标NBT
+     * @param provider    数据修复器
+     * @return 保存后的NBT
+     */
+    @Override
+    public CompoundTag save(CompoundTag compoundTag, HolderLookup.Provider provider) {
+        ListTag names = new ListTag();
+        ListTag scoreList = new ListTag();
+        for (Object2DoubleMap.Entry<String> entry : scores.object2DoubleEntrySet()) {
+            names.add(StringTag.valueOf(entry.getKey()));
+            scoreList.add(DoubleTag.valueOf(entry.getDoubleValue()));
+        }
+        compoundTag.putLong(Constants.NBT_KEY_USAGE_EPOCH, epochMillis);
+        compoundTag.put(Constants.NBT_KEY_NAMES, names);
+        compoundTag.put(Constants.NBT_KEY_USAGE_SCORES, scoreList);
+        return compoundTag;
+    }
+
+    /**
+     * 服务器启动时从主世界的数据存储中获取使用统计。
+     *
+     * @param server 服务器实例
+     */
+    public static void open(MinecraftServer server) {
+        current = server.overworld().getDataStorage().computeIfAbsent(
+                new SavedData.Factory<>(LocationUsage::new, LocationUsage::load, DataFixTypes.LEVEL),
+                TPMod.MODID + Constants.USAGE_DATA_SUFFIX
+        );
+    }
+
+    /**
+     * 获取当前服务器的使用统计。
+     *
+     * @return 使用统计
+     * @throws IllegalStateException 如果服务器未运行
+     */
+    public static LocationUsage get() {
+        if (current == null) {
+            throw new IllegalStateException("Location usage is not available, the server is not running.");
+        }
+        return current;
+    }
+
+    /**
+     * 服务器停止时释放使用统计。
+     */
+    public static void close() {
+        current = null;
+    }
+
+    /**
+     * 记录一次对传送点的使用。
+     *
+     * @param name 传送点名称
+     */
+    public void record(String name) {
+        scores.mergeDouble(name, currentWeight(), Double::sum);
+        updateRank(name);
+        setDirty();
+    }
+
+    /**
+     * 获取传送点的计数，换算为当前时刻的尺度（此刻的一次使用记为1），与基准时间无关。
+     *
+     * @param name 传送点名称
+     * @return 计数，没有统计时为0
+     */
+    public double getUsage(String name) {
+        return scores.getDouble(name) / currentWeight();
+    }
+
+    /**
+     * 恢复 {@link #getUsage(String)} 取得的计数，用于撤销删除。
+     *
+     * @param name  传送点名称
+     * @param usage 当前时刻尺度的计数
+     */
+    public void restore(String name, double usage) {
+        if (usage <= 0) {
+            return;
+        }
+        scores.put(name, usage * currentWeight());
+        updateRank(name);
+        setDirty();
+    }
+
+    /**
+     * 传送点被删除时移除其统计。
+     *
+     * @param name 传送点名称
+     */
+    public void remove(String name) {
+        if (scores.containsKey(name)) {
+            scores.removeDouble(name);
+            if (ranked.remove(name)) {
+                rankVersion++;
+            }
+            setDirty();
+        }
+    }
+
+    /**
+     * 移除所有不满足条件的传送点的统计，用于替换式批量导入之后清理已不存在的传送点。
+     *
+     * @param exists 传送点是否仍然存在
+     */
+    public void retainLocations(Predicate<String> exists) {
+        if (scores.keySet().removeIf(name -> !exists.test(name))) {
+            if (ranked.removeIf(name -> !scores.containsKey(name))) {
+                rankVersion++;
+            }
+            setDirty();
+        }
+    }
+
+    /**
+     * 按使用频率从高到低查找以指定前缀开头（忽略大小写）的传送点，只在最常用的传送点中查找。
+     *
+     * @param prefix 前缀
+     * @param limit  最多返回的数量
+     * @return 按使用频率排列的名称
+     */
+    public List<String> completeRanked(String prefix, int limit) {
+        List<String> result = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (String name : ranked) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取计数最高的传送点，按计数从高到低排列，最多 {@link Constants#USAGE_RANKED_SIZE} 个。
+     *
+     * @return 排名列表的副本
+     */
+    public List<String> ranked() {
+        return List.copyOf(ranked);
+    }
+
+    /**
+     * 获取排名列表的修改次数，排名或成员变化时增加。
+     *
+     * @return 修改次数
+     */
+    public long getRankVersion() {
+        return rankVersion;
+    }
+
+    /**
+     * 计数变化后调整其在排名列表中的位置。计数只会增加，因此只需向前移动。
+     */
+    private void updateRank(String name) {
+        double score = scores.getDouble(name);
+        int index = ranked.indexOf(name);
+        int previousIndex = index;
+        if (index < 0) {
+            if (ranked.size() >= Constants.USAGE_RANKED_SIZE
+                    && score <= scores.getDouble(ranked.get(ranked.size() - 1))) {
+                return;
+            }
+            ranked.add(name);
+            index = ranked.size() - 1;
+        }
+        while (index > 0 && scores.getDouble(ranked.get(index - 1)) < score) {
+            ranked.set(index, ranked.get(index - 1));
+            index--;
+        }
+        ranked.set(index, name);
+        if (ranked.size() > Constants.USAGE_RANKED_SIZE) {
+            ranked.remove(ranked.size() - 1);
+        }
+        if (index != previousIndex) {
+            rankVersion++;
+        }
+    }
+
+    /**
+     * 当前时刻一次使用的权重 2^(t/半衰期)，权重过大时先归一化。
+     */
+    private double currentWeight() {
+        double halfLives = (System.currentTimeMillis() - epochMillis) / (Constants.USAGE_HALF_LIFE_HOURS * 3_600_000.0);
+        if (halfLives > Constants.USAGE_RENORMALIZE_HALF_LIVES) {
+            renormalize(halfLives);
+            halfLives = 0;
+        }
+        return Math.pow(2, halfLives);
+    }
+
+    /**
+     * 把基准时间移到当前，所有计数按经过的半衰期数缩小，并丢弃已衰减到可以忽略的计数。
+     */
+    private void renormalize(double halfLives) {
+        double factor = Math.pow(2, -halfLives);
+        ObjectIterator<Object2DoubleMap.Entry<String>> iterator = scores.object2DoubleEntrySet().iterator();
+        while (iterator.hasNext()) {
+            Object2DoubleMap.Entry<String> entry = iterator.next();
+            double score = entry.getDoubleValue() * factor;
+            if (score < Constants.USAGE_FORGET_SCORE) {
+                iterator.remove();
+            } else {
+                entry.setValue(score);
+            }
+        }
+        if (ranked.removeIf(name -> !scores.containsKey(name))) {
+            rankVersion++;
+        }
+        epochMillis = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,756 @@
+package io.github.fps1024.tpmod.data;
+
+import io.github.fps1024.tpmod.util.Constants;
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.IntAVLTreeSet;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntBidirectionalIterator;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.storage.LevelResource;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * 基于内存映射文件的传送点存储后端。
+ * 传送点保存为定长记录（{@value #RECORD_SIZE} 字节），名称索引是同样映射到文件的开放寻址哈希表，
+ * 记录只在查找时从映射区读取。删除的记录进入空闲链表复用。
+ * 前缀补全和列表使用按名称排序的记录号集合，空间查询使用按记录号分桶的 {@link RecordGrid}。
+ * 两者在第一次用到时才扫描一遍记录文件建立，之后随修改维护，堆上每个传送点占几个 int，名称和坐标仍从映射区读取，
+ * 因此打开存储不随传送点数量变慢，但用过补全或空间查询后堆占用仍与数量成正比。
+ * 客户端同步通过 {@link #forEachLocationName} 直接遍历记录文件，不需要复制快照。
+ * 映射区在主世界保存和关闭时写回磁盘（{@link #flush()}），异常退出后打开时会从记录文件重建名称索引。
+ * 只能在服务端主线程使用。
+ *
+ * @author FPS1024
+ */
+public final class MappedLocationStore implements LocationRepository {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    /**
+     * 文件魔数与格式版本。
+     */
+    private static final int RECORDS_MAGIC = 0x54504D52;
+    private static final int INDEX_MAGIC = 0x54504D49;
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * 记录文件头：魔数、版本、容量、已使用的最高记录号、存活数量、空闲链表头、保存序号。
+     */
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_CAPACITY = 8;
+    private static final int HEADER_HIGH_WATER = 12;
+    private static final int HEADER_LIVE = 16;
+    private static final int HEADER_FREE_HEAD = 20;
+    private static final int HEADER_SEQUENCE = 24;
+
+    /**
+     * 单条记录：状态、名称长度、维度编号、空闲链表指针、打包坐标、名称字节。
+     */
+    private static final int RECORD_SIZE = 64;
+    private static final int RECORD_STATE = 0;
+    private static final int RECORD_NAME_LENGTH = 1;
+    private static final int RECORD_DIMENSION = 2;
+    private static final int RECORD_NEXT_FREE = 4;
+    private static final int RECORD_POS = 8;
+    private static final int RECORD_NAME = 16;
+    private static final byte STATE_FREE = 0;
+    private static final byte STATE_LIVE = 1;
+
+    /**
+     * 名称的最大 UTF-8 字节数，与 {@link Constants#MAX_NAME_LENGTH} 一致。
+     */
+    private static final int MAX_NAME_BYTES = RECORD_SIZE - RECORD_NAME;
+
+    /**
+     * 索引文件头：魔数、槽位数量、非空槽位数量（含墓碑）、保存序号。槽位值为记录号+1，0为空，-1为墓碑。
+     * 两个文件的保存序号只在 {@link #flush()} 把两者都写回磁盘后才相同；
+     * 之后第一次修改前先把索引的序号改为 {@link #SEQUENCE_DIRTY} 并落盘，因此打开时序号不同说明上次没有正常保存。
+     */
+    private static final int INDEX_HEADER_SIZE = 16;
+    private static final int INDEX_MAGIC_OFFSET = 0;
+    private static final int INDEX_CAPACITY = 4;
+    private static final int INDEX_USED = 8;
+    private static final int INDEX_SEQUENCE = 12;
+    private static final int SEQUENCE_DIRTY = -1;
+    private static final int SLOT_EMPTY = 0;
+    private static final int SLOT_TOMBSTONE = -1;
+
+    /**
+     * 排序集合中代表 {@link #probe} 的伪记录号。
+     */
+    private static final int PROBE = -1;
+
+    private static final int INITIAL_RECORD_CAPACITY = 1024;
+    private static final int INITIAL_INDEX_CAPACITY = 2048;
+
+    private final Path recordsFile;
+    private final Path indexFile;
+    private final Path dimensionsFile;
+
+    private FileChannel recordsChannel;
+    private MappedByteBuffer records;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+
+    /**
+     * 维度调色板，记录中保存的是下标。维度数量很少，常驻堆内。
+     */
+    private final List<ResourceKey<Level>> dimensions = new ArrayList<>();
+    private final Reference2IntMap<ResourceKey<Level>> dimensionIds = new Reference2IntOpenHashMap<>();
+
+    /**
+     * 按 {@link #compareRecords} 排序的存活记录号，第一次前缀查询时由 {@link #sortedRecords()} 建立，之前为null。
+     */
+    private final IntComparator recordOrder = this::compareRecords;
+    private IntAVLTreeSet sortedRecords;
+
+    /**
+     * 存活记录的空间索引，第一次空间查询时由 {@link #grid()} 建立，之前为null。
+     */
+    private RecordGrid grid;
+
+    /**
+     * 前缀查询时代表查询边界的名称字节，在排序中以记录号 {@link #PROBE} 出现。
+     */
+    private byte[] probe = new byte[0];
+
+    /**
+     * 磁盘上的两个文件是否处于同一个保存点（保存序号相同）。
+     */
+    private boolean clean;
+
+    private long version;
+
+    /**
+     * 最近发布的不可变快照。
+     */
+    private volatile LocationSnapshot snapshot = LocationSnapshot.EMPTY;
+
+    /**
+     * 打开（或创建）指定目录下的存储文件。
+     *
+     * @param directory 存储目录
+     * @throws IOException 如果文件无法打开
+     */
+    public MappedLocationStore(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.recordsFile = directory.resolve("records.dat");
+        this.indexFile = directory.resolve("index.dat");
+        this.dimensionsFile = directory.resolve("dimensions.txt");
+
+        loadDimensions();
+        openRecords();
+        openIndex();
+    }
+
+    /**
+     * 在世界存档的 data 目录下打开存储，由 {@link LocationRepositories} 在服务器启动时调用。
+     *
+     * @param server 服务器实例
+     * @return 存储实例
+     */
+    public static MappedLocationStore open(MinecraftServer server) {
+        Path directory = server.getWorldPath(LevelResource.ROOT).resolve("data").resolve(Constants.MAPPED_STORE_DIRECTORY);
+        try {
+            return new MappedLocationStore(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open mapped location store in " + directory, e);
+        }
+    }
+
+    private void loadDimensions() throws IOException {
+        if (Files.exists(dimensionsFile)) {
+            for (String line : Files.readAllLines(dimensionsFile, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    ResourceKey<Level> dimension = LocationData.parseDimension(line.trim());
+                    dimensionIds.put(dimension, dimensions.size());
+                    dimensions.add(dimension);
+                }
+            }
+        }
+    }
+
+    private void openRecords() throws IOException {
+        boolean created = !Files.exists(recordsFile);
+        recordsChannel = FileChannel.open(recordsFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (created || recordsChannel.size() < HEADER_SIZE) {
+            records = mapRecords(INITIAL_RECORD_CAPACITY);
+            records.putInt(HEADER_MAGIC, RECORDS_MAGIC);
+            records.putInt(HEADER_VERSION, FORMAT_VERSION);
+            records.putInt(HEADER_CAPACITY, INITIAL_RECORD_CAPACITY);
+            records.putInt(HEADER_HIGH_WATER, 0);
+            records.putInt(HEADER_LIVE, 0);
+            records.putInt(HEADER_FREE_HEAD, -1);
+            records.putInt(HEADER_SEQUENCE, 0);
+            return;
+        }
+
+        records = recordsChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        if (records.getInt(HEADER_MAGIC) != RECORDS_MAGIC || records.getInt(HEADER_VERSION) != FORMAT_VERSION) {
+            throw new IOException("Unsupported mapped location store format in " + recordsFile);
+        }
+        records = mapRecords(records.getInt(HEADER_CAPACITY));
+    }
+
+    private MappedByteBuffer mapRecords(int capacity) throws IOException {
+        return recordsChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+    }
+
+    private void openIndex() throws IOException {
+        indexChannel = FileChannel.open(indexFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (indexChannel.size() >= INDEX_HEADER_SIZE) {
+            MappedByteBuffer header = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE);
+            int capacity = header.getInt(INDEX_CAPACITY);
+            if (header.getInt(INDEX_MAGIC_OFFSET) == INDEX_MAGIC && Integer.bitCount(capacity) == 1
+                    && header.getInt(INDEX_SEQUENCE) == records.getInt(HEADER_SEQUENCE)) {
+                index = mapIndex(capacity);
+                clean = true;
+                return;
+            }
+            LOGGER.warn("Mapped location store {} was not saved cleanly, rebuilding the index from records.", indexFile);
+        }
+
+        recoverRecords();
+        rebuildIndex(Math.max(INITIAL_INDEX_CAPACITY, HashCommon.nextPowerOfTwo(liveCount() * 4)));
+    }
+
+    /**
+     * 重建索引前按记录状态重新计算存活数量和空闲链表，上次没有正常保存时头部的计数可能落后于已写回的记录。
+     */
+    private void recoverRecords() {
+        int live = 0;
+        int freeHead = -1;
+        for (int record = records.getInt(HEADER_HIGH_WATER) - 1; record >= 0; record--) {
+            int offset = recordOffset(record);
+            if (records.get(offset + RECORD_STATE) == STATE_LIVE) {
+                live++;
+            } else {
+                records.putInt(offset + RECORD_NEXT_FREE, freeHead);
+                freeHead = record;
+            }
+        }
+        records.putInt(HEADER_LIVE, live);
+        records.putInt(HEADER_FREE_HEAD, freeHead);
+    }
+
+    private MappedByteBuffer mapIndex(int capacity) throws IOException {
+        return indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE + (long) capacity * Integer.BYTES);
+    }
+
+    /**
+     * 以新的槽位数量重建名称索引，只扫描记录文件，不读取旧索引。
+     */
+    private void rebuildIndex(int capacity) throws IOException {
+        index = mapIndex(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            index.putInt(slotOffset(slot), SLOT_EMPTY);
+        }
+        index.putInt(INDEX_MAGIC_OFFSET, INDEX_MAGIC);
+        index.putInt(INDEX_CAPACITY, capacity);
+        index.putInt(INDEX_USED, 0);
+        index.putInt(INDEX_SEQUENCE, SEQUENCE_DIRTY);
+        clean = false;
+
+        int highWater = records.getInt(HEADER_HIGH_WATER);
+        for (int record = 0; record < highWater; record++) {
+            int offset = recordOffset(record);
+            if (records.get(offset + RECORD_STATE) == STATE_LIVE) {
+                insertSlot(readNameBytes(offset), record);
+            }
+        }
+    }
+
+    private IntAVLTreeSet sortedRecords() {
+        if (sortedRecords == null) {
+            IntAVLTreeSet sorted = new IntAVLTreeSet(recordOrder);
+            int highWater = records.getInt(HEADER_HIGH_WATER);
+            for (int record = 0; record < highWater; record++) {
+                if (records.get(recordOffset(record) + RECORD_STATE) == STATE_LIVE) {
+                    sorted.add(record);
+                }
+            }
+            sortedRecords = sorted;
+        }
+        return sortedRecords;
+    }
+
+    private RecordGrid grid() {
+        if (grid == null) {
+            RecordGrid built = new RecordGrid();
+            int highWater = records.getInt(HEADER_HIGH_WATER);
+            for (int record = 0; record < highWater; record++) {
+                int offset = recordOffset(record);
+                if (records.get(offset + RECORD_STATE) == STATE_LIVE) {
+                    built.add(records.getShort(offset + RECORD_DIMENSION), records.getLong(offset + RECORD_POS), record);
+                }
+            }
+            grid = built;
+        }
+        return grid;
+    }
+
+    @Override
+    public void addLocation(String name, LocationData location) {
+        byte[] nameBytes = encodeName(name);
+        markDirty();
+        int dimensionId = dimensionId(location.getDimension());
+        int slot = findSlot(nameBytes);
+
+        int record;
+        if (slot >= 0) {
+            record = index.getInt(slotOffset(slot)) - 1;
+            int offset = recordOffset(record);
+            if (grid != null) {
+                grid.remove(records.getShort(offset + RECORD_DIMENSION), records.getLong(offset + RECORD_POS), record);
+            }
+        } else {
+            record = allocateRecord();
+            int offset = recordOffset(record);
+            records.put(offset + RECORD_STATE, STATE_LIVE);
+            records.put(offset + RECORD_NAME_LENGTH, (byte) nameBytes.length);
+            records.put(offset + RECORD_NAME, nameBytes);
+            records.putInt(HEADER_LIVE, records.getInt(HEADER_LIVE) + 1);
+            insertSlot(nameBytes, record);
+            ensureIndexCapacity();
+            if (sortedRecords != null) {
+                sortedRecords.add(record);
+            }
+        }
+
+        int offset = recordOffset(record);
+        records.putShort(offset + RECORD_DIMENSION, (short) dimensionId);
+        records.putLong(offset + RECORD_POS, location.getPackedPos());
+        if (grid != null) {
+            grid.add(dimensionId, location.getPackedPos(), record);
+        }
+        version++;
+    }
+
+    @Override
+    public LocationData getLocation(String name) {
+        int slot = findSlot(encodeName(name));
+        if (slot < 0) {
+            return null;
+        }
+        return readLocation(recordOffset(index.getInt(slotOffset(slot)) - 1));
+    }
+
+    @Override
+    public boolean removeLocation(String name) {
+        int slot = findSlot(encodeName(name));
+        if (slot < 0) {
+            return false;
+        }
+
+        markDirty();
+        int record = index.getInt(slotOffset(slot)) - 1;
+        int offset = recordOffset(record);
+        if (sortedRecords != null) {
+            sortedRecords.remove(record);
+        }
+        if (grid != null) {
+            grid.remove(records.getShort(offset + RECORD_DIMENSION), records.getLong(offset + RECORD_POS), record);
+        }
+        records.put(offset + RECORD_STATE, STATE_FREE);
+        records.putInt(offset + RECORD_NEXT_FREE, records.getInt(HEADER_FREE_HEAD));
+        records.putInt(HEADER_FREE_HEAD, record);
+        records.putInt(HEADER_LIVE, records.getInt(HEADER_LIVE) - 1);
+        index.putInt(slotOffset(slot), SLOT_TOMBSTONE);
+        version++;
+        return true;
+    }
+
+    /**
+     * 从映射区复制出不可变快照，有修改时才重新复制。快照在堆上保存全部传送点，只在导出和导入等场景按需请求。
+     */
+    @Override
+    public LocationSnapshot snapshot() {
+        LocationSnapshot current = snapshot;
+        if (current.getVersion() != version || current.size() != liveCount()) {
+            List<String> names = new ArrayList<>(liveCount());
+            forEachLocationName(names::add);
+            names.sort(LocationNameIndex.ORDER);
+            current = LocationSnapshot.copyOf(names, this::getLocation, version);
+            snapshot = current;
+        }
+        return current;
+    }
+
+    /**
+     * 按记录号顺序遍历记录文件，不建立排序索引。
+     */
+    @Override
+    public void forEachLocationName(Consumer<String> action) {
+        int highWater = records.getInt(HEADER_HIGH_WATER);
+        for (int record = 0; record < highWater; record++) {
+            int offset = recordOffset(record);
+            if (records.get(offset + RECORD_STATE) == STATE_LIVE) {
+                action.accept(readName(offset));
+            }
+        }
+    }
+
+    @Override
+    public List<String> completeLocationNames(String prefix, int limit) {
+        return listLocationNames(prefix, 0, limit);
+    }
+
+    @Override
+    public List<String> listLocationNames(String prefix, int offset, int limit) {
+        List<String> matches = new ArrayList<>(Math.min(limit, 64));
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        IntBidirectionalIterator iterator = matching(prefixBytes);
+        int skipped = 0;
+        while (iterator.hasNext() && matches.size() < limit) {
+            int record = iterator.nextInt();
+            if (!startsWithIgnoreCase(record, prefixBytes)) {
+                break;
+            }
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                matches.add(readName(recordOffset(record)));
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public int countLocationNames(String prefix) {
+        if (prefix.isEmpty()) {
+            return liveCount();
+        }
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        IntBidirectionalIterator iterator = matching(prefixBytes);
+        int count = 0;
+        while (iterator.hasNext() && startsWithIgnoreCase(iterator.nextInt(), prefixBytes)) {
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public SpatialIndex.Match findNearest(ResourceKey<Level> dimension, double x, double y, double z) {
+        if (!dimensionIds.containsKey(dimension)) {
+            return null;
+        }
+        int record = grid().nearest(dimensionIds.getInt(dimension), x, y, z, this::packedPos);
+        if (record < 0) {
+            return null;
+        }
+        int offset = recordOffset(record);
+        return new SpatialIndex.Match(readName(offset), readLocation(offset),
+                Math.sqrt(RecordGrid.distanceSq(packedPos(record), x, y, z)));
+    }
+
+    @Override
+    public List<SpatialIndex.Match> findWithin(ResourceKey<Level> dimension, double x, double y, double z, double radius) {
+        List<SpatialIndex.Match> matches = new ArrayList<>();
+        if (!dimensionIds.containsKey(dimension)) {
+            return matches;
+        }
+
+        IntList found = new IntArrayList();
+        grid().within(dimensionIds.getInt(dimension), x, y, z, radius, this::packedPos, found);
+        for (int i = 0; i < found.size(); i++) {
+            int record = found.getInt(i);
+            int offset = recordOffset(record);
+            matches.add(new SpatialIndex.Match(readName(offset), readLocation(offset),
+                    Math.sqrt(RecordGrid.distanceSq(packedPos(record), x, y, z))));
+        }
+
+        matches.sort(Comparator.comparingDouble(SpatialIndex.Match::getDistance));
+        return matches;
+    }
+
+    /**
+     * 先写回记录文件再写回索引文件，然后让两者的保存序号相同，作为下次打开时可信任索引的保存点。
+     */
+    @Override
+    public void flush() {
+        if (clean) {
+            return;
+        }
+        int sequence = records.getInt(HEADER_SEQUENCE) + 1;
+        records.putInt(HEADER_SEQUENCE, sequence);
+        records.force();
+        index.putInt(INDEX_SEQUENCE, sequence);
+        index.force();
+        clean = true;
+    }
+
+    /**
+     * 将映射区写回磁盘并关闭文件。
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+            recordsChannel.close();
+            indexChannel.close();
+        } catch (IOException e) {
+            LOGGER.error("Failed to close mapped location store {}.", recordsFile, e);
+        }
+    }
+
+    /**
+     * 返回从前缀的下界开始的有序记录号迭代器，调用方遇到第一个不匹配前缀的记录时停止。
+     * 下界取前缀的大写形式：在忽略大小写相等的名称中，大写字节最小。
+     */
+    private IntBidirectionalIterator matching(byte[] prefixBytes) {
+        byte[] bound = prefixBytes.clone();
+        for (int i = 0; i < bound.length; i++) {
+            if (bound[i] >= 'a' && bound[i] <= 'z') {
+                bound[i] -= 'a' - 'A';
+            }
+        }
+        probe = bound;
+        return sortedRecords().tailSet(PROBE).iterator();
+    }
+
+    private boolean startsWithIgnoreCase(int record, byte[] prefixBytes) {
+        if (nameLength(record) < prefixBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < prefixBytes.length; i++) {
+            if (foldCase(nameByte(record, i)) != foldCase(prefixBytes[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 比较两条记录的名称：先按 ASCII 忽略大小写比较，相等时再按原始字节比较。
+     * 对 ASCII 名称与 {@link LocationNameIndex#ORDER} 的顺序一致。
+     */
+    private int compareRecords(int a, int b) {
+        int lengthA = nameLength(a);
+        int lengthB = nameLength(b);
+        int common = Math.min(lengthA, lengthB);
+        for (int i = 0; i < common; i++) {
+            int diff = foldCase(nameByte(a, i)) - foldCase(nameByte(b, i));
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        if (lengthA != lengthB) {
+            return lengthA - lengthB;
+        }
+        for (int i = 0; i < common; i++) {
+            int diff = (nameByte(a, i) & 0xFF) - (nameByte(b, i) & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    private int nameLength(int record) {
+        return record == PROBE ? probe.length : records.get(recordOffset(record) + RECORD_NAME_LENGTH) & 0xFF;
+    }
+
+    private byte nameByte(int record, int i) {
+        return record == PROBE ? probe[i] : records.get(recordOffset(record) + RECORD_NAME + i);
+    }
+
+    private long packedPos(int record) {
+        return records.getLong(recordOffset(record) + RECORD_POS);
+    }
+
+    private static int foldCase(byte b) {
+        int c = b & 0xFF;
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    /**
+     * 保存点之后的第一次修改前，先把索引的保存序号标记为未保存并落盘，崩溃后打开时据此重建索引。
+     */
+    private void markDirty() {
+        if (!clean) {
+            return;
+        }
+        index.putInt(INDEX_SEQUENCE, SEQUENCE_DIRTY);
+        index.force(0, INDEX_HEADER_SIZE);
+        clean = false;
+    }
+
+    private int allocateRecord() {
+        int freeHead = records.getInt(HEADER_FREE_HEAD);
+        if (freeHead >= 0) {
+            records.putInt(HEADER_FREE_HEAD, records.getInt(recordOffset(freeHead) + RECORD_NEXT_FREE));
+            return freeHead;
+        }
+
+        int highWater = records.getInt(HEADER_HIGH_WATER);
+        int capacity = records.getInt(HEADER_CAPACITY);
+        if (highWater == capacity) {
+            try {
+                records = mapRecords(capacity * 2);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to grow " + recordsFile, e);
+            }
+            records.putInt(HEADER_CAPACITY, capacity * 2);
+        }
+        records.putInt(HEADER_HIGH_WATER, highWater + 1);
+        return highWater;
+    }
+
+    /**
+     * 查找名称所在的索引槽位。
+     *
+     * @return 槽位下标，不存在时返回-1
+     */
+    private int findSlot(byte[] nameBytes) {
+        int capacity = index.getInt(INDEX_CAPACITY);
+        int mask = capacity - 1;
+        for (int slot = hash(nameBytes) & mask, probes = 0; probes < capacity; slot = (slot + 1) & mask, probes++) {
+            int value = index.getInt(slotOffset(slot));
+            if (value == SLOT_EMPTY) {
+                return -1;
+            }
+            if (value != SLOT_TOMBSTONE && nameEquals(recordOffset(value - 1), nameBytes)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void insertSlot(byte[] nameBytes, int record) {
+        int mask = index.getInt(INDEX_CAPACITY) - 1;
+        int slot = hash(nameBytes) & mask;
+        while (true) {
+            int value = index.getInt(slotOffset(slot));
+            if (value == SLOT_EMPTY || value == SLOT_TOMBSTONE) {
+                if (value == SLOT_EMPTY) {
+                    index.putInt(INDEX_USED, index.getInt(INDEX_USED) + 1);
+                }
+                index.putInt(slotOffset(slot), record + 1);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * 非空槽位（含墓碑）超过负载上限时按存活数量重建索引。
+     */
+    private void ensureIndexCapacity() {
+        int capacity = index.getInt(INDEX_CAPACITY);
+        if (index.getInt(INDEX_USED) * 10L < capacity * 6L) {
+            return;
+        }
+        int newCapacity = Math.max(INITIAL_INDEX_CAPACITY, HashCommon.nextPowerOfTwo(liveCount() * 4));
+        try {
+            rebuildIndex(newCapacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to grow " + indexFile, e);
+        }
+    }
+
+    private int dimensionId(ResourceKey<Level> dimension) {
+        if (dimensionIds.containsKey(dimension)) {
+            return dimensionIds.getInt(dimension);
+        }
+
+        int id = dimensions.size();
+        dimensions.add(dimension);
+        dimensionIds.put(dimension, id);
+        try {
+            Files.writeString(dimensionsFile, dimension.location() + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + dimensionsFile, e);
+        }
+        return id;
+    }
+
+    private LocationData readLocation(int offset) {
+        return new LocationData(
+                dimensions.get(records.getShort(offset + RECORD_DIMENSION)),
+                records.getLong(offset + RECORD_POS)
+        );
+    }
+
+    private String readName(int offset) {
+        return new String(readNameBytes(offset), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readNameBytes(int offset) {
+        byte[] bytes = new byte[records.get(offset + RECORD_NAME_LENGTH) & 0xFF];
+        records.get(offset + RECORD_NAME, bytes);
+        return bytes;
+    }
+
+    private boolean nameEquals(int offset, byte[] nameBytes) {
+        if ((records.get(offset + RECORD_NAME_LENGTH) & 0xFF) != nameBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < nameBytes.length; i++) {
+            if (records.get(offset + RECORD_NAME + i) != nameBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int liveCount() {
+        return records.getInt(HEADER_LIVE);
+    }
+
+    private static byte[] encodeName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException(String.format(Locale.ROOT,
+                    "Location name '%s' is longer than %d bytes", name, MAX_NAME_BYTES));
+        }
+        return bytes;
+    }
+
+    private static int hash(byte[] bytes) {
+        int hash = 1;
+        for (byte b : bytes) {
+            hash = 31 * hash + b;
+        }
+        return HashCommon.mix(hash);
+    }
+
+    private static int recordOffset(int record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+
+    private static int slotOffset(int slot) {
+        return INDEX_HEADER_SIZE + slot * Integer.BYTES;
+    }
+}
@@ -0,0 +1,445 @@
+package io.github.fps1024.tpmod.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * 不可变的传送点映射（哈希数组映射树，HAMT）。
+ * 每次修改返回新的映射，只复制从根到被修改项路径上的 O(log n) 个节点，其余节点由新旧版本共享，
+ * 因此保留多个历史版本的内存开销只与修改量成正比，切换版本只需替换根引用。
+ * 两个版本的差异比较会跳过引用相同的子树，开销同样只与差异大小成正比。
+ * 实例不可变，可以在任意线程读取。
+ *
+ * @author FPS1024
+ */
+public final class PersistentLocationMap {
+    /**
+     * 空映射。
+     */
+    public static final PersistentLocationMap EMPTY = new PersistentLocationMap(BitmapNode.EMPTY, 0);
+
+    /**
+     * 每层使用的哈希位数。
+     */
+    private static final int BITS = 5;
+
+    private final Node root;
+    private final int size;
+
+    private PersistentLocationMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * 获取指定名称的位置数据。
+     *
+     * @param name 传送点名称
+     * @return 位置数据，不存在时返回null
+     */
+    public LocationData get(String name) {
+        return root.get(name, name.hashCode(), 0);
+    }
+
+    /**
+     * 返回添加或覆盖了一个传送点的新映射。
+     *
+     * @param name     传送点名称
+     * @param location 位置数据
+     * @return 新映射；位置数据与现有的是同一个对象时返回本映射
+     */
+    public PersistentLocationMap put(String name, LocationData location) {
+        LocationData previous = get(name);
+        if (previous == location) {
+            return this;
+        }
+        return new PersistentLocationMap(
+                root.put(name, name.hashCode(), 0, location),
+                previous == null ? size + 1 : size
+        );
+    }
+
+    /**
+     * 返回删除了一个传送点的新映射。
+     *
+     * @param name 传送点名称
+     * @return 新映射；传送点不存在时返回本映射
+     */
+    public PersistentLocationMap remove(String name) {
+        if (get(name) == null) {
+            return this;
+        }
+        return new PersistentLocationMap(root.remove(name, name.hashCode(), 0), size - 1);
+    }
+
+    /**
+     * 获取传送点数量。
+     *
+     * @return 传送点数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 遍历所有传送点（无序）。
+     *
+     * @param consumer 接收名称和位置数据的回调
+     */
+    public void forEach(BiConsumer<String, LocationData> consumer) {
+        root.forEach(consumer);
+    }
+
+    /**
+     * 比较两个版本，对每个不同的传送点回调一次。引用相同的子树直接跳过。
+     *
+     * @param from    原版本
+     * @param to      新版本
+     * @param visitor 差异回调
+     */
+    public static void diff(PersistentLocationMap from, PersistentLocationMap to, DiffVisitor visitor) {
+        diff(from.root, to.root, visitor);
+    }
+
+    private static void diff(Node from, Node to, DiffVisitor visitor) {
+        if (from == to) {
+            return;
+        }
+        if (from instanceof BitmapNode a && to instanceof BitmapNode b) {
+            int slots = a.dataMap | a.nodeMap | b.dataMap | b.nodeMap;
+            while (slots != 0) {
+                int bit = slots & -slots;
+                slots &= slots - 1;
+                if ((a.nodeMap & bit) != 0 && (b.nodeMap & bit) != 0) {
+                    diff(a.nodeAt(bit), b.nodeAt(bit), visitor);
+                } else if ((a.dataMap & bit) != 0 && (b.dataMap & bit) != 0) {
+                    int i = a.dataIndex(bit);
+                    int j = b.dataIndex(bit);
+                    String fromName = a.nameAt(i);
+                    String toName = b.nameAt(j);
+                    if (fromName.equals(toName)) {
+                        if (a.locationAt(i) != b.locationAt(j)) {
+                            visitor.visit(fromName, a.locationAt(i), b.locationAt(j));
+                        }
+                    } else {
+                        visitor.visit(fromName, a.locationAt(i), null);
+                        visitor.visit(toName, null, b.locationAt(j));
+                    }
+                } else {
+                    // 槽位一侧为空，或一侧是单项、另一侧是子树：逐项比较，规模与差异相当
+                    Map<String, LocationData> before = new HashMap<>();
+                    a.forEachInSlot(bit, before::put);
+                    b.forEachInSlot(bit, (name, location) -> compare(before, name, location, visitor));
+                    before.forEach((name, location) -> visitor.visit(name, location, null));
+                }
+            }
+            return;
+        }
+
+        // 哈希完全相同的冲突节点，项数极少
+        Map<String, LocationData> before = new HashMap<>();
+        from.forEach(before::put);
+        to.forEach((name, location) -> compare(before, name, location, visitor));
+        before.forEach((name, location) -> visitor.visit(name, location, null));
+    }
+
+    private static void compare(Map<String, LocationData> before, String name, LocationData location, DiffVisitor visitor) {
+        LocationData previous = before.remove(name);
+        if (previous != location) {
+            visitor.visit(name, previous, location);
+        }
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & 31);
+    }
+
+    /**
+     * 为两个落在同一槽位的传送点创建子树，哈希位用尽时创建冲突节点。
+     */
+    private static Node merge(
+            String name1,
+            int hash1,
+            LocationData location1,
+            String name2,
+            int hash2,
+            LocationData location2,
+            int shift
+    ) {
+        if (shift >= Integer.SIZE) {
+            return new CollisionNode(new Object[]{name1, location1, name2, location2});
+        }
+        int bit1 = bit(hash1, shift);
+        int bit2 = bit(hash2, shift);
+        if (bit1 == bit2) {
+            return new BitmapNode(0, bit1, new Object[]{
+                    merge(name1, hash1, location1, name2, hash2, location2, shift + BITS)
+            });
+        }
+        // 槽位 31 的位是负数，按无符号比较槽位顺序
+        return Integer.compareUnsigned(bit1, bit2) < 0
+                ? new BitmapNode(bit1 | bit2, 0, new Object[]{name1, location1, name2, location2})
+                : new BitmapNode(bit1 | bit2, 0, new Object[]{name2, location2, name1, location1});
+    }
+
+    /**
+     * 树节点。
+     */
+    private abstract static sealed class Node permits BitmapNode, CollisionNode {
+        abstract LocationData get(String name, int hash, int shift);
+
+        abstract Node put(String name, int hash, int shift, LocationData location);
+
+        /**
+         * 删除一项。调用前已确认该项存在。
+         */
+        abstract Node remove(String name, int hash, int shift);
+
+        abstract void forEach(BiConsumer<String, LocationData> consumer);
+
+        /**
+         * 节点只剩一项时可以上提到父节点，避免留下单项子树。
+         */
+        abstract boolean isSingleEntry();
+    }
+
+    /**
+     * 位图索引节点：dataMap 标记直接存放传送点的槽位，nodeMap 标记存放子树的槽位。
+     * content 先按槽位顺序存放名称和位置数据对，之后按槽位顺序存放子树。
+     */
+    private static final class BitmapNode extends Node {
+        private static final BitmapNode EMPTY = new BitmapNode(0, 0, new Object[0]);
+
+        private final int dataMap;
+        private final int nodeMap;
+        private final Object[] content;
+
+        private BitmapNode(int dataMap, int nodeMap, Object[] content) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+        }
+
+        private int dataIndex(int bit) {
+            return Integer.bitCount(dataMap & (bit - 1));
+        }
+
+        private int nodeIndex(int bit) {
+            return 2 * Integer.bitCount(dataMap) + Integer.bitCount(nodeMap & (bit - 1));
+        }
+
+        private String nameAt(int dataIndex) {
+            return (String) content[2 * dataIndex];
+        }
+
+        private LocationData locationAt(int dataIndex) {
+            return (LocationData) content[2 * dataIndex + 1];
+        }
+
+        private Node nodeAt(int bit) {
+            return (Node) content[nodeIndex(bit)];
+        }
+
+        private void forEachInSlot(int bit, BiConsumer<String, LocationData> consumer) {
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                consumer.accept(nameAt(i), locationAt(i));
+            } else if ((nodeMap & bit) != 0) {
+                nodeAt(bit).forEach(consumer);
+            }
+        }
+
+        @Override
+        LocationData get(String name, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                return name.equals(nameAt(i)) ? locationAt(i) : null;
+            }
+            if ((nodeMap & bit) != 0) {
+                return nodeAt(bit).get(name, hash, shift + BITS);
+            }
+            return null;
+        }
+
+        @Override
+        Node put(String name, int hash, int shift, LocationData location) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                String existing = nameAt(i);
+                if (existing.equals(name)) {
+                    Object[] copy = content.clone();
+                    copy[2 * i + 1] = location;
+                    return new BitmapNode(dataMap, nodeMap, copy);
+                }
+                Node child = merge(existing, existing.hashCode(), locationAt(i), name, hash, location, shift + BITS);
+                return dataToNode(bit, i, child);
+            }
+
+            if ((nodeMap & bit) != 0) {
+                int index = nodeIndex(bit);
+                Object[] copy = content.clone();
+                copy[index] = ((Node) content[index]).put(name, hash, shift + BITS, location);
+                return new BitmapNode(dataMap, nodeMap, copy);
+            }
+
+            int i = dataIndex(bit);
+            Object[] copy = new Object[content.length + 2];
+            System.arraycopy(content, 0, copy, 0, 2 * i);
+            copy[2 * i] = name;
+            copy[2 * i + 1] = location;
+            System.arraycopy(content, 2 * i, copy, 2 * i + 2, content.length - 2 * i);
+            return new BitmapNode(dataMap | bit, nodeMap, copy);
+        }
+
+        @Override
+        Node remove(String name, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                Object[] copy = new Object[content.length - 2];
+                System.arraycopy(content, 0, copy, 0, 2 * i);
+                System.arraycopy(content, 2 * i + 2, copy, 2 * i, content.length - 2 * i - 2);
+                return new BitmapNode(dataMap ^ bit, nodeMap, copy);
+            }
+
+            Node child = nodeAt(bit).remove(name, hash, shift + BITS);
+            if (child.isSingleEntry()) {
+                return nodeToData(bit, child);
+            }
+            Object[] copy = content.clone();
+            copy[nodeIndex(bit)] = child;
+            return new BitmapNode(dataMap, nodeMap, copy);
+        }
+
+        @Override
+        void forEach(BiConsumer<String, LocationData> consumer) {
+            int dataCount = Integer.bitCount(dataMap);
+            for (int i = 0; i < dataCount; i++) {
+                consumer.accept(nameAt(i), locationAt(i));
+            }
+            for (int i = 2 * dataCount; i < content.length; i++) {
+                ((Node) content[i]).forEach(consumer);
+            }
+        }
+
+        @Override
+        boolean isSingleEntry() {
+            return nodeMap == 0 && Integer.bitCount(dataMap) == 1;
+        }
+
+        /**
+         * 把槽位中的单项替换为包含它的子树。
+         */
+        private BitmapNode dataToNode(int bit, int dataIndex, Node child) {
+            int nodeIndex = nodeIndex(bit) - 2;
+            Object[] copy = new Object[content.length - 1];
+            System.arraycopy(content, 0, copy, 0, 2 * dataIndex);
+            System.arraycopy(content, 2 * dataIndex + 2, copy, 2 * dataIndex, nodeIndex - 2 * dataIndex);
+            copy[nodeIndex] = child;
+            System.arraycopy(content, nodeIndex + 2, copy, nodeIndex + 1, content.length - nodeIndex - 2);
+            return new BitmapNode(dataMap ^ bit, nodeMap | bit, copy);
+        }
+
+        /**
+         * 把只剩一项的子树上提为槽位中的单项。
+         */
+        private BitmapNode nodeToData(int bit, Node child) {
+            Object[] entry = new Object[2];
+            child.forEach((name, location) -> {
+                entry[0] = name;
+                entry[1] = location;
+            });
+
+            int dataIndex = dataIndex(bit);
+            int nodeIndex = nodeIndex(bit);
+            Object[] copy = new Object[content.length + 1];
+            System.arraycopy(content, 0, copy, 0, 2 * dataIndex);
+            copy[2 * dataIndex] = entry[0];
+            copy[2 * dataIndex + 1] = entry[1];
+            System.arraycopy(content, 2 * dataIndex, copy, 2 * dataIndex + 2, nodeIndex - 2 * dataIndex);
+            System.arraycopy(content, nodeIndex + 1, copy, nodeIndex + 2, content.length - nodeIndex - 1);
+            return new BitmapNode(dataMap | bit, nodeMap ^ bit, copy);
+        }
+    }
+
+    /**
+     * 哈希值完全相同的传送点，按名称和位置数据对顺序存放。
+     */
+    private static final class CollisionNode extends Node {
+        private final Object[] content;
+
+        private CollisionNode(Object[] content) {
+            this.content = content;
+        }
+
+        private int indexOf(String name) {
+            for (int i = 0; i < content.length; i += 2) {
+                if (name.equals(content[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        LocationData get(String name, int hash, int shift) {
+            int i = indexOf(name);
+            return i < 0 ? null : (LocationData) content[i + 1];
+        }
+
+        @Override
+        Node put(String name, int hash, int shift, LocationData location) {
+            int i = indexOf(name);
+            Object[] copy;
+            if (i < 0) {
+                copy = new Object[content.length + 2];
+                System.arraycopy(content, 0, copy, 0, content.length);
+                copy[content.length] = name;
+                copy[content.length + 1] = location;
+            } else {
+                copy = content.clone();
+                copy[i + 1] = location;
+            }
+            return new CollisionNode(copy);
+        }
+
+        @Override
+        Node remove(String name, int hash, int shift) {
+            int i = indexOf(name);
+            Object[] copy = new Object[content.length - 2];
+            System.arraycopy(content, 0, copy, 0, i);
+            System.arraycopy(content, i + 2, copy, i, content.length - i - 2);
+            return new CollisionNode(copy);
+        }
+
+        @Override
+        void forEach(BiConsumer<String, LocationData> consumer) {
+            for (int i = 0; i < content.length; i += 2) {
+                consumer.accept((String) content[i], (LocationData) content[i + 1]);
+            }
+        }
+
+        @Override
+        boolean isSingleEntry() {
+            return content.length == 2;
+        }
+    }
+
+    /**
+     * 两个版本之间差异的接收者。
+     */
+    @FunctionalInterface
+    public interface DiffVisitor {
+        /**
+         * 一个传送点在两个版本中不同。
+         *
+         * @param name   传送点名称
+         * @param before 原版本中的位置数据，不存在时为null
+         * @param after  新版本中的位置数据，不存在时为null
+         */
+        void visit(String name, LocationData before, LocationData after);
+    }
+}
@@ -0,0 +1,154 @@
+package io.github.fps1024.tpmod.data;
+
+import io.github.fps1024.tpmod.util.Constants;
+import com.mojang.logging.LogUtils;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.storage.LevelResource;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 私人传送点的按需加载缓存。
+ * 每名玩家的数据保存在世界存档 data/{@value Constants#PLAYER_STORE_DIRECTORY}/&lt;UUID&gt;.dat 中，
+ * 玩家登录或被命令访问时才加载，放入容量为 {@link Constants#PLAYER_STORE_CACHE_SIZE} 的 LRU 缓存；
+ * 玩家退出后写回并移出缓存，缓存满时淘汰最久未访问的数据（淘汰前写回），
+ * 因此内存占用与在线玩家数成正比，而不是与所有加入过的玩家数成正比。
+ * 所有方法只能在服务端主线程调用。
+ *
+ * @author FPS1024
+ */
+public final class PlayerLocationStores {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    /**
+     * 已加载的私人传送点，按访问顺序排列。
+     */
+    private static final Map<UUID, PlayerLocations> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, PlayerLocations> eldest) {
+            if (size() <= Constants.PLAYER_STORE_CACHE_SIZE) {
+                return false;
+            }
+            flush(eldest.getKey(), eldest.getValue());
+            return true;
+        }
+    };
+
+    /**
+     * 数据文件所在目录，服务器未运行时为null。
+     */
+    private static Path directory;
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private PlayerLocationStores() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * 服务器启动时设置数据目录。
+     *
+     * @param server 服务器实例
+     */
+    public static void open(MinecraftServer server) {
+        directory = server.getWorldPath(LevelResource.ROOT).resolve("data").resolve(Constants.PLAYER_STORE_DIRECTORY);
+    }
+
+    /**
+     * 获取玩家的私人传送点，未加载时从文件加载。
+     *
+     * @param player 玩家UUID
+     * @return 私人传送点
+     * @throws IllegalStateException 如果服务器未运行
+     */
+    public static PlayerLocations get(UUID player) {
+        if (directory == null) {
+            throw new IllegalStateException("Player location stores are not available, the server is not running.");
+        }
+        PlayerLocations store = CACHE.get(player);
+        if (store == null) {
+            store = load(player);
+            CACHE.put(player, store);
+        }
+        return store;
+    }
+
+    /**
+     * 玩家退出时写回并移出缓存。
+     *
+     * @param player 玩家UUID
+     */
+    public static void unload(UUID player) {
+        PlayerLocations store = CACHE.remove(player);
+        if (store != null) {
+            flush(player, store);
+        }
+    }
+
+    /**
+     * 写回所有已修改的数据，随世界保存调用。
+     */
+    public static void saveAll() {
+        CACHE.forEach(PlayerLocationStores::flush);
+    }
+
+    /**
+     * 服务器停止时写回全部数据并清空缓存。
+     */
+    public static void close() {
+        if (directory == null) {
+            return;
+        }
+        saveAll();
+        CACHE.clear();
+        directory = null;
+    }
+
+    private static PlayerLocations load(UUID player) {
+        Path file = fileOf(player);
+        if (!Files.exists(file)) {
+            return new PlayerLocations();
+        }
+        try {
+            return PlayerLocations.load(NbtIo.readCompressed(file, NbtAccounter.unlimitedHeap()));
+        } catch (IOException e) {
+            LOGGER.error("Failed to load private locations of {} from {}.", player, file, e);
+            return new PlayerLocations();
+        }
+    }
+
+    /**
+     * 将已修改的数据写入临时文件后替换原文件，写到一半崩溃也不会损坏旧数据。
+     */
+    private static void flush(UUID player, PlayerLocations store) {
+        if (!store.isDirty()) {
+            return;
+        }
+        Path file = fileOf(player);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CompoundTag tag = store.save();
+        try {
+            Files.createDirectories(file.getParent());
+            NbtIo.writeCompressed(tag, temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            store.markSaved();
+        } catch (IOException e) {
+            LOGGER.error("Failed to save private locations of {} to {}.", player, file, e);
+        }
+    }
+
+    private static Path fileOf(UUID player) {
+        return directory.resolve(player + ".dat");
+    }
+}
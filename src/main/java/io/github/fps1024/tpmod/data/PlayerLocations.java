@@ -0,0 +1,145 @@
+package io.github.fps1024.tpmod.data;
+
+import net.minecraft.nbt.CompoundTag;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个玩家的私人传送点。
+ * 每名玩家的数据保存在独立的文件中，由 {@link PlayerLocationStores} 按需加载和写回，
+ * 文件内容与全局传送点相同，使用 {@link LocationCodec} 的列式格式。
+ *
+ * @author FPS1024
+ */
+public final class PlayerLocations {
+    /**
+     * 私人传送点，key为名称，value为位置数据。
+     */
+    private final Map<String, LocationData> locations = new HashMap<>();
+
+    /**
+     * 名称前缀索引，用于补全和分页。
+     */
+    private final LocationNameIndex nameIndex = new LocationNameIndex();
+
+    /**
+     * 自上次写回后是否被修改。
+     */
+    private boolean dirty;
+
+    /**
+     * 从NBT数据加载私人传送点。
+     *
+     * @param tag 存档NBT
+     * @return 加载后的私人传送点
+     */
+    static PlayerLocations load(CompoundTag tag) {
+        PlayerLocations store = new PlayerLocations();
+        LocationCodec.read(tag, store::put);
+        return store;
+    }
+
+    /**
+     * 将私人传送点按名称顺序保存为NBT。
+     *
+     * @return 存档NBT
+     */
+    CompoundTag save() {
+        CompoundTag tag = new CompoundTag();
+        LocationCodec.write(nameIndex.sortedNames(), locations::get, tag);
+        return tag;
+    }
+
+    /**
+     * 写回文件成功后清除修改标记。
+     */
+    void markSaved() {
+        dirty = false;
+    }
+
+    private void put(String name, LocationData location) {
+        if (locations.put(name, location) == null) {
+            nameIndex.add(name);
+        }
+    }
+
+    /**
+     * 添加或覆盖一个私人传送点。
+     *
+     * @param name     传送点名称
+     * @param location 位置数据
+     */
+    public void addLocation(String name, LocationData location) {
+        put(name, location);
+        dirty = true;
+    }
+
+    /**
+     * 获取指定名称的私人传送点。
+     *
+     * @param name 传送点名称
+     * @return 位置数据，若不存在返回null
+     */
+    public LocationData getLocation(String name) {
+        return locations.get(name);
+    }
+
+    /**
+     * 删除指定名称的私人传送点。
+     *
+     * @param name 传送点名称
+     * @return 是否删除成功
+     */
+    public boolean removeLocation(String name) {
+        if (locations.remove(name) == null) {
+            return false;
+        }
+        nameIndex.remove(name);
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * 查找以指定前缀开头的私人传送点名称。
+     *
+     * @param prefix 前缀（忽略大小写）
+     * @param limit  最多返回的数量
+     * @return 有序的匹配名称
+     */
+    public List<String> completeLocationNames(String prefix, int limit) {
+        return nameIndex.complete(prefix, limit);
+    }
+
+    /**
+     * 按名称顺序读取以指定前缀开头的私人传送点名称中的一段。
+     *
+     * @param prefix 前缀（忽略大小写），空字符串表示全部
+     * @param offset 跳过的数量
+     * @param limit  最多返回的数量
+     * @return 有序的名称列表
+     */
+    public List<String> listLocationNames(String prefix, int offset, int limit) {
+        return nameIndex.page(prefix, offset, limit);
+    }
+
+    /**
+     * 统计以指定前缀开头的私人传送点数量。
+     *
+     * @param prefix 前缀（忽略大小写），空字符串表示全部
+     * @return 匹配数量
+     */
+    public int countLocationNames(String prefix) {
+        return nameIndex.count(prefix);
+    }
+
+    /**
+     * 是否有尚未写回文件的修改。
+     *
+     * @return 是否被修改
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+}
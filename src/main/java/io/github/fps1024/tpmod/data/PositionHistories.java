@@ -0,0 +1,55 @@
+package io.github.fps1024.tpmod.data;
+
+import io.github.fps1024.tpmod.util.Constants;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 在线玩家的传送前位置历史（供 /tpm back 使用）。
+ * 每名玩家首次传送时创建一个容量为 {@link Constants#BACK_HISTORY_SIZE} 的 {@link PositionHistory}，
+ * 玩家退出时丢弃，因此总内存占用只与在线玩家数成正比。历史不持久化。
+ * 所有方法只能在服务端主线程调用。
+ *
+ * @author FPS1024
+ */
+public final class PositionHistories {
+    /**
+     * 在线玩家的位置历史。
+     */
+    private static final Map<UUID, PositionHistory> HISTORIES = new HashMap<>();
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private PositionHistories() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * 获取玩家的位置历史，不存在时创建。
+     *
+     * @param player 玩家UUID
+     * @return 位置历史
+     */
+    public static PositionHistory get(UUID player) {
+        return HISTORIES.computeIfAbsent(player, key -> new PositionHistory(Constants.BACK_HISTORY_SIZE));
+    }
+
+    /**
+     * 玩家退出时丢弃其位置历史。
+     *
+     * @param player 玩家UUID
+     */
+    public static void unload(UUID player) {
+        HISTORIES.remove(player);
+    }
+
+    /**
+     * 服务器停止时清空所有历史。
+     */
+    public static void clear() {
+        HISTORIES.clear();
+    }
+}
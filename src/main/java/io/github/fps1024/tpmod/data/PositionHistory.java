@@ -0,0 +1,109 @@
+package io.github.fps1024.tpmod.data;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一名玩家传送前位置的定长环形缓冲区。
+ * 坐标以 {@code BlockPos.asLong} 打包存入 long 数组，维度存为全局调色板中的 int 编号，
+ * 每条记录不分配任何对象；写满后覆盖最旧的记录，内存占用固定为容量 × 12 字节。
+ * 只能在服务端主线程访问。
+ *
+ * @author FPS1024
+ */
+public final class PositionHistory {
+    /**
+     * 所有玩家共用的维度调色板，大小只与服务器上的维度数量有关。
+     */
+    private static final List<ResourceKey<Level>> DIMENSIONS = new ArrayList<>();
+    private static final Reference2IntMap<ResourceKey<Level>> DIMENSION_IDS = new Reference2IntOpenHashMap<>();
+
+    /**
+     * 打包后的方块坐标。
+     */
+    private final long[] positions;
+
+    /**
+     * 维度在调色板中的编号，与 {@link #positions} 一一对应。
+     */
+    private final int[] dimensions;
+
+    /**
+     * 下一条记录写入的位置。
+     */
+    private int head;
+
+    /**
+     * 当前记录数。
+     */
+    private int size;
+
+    /**
+     * 创建空的历史记录。
+     *
+     * @param capacity 最多保留的记录数
+     */
+    public PositionHistory(int capacity) {
+        this.positions = new long[capacity];
+        this.dimensions = new int[capacity];
+    }
+
+    /**
+     * 记录一个位置，写满时覆盖最旧的记录。
+     *
+     * @param dimension 维度
+     * @param packedPos 打包后的方块坐标
+     */
+    public void push(ResourceKey<Level> dimension, long packedPos) {
+        positions[head] = packedPos;
+        dimensions[head] = dimensionId(dimension);
+        head = (head + 1) % positions.length;
+        size = Math.min(size + 1, positions.length);
+    }
+
+    /**
+     * 获取倒数第n条记录。
+     *
+     * @param n 序号，1表示最近一条
+     * @return 位置数据，超出记录数时返回null
+     */
+    public LocationData get(int n) {
+        if (n < 1 || n > size) {
+            return null;
+        }
+        int index = Math.floorMod(head - n, positions.length);
+        return new LocationData(DIMENSIONS.get(dimensions[index]), positions[index]);
+    }
+
+    /**
+     * 丢弃最近的n条记录。
+     *
+     * @param n 丢弃的数量
+     */
+    public void drop(int n) {
+        int dropped = Math.min(n, size);
+        head = Math.floorMod(head - dropped, positions.length);
+        size -= dropped;
+    }
+
+    /**
+     * 获取当前记录数。
+     *
+     * @return 记录数
+     */
+    public int size() {
+        return size;
+    }
+
+    private static int dimensionId(ResourceKey<Level> dimension) {
+        return DIMENSION_IDS.computeIfAbsent(dimension, key -> {
+            DIMENSIONS.add(dimension);
+            return DIMENSIONS.size() - 1;
+        });
+    }
+}
@@ -0,0 +1,214 @@
+package io.github.fps1024.tpmod.data;
+
+import io.github.fps1024.tpmod.util.Constants;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+
+import java.util.function.IntToLongFunction;
+
+/**
+ * {@link MappedLocationStore} 的空间索引。
+ * 与 {@link SpatialIndex} 使用相同的水平网格和查询策略，但网格中只保存记录号，
+ * 坐标在查询时从映射区读取，因此每个传送点在堆上只占一个 int。维度以调色板下标区分。
+ *
+ * @author FPS1024
+ */
+final class RecordGrid {
+    /**
+     * 每个维度的网格，key为打包后的网格坐标。
+     */
+    private final Int2ObjectMap<Long2ObjectMap<IntArrayList>> grids = new Int2ObjectOpenHashMap<>();
+
+    /**
+     * 添加一条记录。
+     *
+     * @param dimension 维度下标
+     * @param packedPos 打包坐标
+     * @param record    记录号
+     */
+    void add(int dimension, long packedPos, int record) {
+        grids.computeIfAbsent(dimension, id -> new Long2ObjectOpenHashMap<>())
+                .computeIfAbsent(cellKey(packedPos), key -> new IntArrayList(2))
+                .add(record);
+    }
+
+    /**
+     * 移除一条记录。
+     *
+     * @param dimension 维度下标
+     * @param packedPos 添加时使用的打包坐标
+     * @param record    记录号
+     */
+    void remove(int dimension, long packedPos, int record) {
+        Long2ObjectMap<IntArrayList> grid = grids.get(dimension);
+        if (grid == null) {
+            return;
+        }
+
+        long key = cellKey(packedPos);
+        IntArrayList cell = grid.get(key);
+        if (cell == null) {
+            return;
+        }
+
+        int index = cell.indexOf(record);
+        if (index >= 0) {
+            cell.removeInt(index);
+        }
+        if (cell.isEmpty()) {
+            grid.remove(key);
+            if (grid.isEmpty()) {
+                grids.remove(dimension);
+            }
+        }
+    }
+
+    /**
+     * 查找距离指定坐标最近的记录。
+     *
+     * @param dimension 维度下标
+     * @param x         X坐标
+     * @param y         Y坐标
+     * @param z         Z坐标
+     * @param positions 记录号到打包坐标的查找函数
+     * @return 最近的记录号，维度内没有记录时返回-1
+     */
+    int nearest(int dimension, double x, double y, double z, IntToLongFunction positions) {
+        Long2ObjectMap<IntArrayList> grid = grids.get(dimension);
+        if (grid == null) {
+            return -1;
+        }
+
+        int centerX = cellCoord(x);
+        int centerZ = cellCoord(z);
+        int best = -1;
+        double bestDistanceSq = Double.MAX_VALUE;
+
+        for (int ring = 0; ; ring++) {
+            long side = 2L * ring + 1;
+            if (side * side > grid.size()) {
+                // 搜索面积已超过已占用网格数，直接遍历已占用网格
+                for (IntArrayList cell : grid.values()) {
+                    for (int i = 0; i < cell.size(); i++) {
+                        int record = cell.getInt(i);
+                        double distanceSq = distanceSq(positions.applyAsLong(record), x, y, z);
+                        if (distanceSq < bestDistanceSq) {
+                            best = record;
+                            bestDistanceSq = distanceSq;
+                        }
+                    }
+                }
+                break;
+            }
+
+            for (int dx = -ring; dx <= ring; dx++) {
+                for (int dz = -ring; dz <= ring; dz++) {
+                    if (Math.abs(dx) != ring && Math.abs(dz) != ring) {
+                        continue;
+                    }
+                    IntArrayList cell = grid.get(packCell(centerX + dx, centerZ + dz));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < cell.size(); i++) {
+                        int record = cell.getInt(i);
+                        double distanceSq = distanceSq(positions.applyAsLong(record), x, y, z);
+                        if (distanceSq < bestDistanceSq) {
+                            best = record;
+                            bestDistanceSq = distanceSq;
+                        }
+                    }
+                }
+            }
+
+            // 更外层网格的水平距离至少为 ring * CELL_SIZE
+            double ringDistance = (double) ring * Constants.SPATIAL_CELL_SIZE;
+            if (best >= 0 && bestDistanceSq <= ringDistance * ringDistance) {
+                break;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * 收集指定半径内的所有记录，不排序。
+     *
+     * @param dimension 维度下标
+     * @param x         X坐标
+     * @param y         Y坐标
+     * @param z         Z坐标
+     * @param radius    半径
+     * @param positions 记录号到打包坐标的查找函数
+     * @param out       结果记录号
+     */
+    void within(int dimension, double x, double y, double z, double radius, IntToLongFunction positions, IntList out) {
+        Long2ObjectMap<IntArrayList> grid = grids.get(dimension);
+        if (grid == null) {
+            return;
+        }
+
+        double radiusSq = radius * radius;
+        int minX = cellCoord(x - radius);
+        int maxX = cellCoord(x + radius);
+        int minZ = cellCoord(z - radius);
+        int maxZ = cellCoord(z + radius);
+
+        if ((long) (maxX - minX + 1) * (maxZ - minZ + 1) > grid.size()) {
+            for (IntArrayList cell : grid.values()) {
+                collectWithin(cell, x, y, z, radiusSq, positions, out);
+            }
+        } else {
+            for (int cellX = minX; cellX <= maxX; cellX++) {
+                for (int cellZ = minZ; cellZ <= maxZ; cellZ++) {
+                    IntArrayList cell = grid.get(packCell(cellX, cellZ));
+                    if (cell != null) {
+                        collectWithin(cell, x, y, z, radiusSq, positions, out);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void collectWithin(
+            IntArrayList cell,
+            double x,
+            double y,
+            double z,
+            double radiusSq,
+            IntToLongFunction positions,
+            IntList out
+    ) {
+        for (int i = 0; i < cell.size(); i++) {
+            int record = cell.getInt(i);
+            if (distanceSq(positions.applyAsLong(record), x, y, z) <= radiusSq) {
+                out.add(record);
+            }
+        }
+    }
+
+    static double distanceSq(long packedPos, double x, double y, double z) {
+        double dx = BlockPos.getX(packedPos) - x;
+        double dy = BlockPos.getY(packedPos) - y;
+        double dz = BlockPos.getZ(packedPos) - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static int cellCoord(double coordinate) {
+        return Math.floorDiv((int) Math.floor(coordinate), Constants.SPATIAL_CELL_SIZE);
+    }
+
+    private static long cellKey(long packedPos) {
+        return packCell(Math.floorDiv(BlockPos.getX(packedPos), Constants.SPATIAL_CELL_SIZE),
+                Math.floorDiv(BlockPos.getZ(packedPos), Constants.SPATIAL_CELL_SIZE));
+    }
+
+    private static long packCell(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.fps1024.tpmod.data;
+
+import io.github.fps1024.tpmod.util.Constants;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 最近删除的全局传送点的标签和使用统计，供 /tpm undo 使传送点重新出现时恢复。
+ * 历史最多保留 {@link Constants#UNDO_HISTORY_SIZE} 次修改，更早的删除已无法撤销，
+ * 因此只保留最近这么多个被删除的传送点。与历史一样只保存在内存中。
+ * 所有方法只能在服务端主线程调用。
+ *
+ * @author FPS1024
+ */
+public final class RemovedLocations {
+    /**
+     * 被删除的传送点，按删除顺序排列，超过上限时丢弃最早的。
+     */
+    private static final Map<String, Removed> REMOVED = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Removed> eldest) {
+            return size() > Constants.UNDO_HISTORY_SIZE;
+        }
+    };
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private RemovedLocations() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * 在删除传送点的标签和使用统计之前记下它们。
+     *
+     * @param name 传送点名称
+     */
+    public static void remember(String name) {
+        REMOVED.remove(name);
+        REMOVED.put(name, new Removed(Set.copyOf(LocationTags.get().getTags(name)), LocationUsage.get().getUsage(name)));
+    }
+
+    /**
+     * 传送点被撤销操作恢复后，还原记下的标签和使用统计。
+     *
+     * @param name 传送点名称
+     */
+    public static void restore(String name) {
+        Removed removed = REMOVED.remove(name);
+        if (removed == null) {
+            return;
+        }
+        for (String tag : removed.tags()) {
+            LocationTags.get().addTag(name, tag);
+        }
+        LocationUsage.get().restore(name, removed.usage());
+    }
+
+    /**
+     * 服务器关闭时清空。
+     */
+    public static void clear() {
+        REMOVED.clear();
+    }
+
+    /**
+     * 被删除的传送点的标签和使用统计。
+     *
+     * @param tags  标签
+     * @param usage {@link LocationUsage#getUsage(String)} 取得的计数
+     */
+    private record Removed(Set<String> tags, double usage) {
+    }
+}
@@ -0,0 +1,729 @@
+package io.github.fps1024.tpmod.data;
+
+import io.github.fps1024.tpmod.util.Constants;
+import io.github.fps1024.tpmod.util.TPModConfig;
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.Level;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 同一主机上多个服务器实例共享的传送点存储后端。
+ * 各实例指向同一个公共目录，目录中保存一份快照和一个只追加的共享日志，所有文件访问都持有锁文件上的 {@link FileLock}。
+ * 每个实例在内存中持有完整数据和索引，本地修改立即生效，再由后台线程追加到共享日志；
+ * 监视线程通过 {@link WatchService} 得知日志变化后，只读取上次读取位置之后新增的记录，
+ * 解析好的修改提交到服务端主线程的任务队列中应用，没有外部修改时不占用任何 tick 时间。
+ * 所有实例都按日志顺序应用修改，并发修改同一名称时各实例的最终结果一致。
+ * 日志超过 {@link Constants#SHARED_COMPACT_BYTES} 字节后由正在写入的实例压缩为新一代快照，
+ * 其他实例发现日志代数变化时重新加载快照。公开方法只能在服务端主线程调用。
+ *
+ * @author FPS1024
+ */
+public final class SharedLocationStore implements LocationRepository {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    /**
+     * 日志文件头：魔数、代数（与所基于的快照相同）。
+     */
+    private static final int JOURNAL_MAGIC = 0x54504D53;
+    private static final int JOURNAL_HEADER_SIZE = 12;
+
+    /**
+     * 修改类型。整体替换不写入日志，只在重新加载快照时交给主线程。
+     */
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_RESET = 3;
+
+    /**
+     * 尚未读取日志时的代数。
+     */
+    private static final long NO_GENERATION = Long.MIN_VALUE;
+
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final Executor mainThread;
+    private final FileChannel lockChannel;
+    private final FileChannel journalChannel;
+    private final WatchService watcher;
+
+    /**
+     * 执行所有文件读写的单线程执行器，本地修改按提交顺序追加。
+     */
+    private final ExecutorService io = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tpmod-shared-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 是否已有一次读取新记录的任务在排队，合并连续的文件变化通知。
+     */
+    private final AtomicBoolean catchUpQueued = new AtomicBoolean();
+
+    /**
+     * 等待主线程应用的修改，按日志顺序排列。
+     */
+    private final Queue<Change> changes = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean closed;
+
+    /**
+     * 已读取的日志代数和读取位置，只在持有文件锁时访问。
+     */
+    private long generation = NO_GENERATION;
+    private long readOffset = JOURNAL_HEADER_SIZE;
+
+    /**
+     * 内存中的完整数据和索引，只在主线程访问。
+     */
+    private final Map<String, LocationData> locations = new HashMap<>();
+    private final SpatialIndex spatialIndex = new SpatialIndex();
+    private final LocationNameIndex nameIndex = new LocationNameIndex();
+
+    /**
+     * 本地已修改、但还没有从日志中读回的名称及其修改次数。
+     * 日志中排在这些修改之前的外部修改会被后者覆盖，应用时直接跳过，避免传送点短暂回退。
+     */
+    private final Object2IntMap<String> unconfirmed = new Object2IntOpenHashMap<>();
+
+    private long version;
+
+    /**
+     * 最近发布的不可变快照。
+     */
+    private volatile LocationSnapshot snapshot = LocationSnapshot.EMPTY;
+
+    private ChangeListener listener;
+
+    /**
+     * 打开（或创建）公共目录下的共享存储，加载快照和日志并开始监视文件变化。
+     *
+     * @param directory  公共目录
+     * @param mainThread 服务端主线程的执行器，外部修改在其中应用
+     * @throws IOException 如果文件无法打开
+     */
+    public SharedLocationStore(Path directory, Executor mainThread) throws IOException {
+        Files.createDirectories(directory);
+        this.snapshotFile = directory.resolve(Constants.SHARED_SNAPSHOT_FILE);
+        this.journalFile = directory.resolve(Constants.SHARED_JOURNAL_FILE);
+        this.mainThread = mainThread;
+        this.lockChannel = FileChannel.open(directory.resolve(Constants.SHARED_LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.journalChannel = FileChannel.open(journalFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try (FileLock lock = lockChannel.lock()) {
+            for (Change change : readChanges()) {
+                apply(change);
+            }
+        }
+        LOGGER.info("Loaded {} shared locations from {}.", locations.size(), directory);
+
+        this.watcher = directory.getFileSystem().newWatchService();
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread watchThread = new Thread(this::watch, "tpmod-shared-watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * 在配置的公共目录下打开共享存储，由 {@link LocationRepositories} 在服务器启动时调用。
+     *
+     * @param server 服务器实例
+     * @return 存储实例
+     */
+    public static SharedLocationStore open(MinecraftServer server) {
+        Path directory = server.getServerDirectory()
+                .resolve(TPModConfig.SHARED_DIRECTORY.get())
+                .toAbsolutePath()
+                .normalize();
+        try {
+            return new SharedLocationStore(directory, server);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open shared location store in " + directory, e);
+        }
+    }
+
+    /**
+     * 监视线程：日志文件变化时安排一次读取，同一时间最多排队一次。
+     */
+    private void watch() {
+        try {
+            while (!closed) {
+                WatchKey key = watcher.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || journalFile.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed && catchUpQueued.compareAndSet(false, true)) {
+                    io.execute(this::catchUp);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException | RejectedExecutionException e) {
+            // 存储已关闭
+        }
+    }
+
+    /**
+     * 读取其他实例追加的记录并交给主线程。
+     */
+    private void catchUp() {
+        catchUpQueued.set(false);
+        if (closed) {
+            return;
+        }
+        try (FileLock lock = lockChannel.lock()) {
+            post(readChanges());
+        } catch (IOException e) {
+            LOGGER.error("Failed to read shared location journal {}.", journalFile, e);
+        }
+    }
+
+    /**
+     * 追加一条本地修改。先读完日志中已有的记录，保证本条记录排在它们之后，再连同本条记录一起交给主线程。
+     */
+    private void append(byte[] record, Change change) {
+        List<Change> read = new ArrayList<>();
+        try (FileLock lock = lockChannel.lock()) {
+            read.addAll(readChanges());
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                journalChannel.write(buffer, readOffset + buffer.position());
+            }
+            journalChannel.force(false);
+            readOffset += record.length;
+
+            if (readOffset >= Constants.SHARED_COMPACT_BYTES) {
+                compact();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to append to shared location journal {}.", journalFile, e);
+        }
+        read.add(change);
+        post(read);
+    }
+
+    /**
+     * 读取上次读取位置之后的新记录。只在持有文件锁时调用。
+     * 日志代数变化（其他实例压缩过日志）时先重新加载快照，结果以一次整体替换开头。
+     *
+     * @return 按日志顺序排列的修改
+     */
+    private List<Change> readChanges() throws IOException {
+        List<Change> read = new ArrayList<>();
+        long size = journalChannel.size();
+        long headerGeneration = size >= JOURNAL_HEADER_SIZE ? readHeader() : -1;
+
+        if (headerGeneration != generation || size < readOffset) {
+            Snapshot loaded = readSnapshot();
+            readOffset = JOURNAL_HEADER_SIZE;
+            if (headerGeneration > loaded.generation()) {
+                LOGGER.warn("Shared location snapshot {} is older than the journal, replaying the journal on top of it.",
+                        snapshotFile);
+                generation = headerGeneration;
+            } else {
+                generation = loaded.generation();
+                if (headerGeneration < generation) {
+                    // 日志不存在，或上次压缩在替换快照之后、重置日志之前中断：日志中的记录已包含在快照里
+                    resetJournal(generation);
+                    size = JOURNAL_HEADER_SIZE;
+                }
+            }
+            read.add(new Change(OP_RESET, null, null, loaded.locations(), false));
+        }
+
+        if (size > readOffset) {
+            long valid = parseRecords(readOffset, size, read);
+            readOffset = valid;
+            if (valid < size) {
+                LOGGER.warn("Discarding {} bytes of incomplete records from {}.", size - valid, journalFile);
+                journalChannel.truncate(valid);
+            }
+        }
+        return read;
+    }
+
+    /**
+     * 解析日志中的一段记录。
+     *
+     * @return 最后一条完整记录的结尾位置
+     */
+    private long parseRecords(long from, long to, List<Change> out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(to - from));
+        while (buffer.hasRemaining() && journalChannel.read(buffer, from + buffer.position()) >= 0) {
+            // 读满为止
+        }
+
+        int length = buffer.position();
+        int valid = 0;
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(buffer.array(), 0, length));
+        try {
+            while (valid < length) {
+                byte op = input.readByte();
+                String name = input.readUTF();
+                if (op == OP_PUT) {
+                    LocationData location = new LocationData(
+                            LocationData.parseDimension(input.readUTF()),
+                            input.readLong()
+                    );
+                    out.add(new Change(OP_PUT, name, location, null, false));
+                } else if (op == OP_REMOVE) {
+                    out.add(new Change(OP_REMOVE, name, null, null, false));
+                } else {
+                    throw new IOException("Unknown shared journal operation " + op);
+                }
+                valid = length - input.available();
+            }
+        } catch (EOFException e) {
+            // 写入者在写到一半时崩溃，最后一条记录不完整
+        }
+        return from + valid;
+    }
+
+    /**
+     * 将快照和日志合并为新一代快照，然后清空日志。只在持有文件锁、且已读完日志时调用。
+     * 先原子替换快照再重置日志；两步之间中断时，日志代数落后于快照，下次读取时会丢弃这些已合并的记录。
+     */
+    private void compact() throws IOException {
+        long start = System.nanoTime();
+        Map<String, LocationData> merged = mergeJournal();
+        writeGeneration(merged);
+        LOGGER.info("Compacted shared location journal into generation {} ({} locations) in {} ms.",
+                generation, merged.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 把快照和日志中已读取的记录合并为完整数据。只在持有文件锁、且已读完日志时调用。
+     */
+    private Map<String, LocationData> mergeJournal() throws IOException {
+        Map<String, LocationData> merged = readSnapshot().locations();
+        List<Change> records = new ArrayList<>();
+        parseRecords(JOURNAL_HEADER_SIZE, readOffset, records);
+        for (Change record : records) {
+            if (record.op() == OP_PUT) {
+                merged.put(record.name(), record.location());
+            } else {
+                merged.remove(record.name());
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 把完整数据写为新一代快照，然后重置日志。只在持有文件锁时调用。
+     */
+    private void writeGeneration(Map<String, LocationData> merged) throws IOException {
+        CompoundTag tag = new CompoundTag();
+        LocationCodec.write(merged.keySet(), merged::get, tag);
+        tag.putLong(Constants.NBT_KEY_GENERATION, generation + 1);
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        NbtIo.writeCompressed(tag, temp);
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        generation++;
+        resetJournal(generation);
+        readOffset = JOURNAL_HEADER_SIZE;
+    }
+
+    /**
+     * 把一次批量导入直接写为新一代快照，不逐条追加日志。
+     * 先读完日志，使导入排在此前所有修改之后；日志中读到的修改都已包含在新快照里，
+     * 因此只向主线程提交一次整体替换。其他实例发现代数变化后重新加载快照。
+     */
+    private void writeImport(List<String> names, List<LocationData> imported, boolean replace) {
+        long start = System.nanoTime();
+        Map<String, LocationData> merged;
+        try (FileLock lock = lockChannel.lock()) {
+            readChanges();
+            merged = replace ? new HashMap<>() : mergeJournal();
+            for (int i = 0; i < names.size(); i++) {
+                merged.put(names.get(i), imported.get(i));
+            }
+            writeGeneration(merged);
+        } catch (IOException e) {
+            LOGGER.error("Failed to import {} locations into shared location store {}.", names.size(), snapshotFile, e);
+            return;
+        }
+        LOGGER.info("Imported {} shared locations as generation {} ({} locations) in {} ms.",
+                names.size(), generation, merged.size(), (System.nanoTime() - start) / 1_000_000);
+        post(List.of(new Change(OP_RESET, null, null, merged, false)));
+    }
+
+    private long readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+        while (header.hasRemaining() && journalChannel.read(header, header.position()) >= 0) {
+            // 读满为止
+        }
+        header.flip();
+        if (header.remaining() < JOURNAL_HEADER_SIZE || header.getInt() != JOURNAL_MAGIC) {
+            throw new IOException("Unsupported shared location journal format in " + journalFile);
+        }
+        return header.getLong();
+    }
+
+    private void resetJournal(long newGeneration) throws IOException {
+        journalChannel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+        header.putInt(JOURNAL_MAGIC).putLong(newGeneration).flip();
+        while (header.hasRemaining()) {
+            journalChannel.write(header, header.position());
+        }
+        journalChannel.force(true);
+    }
+
+    private Snapshot readSnapshot() throws IOException {
+        Map<String, LocationData> loaded = new HashMap<>();
+        if (!Files.exists(snapshotFile)) {
+            return new Snapshot(loaded, 0);
+        }
+        CompoundTag tag = NbtIo.readCompressed(snapshotFile, NbtAccounter.unlimitedHeap());
+        LocationCodec.read(tag, loaded::put);
+        return new Snapshot(loaded, tag.getLong(Constants.NBT_KEY_GENERATION));
+    }
+
+    /**
+     * 把修改交给主线程。主线程的任务队列在 tick 之间执行，空闲时没有开销。
+     */
+    private void post(List<Change> read) {
+        if (read.isEmpty() || closed) {
+            return;
+        }
+        changes.addAll(read);
+        mainThread.execute(this::applyChanges);
+    }
+
+    private void applyChanges() {
+        Change change;
+        while (!closed && (change = changes.poll()) != null) {
+            apply(change);
+        }
+    }
+
+    /**
+     * 在主线程应用一条按日志顺序读到的修改。
+     */
+    private void apply(Change change) {
+        if (change.op() == OP_RESET) {
+            // 快照中还没有本地尚未写入日志的修改，保留它们的当前值
+            Map<String, LocationData> pending = new HashMap<>();
+            for (String name : unconfirmed.keySet()) {
+                pending.put(name, locations.get(name));
+            }
+            locations.clear();
+            spatialIndex.clear();
+            nameIndex.clear();
+            change.locations().forEach(this::putLoaded);
+            pending.forEach((name, location) -> {
+                if (location == null) {
+                    removeLoaded(name);
+                } else {
+                    putLoaded(name, location);
+                }
+            });
+            version++;
+            if (listener != null) {
+                listener.locationsReplaced();
+            }
+            return;
+        }
+
+        String name = change.name();
+        if (change.local()) {
+            // 本地修改已在提交时应用
+            if (unconfirmed.getInt(name) <= 1) {
+                unconfirmed.removeInt(name);
+            } else {
+                unconfirmed.put(name, unconfirmed.getInt(name) - 1);
+            }
+            return;
+        }
+        if (unconfirmed.containsKey(name)) {
+            return;
+        }
+
+        if (change.op() == OP_PUT) {
+            LocationData previous = locations.get(name);
+            if (previous != null
+                    && previous.getDimension() == change.location().getDimension()
+                    && previous.getPackedPos() == change.location().getPackedPos()) {
+                return;
+            }
+            putLoaded(name, change.location());
+            version++;
+            if (listener != null) {
+                listener.locationAdded(name);
+            }
+        } else if (removeLoaded(name) != null) {
+            version++;
+            if (listener != null) {
+                listener.locationRemoved(name);
+            }
+        }
+    }
+
+    private void putLoaded(String name, LocationData location) {
+        LocationData previous = locations.put(name, location);
+        if (previous != null) {
+            spatialIndex.remove(name, previous);
+        } else {
+            nameIndex.add(name);
+        }
+        spatialIndex.add(name, location);
+    }
+
+    private LocationData removeLoaded(String name) {
+        LocationData removed = locations.remove(name);
+        if (removed != null) {
+            spatialIndex.remove(name, removed);
+            nameIndex.remove(name);
+        }
+        return removed;
+    }
+
+    /**
+     * 把本地修改交给后台线程追加到共享日志。
+     */
+    private void write(Change change) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(change.op());
+            out.writeUTF(change.name());
+            if (change.op() == OP_PUT) {
+                out.writeUTF(change.location().getDimension().location().toString());
+                out.writeLong(change.location().getPackedPos());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        unconfirmed.put(change.name(), unconfirmed.getInt(change.name()) + 1);
+        byte[] record = bytes.toByteArray();
+        io.execute(() -> append(record, change));
+    }
+
+    /**
+     * 设置接收其他实例修改的监听器。
+     *
+     * @param listener 在服务端主线程回调的监听器
+     */
+    @Override
+    public void setChangeListener(ChangeListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 停止监视，等待排队的修改写完并关闭文件。
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            LOGGER.error("Failed to close shared location watcher.", e);
+        }
+
+        io.shutdown();
+        try {
+            if (!io.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOGGER.warn("Shared location store did not finish writing in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            journalChannel.close();
+            lockChannel.close();
+        } catch (IOException e) {
+            LOGGER.error("Failed to close shared location store.", e);
+        }
+    }
+
+    /**
+     * 添加或覆盖一个全局传送点，立即生效并异步写入共享日志。
+     *
+     * @param name     传送点名称
+     * @param location 位置数据
+     */
+    @Override
+    public void addLocation(String name, LocationData location) {
+        putLoaded(name, location);
+        version++;
+        write(new Change(OP_PUT, name, location, null, true));
+    }
+
+    /**
+     * 准备一次批量导入。提交时把导入交给后台线程，在文件锁下写为新一代快照，
+     * 写完后以一次整体替换在本实例生效，不会为每个传送点追加一条日志记录。
+     *
+     * @param baseVersion 准备时的数据版本号，提交时据此判断数据是否又被修改
+     * @param names       导入的传送点名称
+     * @param imported    与名称一一对应的位置数据
+     * @param replace     是否替换全部已有传送点（否则合并，同名覆盖）
+     * @return 待提交的导入
+     * @throws IllegalArgumentException 如果有名称无效（此时不做任何修改）
+     */
+    @Override
+    public BulkImport prepareImport(
+            long baseVersion,
+            List<String> names,
+            List<LocationData> imported,
+            boolean replace
+    ) {
+        for (String name : names) {
+            if (!LocationData.isValidName(name)) {
+                throw new IllegalArgumentException("Invalid location name '" + name + "'");
+            }
+        }
+        return () -> {
+            if (version != baseVersion) {
+                return false;
+            }
+            io.execute(() -> writeImport(names, imported, replace));
+            return true;
+        };
+    }
+
+    /**
+     * 获取指定名称的全局传送点。
+     *
+     * @param name 传送点名称
+     * @return 位置数据，若不存在返回null
+     */
+    @Override
+    public LocationData getLocation(String name) {
+        return locations.get(name);
+    }
+
+    /**
+     * 删除指定名称的全局传送点，立即生效并异步写入共享日志。
+     *
+     * @param name 传送点名称
+     * @return 是否删除成功
+     */
+    @Override
+    public boolean removeLocation(String name) {
+        if (removeLoaded(name) == null) {
+            return false;
+        }
+        version++;
+        write(new Change(OP_REMOVE, name, null, null, true));
+        return true;
+    }
+
+    /**
+     * 获取当前数据的不可变快照，有修改时才重新复制（写时复制）。
+     *
+     * @return 不可变快照
+     */
+    @Override
+    public LocationSnapshot snapshot() {
+        LocationSnapshot current = snapshot;
+        if (current.getVersion() != version || current.size() != locations.size()) {
+            current = LocationSnapshot.copyOf(nameIndex.sortedNames(), locations::get, version);
+            snapshot = current;
+        }
+        return current;
+    }
+
+    @Override
+    public List<String> completeLocationNames(String prefix, int limit) {
+        return nameIndex.complete(prefix, limit);
+    }
+
+    @Override
+    public List<String> listLocationNames(String prefix, int offset, int limit) {
+        return nameIndex.page(prefix, offset, limit);
+    }
+
+    @Override
+    public int countLocationNames(String prefix) {
+        return nameIndex.count(prefix);
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public SpatialIndex.Match findNearest(ResourceKey<Level> dimension, double x, double y, double z) {
+        return spatialIndex.nearest(dimension, x, y, z);
+    }
+
+    @Override
+    public List<SpatialIndex.Match> findWithin(ResourceKey<Level> dimension, double x, double y, double z, double radius) {
+        return spatialIndex.within(dimension, x, y, z, radius);
+    }
+
+    /**
+     * 一条修改。
+     *
+     * @param op        修改类型
+     * @param name      传送点名称，整体替换时为null
+     * @param location  添加的位置数据，删除和整体替换时为null
+     * @param locations 整体替换后的全部传送点，其他修改时为null
+     * @param local     是否为本实例提交的修改
+     */
+    private record Change(
+            byte op,
+            String name,
+            LocationData location,
+            Map<String, LocationData> locations,
+            boolean local
+    ) {
+    }
+
+    /**
+     * 读取的快照内容。
+     *
+     * @param locations  全部传送点
+     * @param generation 快照代数
+     */
+    private record Snapshot(Map<String, LocationData> locations, long generation) {
+    }
+}
@@ -0,0 +1,256 @@
+package io.github.fps1024.tpmod.data;
+
+import io.github.fps1024.tpmod.util.Constants;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 传送点空间索引。
+ * 按维度分区（维度键是驻留实例，按引用查找），每个维度内用水平网格（边长 {@link Constants#SPATIAL_CELL_SIZE} 格）对传送点分桶，
+ * 支持最近点与半径范围查询。查询范围覆盖的网格数超过已占用网格数时改为遍历已占用网格，
+ * 因此稀疏分布的远距离查询也不会退化为逐格扫描空白区域。
+ *
+ * @author FPS1024
+ */
+public final class SpatialIndex {
+    /**
+     * 每个维度的网格，key为打包后的网格坐标。
+     */
+    private final Map<ResourceKey<Level>, Long2ObjectMap<List<Entry>>> grids = new Reference2ObjectOpenHashMap<>();
+
+    /**
+     * 添加一个传送点。
+     *
+     * @param name     传送点名称
+     * @param location 位置数据
+     */
+    public void add(String name, LocationData location) {
+        grids.computeIfAbsent(location.getDimension(), dimension -> new Long2ObjectOpenHashMap<>())
+                .computeIfAbsent(cellKey(location.getX(), location.getZ()), key -> new ArrayList<>(2))
+                .add(new Entry(name, location));
+    }
+
+    /**
+     * 移除一个传送点。
+     *
+     * @param name     传送点名称
+     * @param location 添加时使用的位置数据
+     */
+    public void remove(String name, LocationData location) {
+        Long2ObjectMap<List<Entry>> grid = grids.get(location.getDimension());
+        if (grid == null) {
+            return;
+        }
+
+        long key = cellKey(location.getX(), location.getZ());
+        List<Entry> cell = grid.get(key);
+        if (cell == null) {
+            return;
+        }
+
+        cell.removeIf(entry -> entry.name.equals(name));
+        if (cell.isEmpty()) {
+            grid.remove(key);
+            if (grid.isEmpty()) {
+                grids.remove(location.getDimension());
+            }
+        }
+    }
+
+    /**
+     * 清空索引。
+     */
+    public void clear() {
+        grids.clear();
+    }
+
+    /**
+     * 查找距离指定坐标最近的传送点。
+     *
+     * @param dimension 维度
+     * @param x         X坐标
+     * @param y         Y坐标
+     * @param z         Z坐标
+     * @return 最近的传送点，维度内没有传送点时返回null
+     */
+    public Match nearest(ResourceKey<Level> dimension, double x, double y, double z) {
+        Long2ObjectMap<List<Entry>> grid = grids.get(dimension);
+        if (grid == null) {
+            return null;
+        }
+
+        int centerX = cellCoord(x);
+        int centerZ = cellCoord(z);
+        Entry best = null;
+        double bestDistanceSq = Double.MAX_VALUE;
+
+        for (int ring = 0; ; ring++) {
+            long side = 2L * ring + 1;
+            if (side * side > grid.size()) {
+                // 搜索面积已超过已占用网格数，直接遍历已占用网格
+                for (Long2ObjectMap.Entry<List<Entry>> cell : grid.long2ObjectEntrySet()) {
+                    for (Entry entry : cell.getValue()) {
+                        double distanceSq = entry.distanceSq(x, y, z);
+                        if (distanceSq < bestDistanceSq) {
+                            best = entry;
+                            bestDistanceSq = distanceSq;
+                        }
+                    }
+                }
+                break;
+            }
+
+            for (int dx = -ring; dx <= ring; dx++) {
+                for (int dz = -ring; dz <= ring; dz++) {
+                    if (Math.abs(dx) != ring && Math.abs(dz) != ring) {
+                        continue;
+                    }
+                    List<Entry> cell = grid.get(packCell(centerX + dx, centerZ + dz));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (Entry entry : cell) {
+                        double distanceSq = entry.distanceSq(x, y, z);
+                        if (distanceSq < bestDistanceSq) {
+                            best = entry;
+                            bestDistanceSq = distanceSq;
+                        }
+                    }
+                }
+            }
+
+            // 更外层网格的水平距离至少为 ring * CELL_SIZE
+            double ringDistance = (double) ring * Constants.SPATIAL_CELL_SIZE;
+            if (best != null && bestDistanceSq <= ringDistance * ringDistance) {
+                break;
+            }
+        }
+
+        return best == null ? null : new Match(best.name, best.location, Math.sqrt(bestDistanceSq));
+    }
+
+    /**
+     * 查找指定半径内的所有传送点，按距离从近到远排序。
+     *
+     * @param dimension 维度
+     * @param x         X坐标
+     * @param y         Y坐标
+     * @param z         Z坐标
+     * @param radius    半径
+     * @return 匹配结果列表
+     */
+    public List<Match> within(ResourceKey<Level> dimension, double x, double y, double z, double radius) {
+        List<Match> matches = new ArrayList<>();
+        Long2ObjectMap<List<Entry>> grid = grids.get(dimension);
+        if (grid == null) {
+            return matches;
+        }
+
+        double radiusSq = radius * radius;
+        int minX = cellCoord(x - radius);
+        int maxX = cellCoord(x + radius);
+        int minZ = cellCoord(z - radius);
+        int maxZ = cellCoord(z + radius);
+
+        if ((long) (maxX - minX + 1) * (maxZ - minZ + 1) > grid.size()) {
+            for (List<Entry> cell : grid.values()) {
+                collectWithin(cell, x, y, z, radiusSq, matches);
+            }
+        } else {
+            for (int cellX = minX; cellX <= maxX; cellX++) {
+                for (int cellZ = minZ; cellZ <= maxZ; cellZ++) {
+                    List<Entry> cell = grid.get(packCell(cellX, cellZ));
+                    if (cell != null) {
+                        collectWithin(cell, x, y, z, radiusSq, matches);
+                    }
+                }
+            }
+        }
+
+        matches.sort(Comparator.comparingDouble(Match::getDistance));
+        return matches;
+    }
+
+    private static void collectWithin(
+            List<Entry> cell,
+            double x,
+            double y,
+            double z,
+            double radiusSq,
+            List<Match> matches
+    ) {
+        for (Entry entry : cell) {
+            double distanceSq = entry.distanceSq(x, y, z);
+            if (distanceSq <= radiusSq) {
+                matches.add(new Match(entry.name, entry.location, Math.sqrt(distanceSq)));
+            }
+        }
+    }
+
+    private static int cellCoord(double coordinate) {
+        return Math.floorDiv((int) Math.floor(coordinate), Constants.SPATIAL_CELL_SIZE);
+    }
+
+    private static long cellKey(int x, int z) {
+        return packCell(Math.floorDiv(x, Constants.SPATIAL_CELL_SIZE), Math.floorDiv(z, Constants.SPATIAL_CELL_SIZE));
+    }
+
+    private static long packCell(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 网格中的一个传送点。
+     */
+    private static final class Entry {
+        private final String name;
+        private final LocationData location;
+
+        private Entry(String name, LocationData location) {
+            this.name = name;
+            this.location = location;
+        }
+
+        private double distanceSq(double x, double y, double z) {
+            double dx = location.getX() - x;
+            double dy = location.getY() - y;
+            double dz = location.getZ() - z;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    /**
+     * 空间查询结果。
+     */
+    public static final class Match {
+        private final String name;
+        private final LocationData location;
+        private final double distance;
+
+        Match(String name, LocationData location, double distance) {
+            this.name = name;
+            this.location = location;
+            this.distance = distance;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LocationData getLocation() {
+            return location;
+        }
+
+        public double getDistance() {
+            return distance;
+        }
+    }
+}
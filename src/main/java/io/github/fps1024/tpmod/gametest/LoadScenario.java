@@ -0,0 +1,126 @@
+package io.github.fps1024.tpmod.gametest;
+
+import com.mojang.logging.LogUtils;
+import com.sun.management.ThreadMXBean;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.server.MinecraftServer;
+import org.slf4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * 负载测试场景的执行与测量。
+ * 场景先预热若干 tick，然后在每个 tick 执行一次工作负载，
+ * 读取服务器记录的上一个 tick 的完整耗时（含模组的调度、预加载等所有逻辑），并统计主线程的内存分配量。
+ * 测量结束后输出平均值、p95 和最大值；平均或 p95 超出预算时判定测试失败。
+ *
+ * @author FPS1024
+ */
+final class LoadScenario {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    /**
+     * 预热的 tick 数，不计入统计。
+     */
+    static final int WARMUP_TICKS = 20;
+
+    private final GameTestHelper helper;
+    private final String name;
+    private final int measuredTicks;
+    private final double meanBudgetMillis;
+    private final double p95BudgetMillis;
+    private final long[] tickNanos;
+    private int tick;
+    private long allocatedAtStart;
+
+    /**
+     * 创建场景。
+     *
+     * @param helper           测试辅助对象
+     * @param name             场景名称
+     * @param measuredTicks    测量的 tick 数
+     * @param meanBudgetMillis 平均 tick 耗时预算（毫秒）
+     * @param p95BudgetMillis  p95 tick 耗时预算（毫秒）
+     */
+    LoadScenario(
+            GameTestHelper helper,
+            String name,
+            int measuredTicks,
+            double meanBudgetMillis,
+            double p95BudgetMillis
+    ) {
+        this.helper = helper;
+        this.name = name;
+        this.measuredTicks = measuredTicks;
+        this.meanBudgetMillis = meanBudgetMillis;
+        this.p95BudgetMillis = p95BudgetMillis;
+        this.tickNanos = new long[measuredTicks];
+    }
+
+    /**
+     * 开始执行：每个 tick 调用一次工作负载，参数为从0开始的 tick 序号（含预热）。
+     *
+     * @param workload 工作负载
+     */
+    void run(IntConsumer workload) {
+        helper.onEachTick(() -> {
+            MinecraftServer server = helper.getLevel().getServer();
+            int measured = tick - WARMUP_TICKS;
+            if (measured == 0) {
+                allocatedAtStart = allocatedBytes();
+            } else if (measured > 0 && measured <= measuredTicks) {
+                // 服务器在 tick 结束时记录耗时，这里读取的是上一个 tick（其中执行了上一次工作负载）
+                long[] times = server.getTickTimesNanos();
+                tickNanos[measured - 1] = times[Math.floorMod(server.getTickCount() - 1, times.length)];
+            }
+
+            if (measured == measuredTicks) {
+                finish(allocatedAtStart < 0 ? -1 : allocatedBytes() - allocatedAtStart);
+                return;
+            }
+
+            workload.accept(tick);
+            tick++;
+        });
+    }
+
+    private void finish(long allocated) {
+        long[] sorted = tickNanos.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0) / 1_000_000.0;
+        double p95 = sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * 0.95) - 1)] / 1_000_000.0;
+        double max = sorted[sorted.length - 1] / 1_000_000.0;
+        long allocatedPerTick = allocated < 0 ? -1 : allocated / measuredTicks;
+
+        LOGGER.info(
+                "Load scenario '{}': {} ticks, mean {} ms, p95 {} ms, max {} ms, {} bytes allocated per tick",
+                name,
+                measuredTicks,
+                String.format("%.2f", mean),
+                String.format("%.2f", p95),
+                String.format("%.2f", max),
+                allocatedPerTick
+        );
+
+        if (mean > meanBudgetMillis) {
+            helper.fail(String.format("%s: mean tick %.2f ms exceeds budget %.2f ms", name, mean, meanBudgetMillis));
+        }
+        if (p95 > p95BudgetMillis) {
+            helper.fail(String.format("%s: p95 tick %.2f ms exceeds budget %.2f ms", name, p95, p95BudgetMillis));
+        }
+        helper.succeed();
+    }
+
+    /**
+     * 服务器主线程累计分配的字节数；JVM 不支持时返回-1。
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,220 @@
+package io.github.fps1024.tpmod.gametest;
+
+import io.github.fps1024.tpmod.TPMod;
+import io.github.fps1024.tpmod.data.LocationData;
+import io.github.fps1024.tpmod.data.LocationRepositories;
+import io.github.fps1024.tpmod.data.LocationRepository;
+import io.github.fps1024.tpmod.data.PositionHistories;
+import io.github.fps1024.tpmod.util.Constants;
+import com.mojang.authlib.GameProfile;
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.ParseResults;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.core.BlockPos;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraftforge.common.util.FakePlayer;
+import net.minecraftforge.common.util.FakePlayerFactory;
+import net.minecraftforge.gametest.GameTestHolder;
+import net.minecraftforge.gametest.PrefixGameTestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * /tpm 的负载测试。
+ * 由 gameTestServer 运行配置执行（{@code ./gradlew runGameTestServer}），在无头服务器上用数百个假玩家
+ * 和数千个传送点循环执行 /tpm set、传送、ls 和名称补全，测量每个场景的 tick 耗时与主线程内存分配，
+ * 超出预算时测试失败，从而在部署前发现性能退化。
+ * 每个场景使用单独的批次，批次依次执行，场景之间不会互相干扰测量结果。
+ *
+ * @author FPS1024
+ */
+@GameTestHolder(TPMod.MODID)
+@PrefixGameTestTemplate(false)
+public final class TPModLoadTests {
+    /**
+     * Forge 自带的空结构。
+     */
+    private static final String TEMPLATE = "forge:empty3x3x3";
+
+    /**
+     * 假玩家数量。
+     */
+    private static final int PLAYERS = 300;
+
+    /**
+     * 预先写入的传送点数量。
+     */
+    private static final int LOCATIONS = 5000;
+
+    /**
+     * 传送点散布的水平半径（格），保持在预加载能及时完成的范围内。
+     */
+    private static final int SPREAD = 256;
+
+    /**
+     * 每个场景测量的 tick 数。
+     */
+    private static final int MEASURED_TICKS = 200;
+
+    /**
+     * 场景超时 tick 数：预热、测量再加上余量。
+     */
+    private static final int TIMEOUT_TICKS = LoadScenario.WARMUP_TICKS + MEASURED_TICKS + 100;
+
+    /**
+     * 测试传送点的名称前缀。
+     */
+    private static final String NAME_PREFIX = "loadtest_";
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private TPModLoadTests() {
+        throw new UnsupportedOperationException("Test class cannot be instantiated");
+    }
+
+    /**
+     * 假玩家不断执行 /tpm set，每个 tick 写入 25 个传送点。
+     *
+     * @param helper 测试辅助对象
+     */
+    @GameTest(template = TEMPLATE, batch = "tpmod_load_set", timeoutTicks = TIMEOUT_TICKS)
+    public static void setLocations(GameTestHelper helper) {
+        List<FakePlayer> players = fakePlayers(helper.getLevel());
+        Random random = new Random(1);
+        BlockPos origin = helper.absolutePos(BlockPos.ZERO);
+
+        new LoadScenario(helper, "set", MEASURED_TICKS, 5.0, 15.0).run(tick -> {
+            for (int i = 0; i < 25; i++) {
+                FakePlayer player = players.get(random.nextInt(players.size()));
+                player.setPos(
+                        origin.getX() + random.nextInt(2 * SPREAD) - SPREAD,
+                        origin.getY(),
+                        origin.getZ() + random.nextInt(2 * SPREAD) - SPREAD
+                );
+                execute(source(player), "tpm set " + NAME_PREFIX + random.nextInt(LOCATIONS));
+            }
+        });
+    }
+
+    /**
+     * 数百个假玩家不断传送到随机的传送点，每个 tick 提交 30 次传送。
+     *
+     * @param helper 测试辅助对象
+     */
+    @GameTest(
+            template = TEMPLATE,
+            batch = "tpmod_load_teleport",
+            timeoutTicks = TIMEOUT_TICKS + Constants.PRELOAD_TIMEOUT_TICKS
+    )
+    public static void massTeleport(GameTestHelper helper) {
+        seedLocations(helper);
+        List<FakePlayer> players = fakePlayers(helper.getLevel());
+        Random random = new Random(2);
+
+        new LoadScenario(helper, "teleport", MEASURED_TICKS, 10.0, 25.0).run(tick -> {
+            for (int i = 0; i < 30; i++) {
+                FakePlayer player = players.get(random.nextInt(players.size()));
+                execute(source(player), "tpm @s " + NAME_PREFIX + random.nextInt(LOCATIONS));
+            }
+        });
+    }
+
+    /**
+     * 不断分页列出传送点，每个 tick 执行 50 次 /tpm ls，页码和前缀过滤随机。
+     *
+     * @param helper 测试辅助对象
+     */
+    @GameTest(template = TEMPLATE, batch = "tpmod_load_ls", timeoutTicks = TIMEOUT_TICKS)
+    public static void listPages(GameTestHelper helper) {
+        seedLocations(helper);
+        FakePlayer player = fakePlayers(helper.getLevel()).get(0);
+        Random random = new Random(3);
+
+        new LoadScenario(helper, "ls", MEASURED_TICKS, 5.0, 15.0).run(tick -> {
+            for (int i = 0; i < 50; i++) {
+                String command = random.nextBoolean()
+                        ? "tpm ls " + (1 + random.nextInt(LOCATIONS / Constants.LIST_PAGE_SIZE))
+                        : "tpm ls 1 " + NAME_PREFIX + random.nextInt(100);
+                execute(source(player), command);
+            }
+        });
+    }
+
+    /**
+     * 不断请求传送点名称补全，每个 tick 200 次，模拟多名管理员逐字输入。
+     *
+     * @param helper 测试辅助对象
+     */
+    @GameTest(template = TEMPLATE, batch = "tpmod_load_suggest", timeoutTicks = TIMEOUT_TICKS)
+    public static void suggestions(GameTestHelper helper) {
+        seedLocations(helper);
+        FakePlayer player = fakePlayers(helper.getLevel()).get(0);
+        Random random = new Random(4);
+        CommandDispatcher<CommandSourceStack> dispatcher = dispatcher(helper);
+
+        new LoadScenario(helper, "suggest", MEASURED_TICKS, 5.0, 15.0).run(tick -> {
+            for (int i = 0; i < 200; i++) {
+                String typed = (NAME_PREFIX + random.nextInt(LOCATIONS)).substring(0, 1 + random.nextInt(12));
+                ParseResults<CommandSourceStack> parse = dispatcher.parse("tpm @s " + typed, source(player));
+                dispatcher.getCompletionSuggestions(parse).join();
+            }
+        });
+    }
+
+    /**
+     * 在测量开始前直接写入测试传送点（不计入测量）。
+     */
+    private static void seedLocations(GameTestHelper helper) {
+        LocationRepository locations = LocationRepositories.get();
+        if (locations.getLocation(NAME_PREFIX + (LOCATIONS - 1)) != null) {
+            return;
+        }
+        Random random = new Random(0);
+        BlockPos origin = helper.absolutePos(BlockPos.ZERO);
+        for (int i = 0; i < LOCATIONS; i++) {
+            locations.addLocation(NAME_PREFIX + i, new LocationData(
+                    helper.getLevel().dimension(),
+                    origin.getX() + random.nextInt(2 * SPREAD) - SPREAD,
+                    origin.getY(),
+                    origin.getZ() + random.nextInt(2 * SPREAD) - SPREAD
+            ));
+        }
+    }
+
+    /**
+     * 创建（或复用）固定的一组假玩家，并清空其 /tpm back 历史。
+     */
+    private static List<FakePlayer> fakePlayers(ServerLevel level) {
+        List<FakePlayer> players = new ArrayList<>(PLAYERS);
+        for (int i = 0; i < PLAYERS; i++) {
+            String name = "tpm_load_" + i;
+            UUID id = UUID.nameUUIDFromBytes(("tpmod:" + name).getBytes(StandardCharsets.UTF_8));
+            PositionHistories.unload(id);
+            players.add(FakePlayerFactory.get(level, new GameProfile(id, name)));
+        }
+        return players;
+    }
+
+    private static CommandDispatcher<CommandSourceStack> dispatcher(GameTestHelper helper) {
+        MinecraftServer server = helper.getLevel().getServer();
+        return server.getCommands().getDispatcher();
+    }
+
+    private static CommandSourceStack source(FakePlayer player) {
+        return player.createCommandSourceStack()
+                .withPermission(Constants.REQUIRED_PERMISSION_LEVEL)
+                .withSuppressedOutput();
+    }
+
+    private static void execute(CommandSourceStack source, String command) {
+        source.getServer().getCommands().performPrefixedCommand(source, command);
+    }
+}
@@ -0,0 +1,300 @@
+package io.github.fps1024.tpmod.metrics;
+
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 模组运行指标。
+ * 统计每个子命令的同步执行耗时、传送成功与失败次数、名称补全的调用次数与耗时以及每次存档的耗时和大小。
+ * 记录只是计数器自增和直方图分桶，不分配对象；可通过 /tpm stats 查看，并通过 JMX 导出。
+ *
+ * @author FPS1024
+ */
+public final class TPModMetrics implements TPModMetricsMXBean {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    /**
+     * JMX 对象名。
+     */
+    public static final String OBJECT_NAME = "io.github.fps1024.tpmod:type=Metrics";
+
+    /**
+     * 唯一实例，同时作为 MXBean 注册。
+     */
+    private static final TPModMetrics INSTANCE = new TPModMetrics();
+
+    /**
+     * 按子命令名称分组的执行耗时，按名称排序便于显示。
+     */
+    private final Map<String, LatencyHistogram> commands = Collections.synchronizedMap(new TreeMap<>());
+
+    /**
+     * 子命令名称到直方图的快速查找，避免热路径上加锁。
+     */
+    private final Map<String, LatencyHistogram> commandLookup = new ConcurrentHashMap<>();
+
+    private final LongAdder teleports = new LongAdder();
+    private final LongAdder teleportFailures = new LongAdder();
+    private final LongAdder dimensionRejections = new LongAdder();
+    private final LongAdder coalescedTeleports = new LongAdder();
+    private final LongAdder rejectedTeleports = new LongAdder();
+    private final LatencyHistogram suggestions = new LatencyHistogram();
+    private final LatencyHistogram saves = new LatencyHistogram();
+    private volatile long lastSaveNanos;
+    private volatile int lastSaveLocations;
+    private volatile long lastSaveBytes;
+
+    /**
+     * 私有构造函数，使用 {@link #get()} 获取实例。
+     */
+    private TPModMetrics() {
+    }
+
+    /**
+     * 获取指标实例。
+     *
+     * @return 指标实例
+     */
+    public static TPModMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * 服务器启动时清空上一次运行的指标并注册 MXBean。
+     */
+    public static void start() {
+        INSTANCE.reset();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Failed to register tpmod metrics with JMX.", e);
+        }
+    }
+
+    /**
+     * 服务器停止时注销 MXBean。
+     */
+    public static void stop() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Failed to unregister tpmod metrics from JMX.", e);
+        }
+    }
+
+    /**
+     * 获取指定子命令的耗时直方图，首次使用时创建。
+     *
+     * @param subcommand 子命令名称
+     * @return 耗时直方图
+     */
+    public LatencyHistogram command(String subcommand) {
+        return commandLookup.computeIfAbsent(subcommand, key -> {
+            LatencyHistogram histogram = new LatencyHistogram();
+            commands.put(key, histogram);
+            return histogram;
+        });
+    }
+
+    /**
+     * 记录一次传送结果。
+     *
+     * @param success 玩家是否到达
+     */
+    public void recordTeleport(boolean success) {
+        (success ? teleports : teleportFailures).increment();
+    }
+
+    /**
+     * 记录一次因目标维度未加载而被拒绝的传送，同时计为失败。
+     */
+    public void recordDimensionRejection() {
+        dimensionRejections.increment();
+        teleportFailures.increment();
+    }
+
+    /**
+     * 记录一次与已排队请求合并的传送请求。
+     */
+    public void recordCoalescedTeleport() {
+        coalescedTeleports.increment();
+    }
+
+    /**
+     * 记录一次因队列已满而被拒绝的传送请求，同时计为失败。
+     */
+    public void recordRejectedTeleport() {
+        rejectedTeleports.increment();
+        teleportFailures.increment();
+    }
+
+    /**
+     * 记录一次名称补全。
+     *
+     * @param startNanos 开始时间
+     */
+    public void recordSuggestion(long startNanos) {
+        suggestions.recordSince(startNanos);
+    }
+
+    /**
+     * 记录一次存档。
+     *
+     * @param startNanos 开始时间
+     * @param locations  写出的传送点数量
+     * @param bytes      写出的NBT大小（字节）
+     */
+    public void recordSave(long startNanos, int locations, long bytes) {
+        long elapsed = System.nanoTime() - startNanos;
+        saves.record(elapsed);
+        lastSaveNanos = elapsed;
+        lastSaveLocations = locations;
+        lastSaveBytes = bytes;
+    }
+
+    /**
+     * 获取所有子命令的耗时直方图（按名称排序的快照）。
+     *
+     * @return 子命令名称到直方图的映射
+     */
+    public Map<String, LatencyHistogram> getCommands() {
+        synchronized (commands) {
+            return new TreeMap<>(commands);
+        }
+    }
+
+    public LatencyHistogram getSuggestions() {
+        return suggestions;
+    }
+
+    public LatencyHistogram getSaves() {
+        return saves;
+    }
+
+    @Override
+    public long getTeleportCount() {
+        return teleports.sum();
+    }
+
+    @Override
+    public long getTeleportFailureCount() {
+        return teleportFailures.sum();
+    }
+
+    @Override
+    public long getDimensionRejectionCount() {
+        return dimensionRejections.sum();
+    }
+
+    @Override
+    public long getCoalescedTeleportCount() {
+        return coalescedTeleports.sum();
+    }
+
+    @Override
+    public long getRejectedTeleportCount() {
+        return rejectedTeleports.sum();
+    }
+
+    @Override
+    public long getSuggestionCount() {
+        return suggestions.getCount();
+    }
+
+    @Override
+    public double getSuggestionMeanMicros() {
+        return suggestions.getMeanMicros();
+    }
+
+    @Override
+    public double getSuggestionP99Micros() {
+        return suggestions.getPercentileMicros(0.99);
+    }
+
+    @Override
+    public long getSaveCount() {
+        return saves.getCount();
+    }
+
+    @Override
+    public double getLastSaveMillis() {
+        return lastSaveNanos / 1_000_000.0;
+    }
+
+    @Override
+    public double getSaveP99Millis() {
+        return saves.getPercentileMicros(0.99) / 1000.0;
+    }
+
+    @Override
+    public int getLastSaveLocations() {
+        return lastSaveLocations;
+    }
+
+    @Override
+    public long getLastSaveBytes() {
+        return lastSaveBytes;
+    }
+
+    @Override
+    public Map<String, Long> getCommandCounts() {
+        return collectLong(LatencyHistogram::getCount);
+    }
+
+    @Override
+    public Map<String, Double> getCommandMeanMicros() {
+        return collectDouble(LatencyHistogram::getMeanMicros);
+    }
+
+    @Override
+    public Map<String, Double> getCommandP99Micros() {
+        return collectDouble(histogram -> histogram.getPercentileMicros(0.99));
+    }
+
+    @Override
+    public void reset() {
+        commandLookup.values().forEach(LatencyHistogram::reset);
+        teleports.reset();
+        teleportFailures.reset();
+        dimensionRejections.reset();
+        coalescedTeleports.reset();
+        rejectedTeleports.reset();
+        suggestions.reset();
+        saves.reset();
+        lastSaveNanos = 0;
+        lastSaveLocations = 0;
+        lastSaveBytes = 0;
+    }
+
+    private Map<String, Long> collectLong(ToLongFunction<LatencyHistogram> metric) {
+        Map<String, Long> values = new TreeMap<>();
+        getCommands().forEach((name, histogram) -> values.put(name, metric.applyAsLong(histogram)));
+        return values;
+    }
+
+    private Map<String, Double> collectDouble(ToDoubleFunction<LatencyHistogram> metric) {
+        Map<String, Double> values = new TreeMap<>();
+        getCommands().forEach((name, histogram) -> values.put(name, metric.applyAsDouble(histogram)));
+        return values;
+    }
+}
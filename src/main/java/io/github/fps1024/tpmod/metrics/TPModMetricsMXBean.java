@@ -0,0 +1,57 @@
+package io.github.fps1024.tpmod.metrics;
+
+import java.util.Map;
+
+/**
+ * 通过 JMX 导出的模组运行指标，对象名为 {@value TPModMetrics#OBJECT_NAME}。
+ * 耗时的单位由属性名的后缀表示：{@code Micros} 为微秒，{@code Millis}（存档保存耗时）为毫秒。计数从服务器启动开始累计。
+ *
+ * @author FPS1024
+ */
+public interface TPModMetricsMXBean {
+    long getTeleportCount();
+
+    long getTeleportFailureCount();
+
+    long getDimensionRejectionCount();
+
+    long getCoalescedTeleportCount();
+
+    long getRejectedTeleportCount();
+
+    long getSuggestionCount();
+
+    double getSuggestionMeanMicros();
+
+    double getSuggestionP99Micros();
+
+    long getSaveCount();
+
+    double getLastSaveMillis();
+
+    double getSaveP99Millis();
+
+    int getLastSaveLocations();
+
+    long getLastSaveBytes();
+
+    /**
+     * @return 每个子命令的执行次数
+     */
+    Map<String, Long> getCommandCounts();
+
+    /**
+     * @return 每个子命令的平均耗时
+     */
+    Map<String, Double> getCommandMeanMicros();
+
+    /**
+     * @return 每个子命令的99分位耗时
+     */
+    Map<String, Double> getCommandP99Micros();
+
+    /**
+     * 清空所有指标。
+     */
+    void reset();
+}
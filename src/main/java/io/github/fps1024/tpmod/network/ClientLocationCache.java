@@ -0,0 +1,121 @@
+package io.github.fps1024.tpmod.network;
+
+import io.github.fps1024.tpmod.data.LocationNameIndex;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 客户端的全局传送点名称缓存。
+ * 由服务端推送的 {@link LocationSyncPacket} 维护，命令补全直接在本地查询，输入每个字符都不再请求服务端。
+ * 只保存名称和服务端推送的常用传送点排名，只在客户端主线程访问。
+ *
+ * @author FPS1024
+ */
+public final class ClientLocationCache {
+    /**
+     * 有序名称索引，与服务端的补全顺序一致。
+     */
+    private static final LocationNameIndex NAMES = new LocationNameIndex();
+
+    /**
+     * 服务端最常用的传送点，按使用频率从高到低排列。
+     */
+    private static List<String> ranked = List.of();
+
+    /**
+     * 已应用的最后一个同步序号。
+     */
+    private static long sequence;
+
+    /**
+     * 缓存是否与服务端一致；收到完整快照之前或序号不连续之后为false。
+     */
+    private static boolean synced;
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private ClientLocationCache() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * 应用一个同步数据包。
+     *
+     * @param packet 同步数据包
+     * @return 是否应用成功；返回false时缓存已失效，应请求重新同步
+     */
+    static boolean apply(LocationSyncPacket packet) {
+        switch (packet.getKind()) {
+            case LocationSyncPacket.RESET -> {
+                NAMES.clear();
+                ranked = List.of();
+                sequence = packet.getSequence();
+                synced = true;
+            }
+            case LocationSyncPacket.DELTA -> {
+                if (!synced || packet.getSequence() != sequence + 1) {
+                    synced = false;
+                    return false;
+                }
+                sequence = packet.getSequence();
+            }
+            default -> {
+                if (!synced || packet.getSequence() != sequence) {
+                    synced = false;
+                    return false;
+                }
+            }
+        }
+
+        packet.getRemoved().forEach(NAMES::remove);
+        packet.getAdded().forEach(NAMES::add);
+        if (packet.getRanked() != null) {
+            ranked = packet.getRanked();
+        }
+        return true;
+    }
+
+    /**
+     * 判断缓存是否可用。
+     *
+     * @return 是否已与服务端同步
+     */
+    public static boolean isSynced() {
+        return synced;
+    }
+
+    /**
+     * 查找以指定前缀开头的名称，与服务端的补全顺序一致：
+     * 最常用的传送点按使用频率排在前面，剩余名额按名称顺序补足。
+     *
+     * @param prefix 前缀（忽略大小写）
+     * @param limit  最多返回的数量
+     * @return 匹配的名称
+     */
+    public static List<String> complete(String prefix, int limit) {
+        List<String> names = new ArrayList<>(limit);
+        for (String name : ranked) {
+            if (names.size() >= limit) {
+                return names;
+            }
+            if (name.regionMatches(true, 0, prefix, 0, prefix.length()) && NAMES.sortedNames().contains(name)) {
+                names.add(name);
+            }
+        }
+
+        Set<String> seen = new HashSet<>(names);
+        for (String name : NAMES.complete(prefix, limit)) {
+            if (names.size() >= limit) {
+                break;
+            }
+            if (!seen.contains(name)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.fps1024.tpmod.network;
+
+import io.github.fps1024.tpmod.service.LocationSync;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.network.CustomPayloadEvent;
+
+/**
+ * 客户端在同步序号不连续时发给服务端的重新同步请求，服务端回复一份完整快照。
+ * 请求带有客户端无法应用的数据包的序号，服务端据此忽略在已发出的快照到达之前产生的请求。
+ *
+ * @author FPS1024
+ */
+public final class LocationResyncRequest {
+    private final long sequence;
+
+    LocationResyncRequest(long sequence) {
+        this.sequence = sequence;
+    }
+
+    static void encode(LocationResyncRequest request, FriendlyByteBuf buffer) {
+        buffer.writeVarLong(request.sequence);
+    }
+
+    static LocationResyncRequest decode(FriendlyByteBuf buffer) {
+        return new LocationResyncRequest(buffer.readVarLong());
+    }
+
+    static void handle(LocationResyncRequest request, CustomPayloadEvent.Context context) {
+        ServerPlayer player = context.getSender();
+        if (player != null) {
+            LocationSync.resync(player, request.sequence);
+        }
+    }
+}
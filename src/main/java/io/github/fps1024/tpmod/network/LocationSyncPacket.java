@@ -0,0 +1,186 @@
+package io.github.fps1024.tpmod.network;
+
+import io.github.fps1024.tpmod.util.Constants;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.event.network.CustomPayloadEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 服务端推送给客户端的全局传送点名称同步数据包。
+ * <ul>
+ *   <li>{@link #RESET}：清空客户端缓存后加入名称，序号设为包中的序号（完整快照的第一个分片）</li>
+ *   <li>{@link #DELTA}：序号比客户端大一时应用添加和删除</li>
+ *   <li>{@link #CONTINUE}：同一序号的后续分片，序号与客户端相同时应用</li>
+ * </ul>
+ * {@link #RESET} 和 {@link #DELTA} 还可以带上服务端最常用的传送点排名（{@link #getRanked()}），
+ * 客户端补全时优先列出，与服务端的补全顺序一致。客户端发现序号不连续时丢弃缓存并请求重新同步。
+ *
+ * @author FPS1024
+ */
+public final class LocationSyncPacket {
+    /**
+     * 数据包类型：完整快照的第一个分片。
+     */
+    static final byte RESET = 0;
+
+    /**
+     * 数据包类型：增量修改。
+     */
+    static final byte DELTA = 1;
+
+    /**
+     * 数据包类型：快照或增量的后续分片。
+     */
+    static final byte CONTINUE = 2;
+
+    private final byte kind;
+    private final long sequence;
+    private final List<String> added;
+    private final List<String> removed;
+
+    /**
+     * 最常用的传送点，按使用频率从高到低排列；排名没有变化时为null。
+     */
+    private final List<String> ranked;
+
+    LocationSyncPacket(byte kind, long sequence, List<String> added, List<String> removed, List<String> ranked) {
+        this.kind = kind;
+        this.sequence = sequence;
+        this.added = added;
+        this.removed = removed;
+        this.ranked = ranked;
+    }
+
+    /**
+     * 创建完整快照的数据包，按 {@link Constants#SYNC_NAMES_PER_PACKET} 个名称分片。
+     *
+     * @param sequence 快照对应的同步序号
+     * @param names    全部名称
+     * @param ranked   最常用的传送点，随第一个分片发送
+     * @return 按发送顺序排列的数据包，至少一个
+     */
+    public static List<LocationSyncPacket> snapshot(long sequence, List<String> names, List<String> ranked) {
+        List<LocationSyncPacket> packets = new ArrayList<>();
+        int chunk = Constants.SYNC_NAMES_PER_PACKET;
+        for (int from = 0; from == 0 || from < names.size(); from += chunk) {
+            packets.add(snapshotPart(
+                    sequence,
+                    names.subList(from, Math.min(from + chunk, names.size())),
+                    from == 0 ? ranked : null
+            ));
+        }
+        return packets;
+    }
+
+    /**
+     * 创建完整快照的一个分片，用于边遍历名称边发送、不先收集全部名称的场景。
+     * 第一个分片必须带上排名（可以为空列表），它让客户端清空缓存；之后的分片排名为null，追加到缓存。
+     *
+     * @param sequence 快照对应的同步序号
+     * @param names    本分片的名称，不超过 {@link Constants#SYNC_NAMES_PER_PACKET} 个
+     * @param ranked   第一个分片为最常用的传送点，之后的分片为null
+     * @return 数据包
+     */
+    public static LocationSyncPacket snapshotPart(long sequence, List<String> names, List<String> ranked) {
+        return new LocationSyncPacket(ranked != null ? RESET : CONTINUE, sequence, names, List.of(), ranked);
+    }
+
+    /**
+     * 创建增量修改的数据包，按 {@link Constants#SYNC_NAMES_PER_PACKET} 个名称分片。
+     *
+     * @param sequence 增量对应的同步序号
+     * @param added    新增或被覆盖的名称
+     * @param removed  被删除的名称
+     * @param ranked   新的最常用传送点排名，随第一个分片发送；排名没有变化时为null
+     * @return 按发送顺序排列的数据包，至少一个
+     */
+    public static List<LocationSyncPacket> delta(
+            long sequence,
+            List<String> added,
+            List<String> removed,
+            List<String> ranked
+    ) {
+        List<LocationSyncPacket> packets = new ArrayList<>();
+        int chunk = Constants.SYNC_NAMES_PER_PACKET;
+        int addedFrom = 0;
+        int removedFrom = 0;
+        do {
+            int addedTo = Math.min(addedFrom + chunk, added.size());
+            int removedTo = Math.min(removedFrom + chunk - (addedTo - addedFrom), removed.size());
+            packets.add(new LocationSyncPacket(
+                    packets.isEmpty() ? DELTA : CONTINUE,
+                    sequence,
+                    added.subList(addedFrom, addedTo),
+                    removed.subList(removedFrom, removedTo),
+                    packets.isEmpty() ? ranked : null
+            ));
+            addedFrom = addedTo;
+            removedFrom = removedTo;
+        } while (addedFrom < added.size() || removedFrom < removed.size());
+        return packets;
+    }
+
+    byte getKind() {
+        return kind;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    List<String> getAdded() {
+        return added;
+    }
+
+    List<String> getRemoved() {
+        return removed;
+    }
+
+    List<String> getRanked() {
+        return ranked;
+    }
+
+    static void encode(LocationSyncPacket packet, FriendlyByteBuf buffer) {
+        buffer.writeByte(packet.kind);
+        buffer.writeVarLong(packet.sequence);
+        writeNames(buffer, packet.added);
+        writeNames(buffer, packet.removed);
+        buffer.writeBoolean(packet.ranked != null);
+        if (packet.ranked != null) {
+            writeNames(buffer, packet.ranked);
+        }
+    }
+
+    static LocationSyncPacket decode(FriendlyByteBuf buffer) {
+        byte kind = buffer.readByte();
+        long sequence = buffer.readVarLong();
+        List<String> added = readNames(buffer);
+        List<String> removed = readNames(buffer);
+        List<String> ranked = buffer.readBoolean() ? readNames(buffer) : null;
+        return new LocationSyncPacket(kind, sequence, added, removed, ranked);
+    }
+
+    static void handle(LocationSyncPacket packet, CustomPayloadEvent.Context context) {
+        if (!ClientLocationCache.apply(packet)) {
+            TPModNetwork.sendToServer(new LocationResyncRequest(packet.getSequence()));
+        }
+    }
+
+    private static void writeNames(FriendlyByteBuf buffer, List<String> names) {
+        buffer.writeVarInt(names.size());
+        for (String name : names) {
+            buffer.writeUtf(name);
+        }
+    }
+
+    private static List<String> readNames(FriendlyByteBuf buffer) {
+        int size = buffer.readVarInt();
+        List<String> names = new ArrayList<>(Math.min(size, 4096));
+        for (int i = 0; i < size; i++) {
+            names.add(buffer.readUtf());
+        }
+        return names;
+    }
+}
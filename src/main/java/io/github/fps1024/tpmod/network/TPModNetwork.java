@@ -0,0 +1,84 @@
+package io.github.fps1024.tpmod.network;
+
+import io.github.fps1024.tpmod.TPMod;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.network.ChannelBuilder;
+import net.minecraftforge.network.NetworkDirection;
+import net.minecraftforge.network.PacketDistributor;
+import net.minecraftforge.network.SimpleChannel;
+
+/**
+ * 模组网络通道。
+ * 通道是可选的：没有安装模组的客户端仍可进入服务器，只是收不到同步数据，补全退回到向服务端请求。
+ *
+ * @author FPS1024
+ */
+public final class TPModNetwork {
+    /**
+     * 协议版本，数据包格式不兼容地变化时递增。
+     */
+    private static final int PROTOCOL_VERSION = 3;
+
+    /**
+     * 模组的数据包通道。
+     */
+    private static final SimpleChannel CHANNEL = ChannelBuilder
+            .named(ResourceLocation.fromNamespaceAndPath(TPMod.MODID, "main"))
+            .networkProtocolVersion(PROTOCOL_VERSION)
+            .optional()
+            .simpleChannel()
+            .messageBuilder(LocationSyncPacket.class, NetworkDirection.PLAY_TO_CLIENT)
+            .encoder(LocationSyncPacket::encode)
+            .decoder(LocationSyncPacket::decode)
+            .consumerMainThread(LocationSyncPacket::handle)
+            .add()
+            .messageBuilder(LocationResyncRequest.class, NetworkDirection.PLAY_TO_SERVER)
+            .encoder(LocationResyncRequest::encode)
+            .decoder(LocationResyncRequest::decode)
+            .consumerMainThread(LocationResyncRequest::handle)
+            .add();
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private TPModNetwork() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * 在模组构造时调用，确保通道在连接建立之前完成注册。
+     */
+    public static void register() {
+        // 通道在类初始化时创建
+    }
+
+    /**
+     * 判断玩家的客户端是否安装了本模组（通道存在）。
+     *
+     * @param player 玩家
+     * @return 是否可以向其发送数据包
+     */
+    public static boolean isPresent(ServerPlayer player) {
+        return CHANNEL.isRemotePresent(player.connection.getConnection());
+    }
+
+    /**
+     * 向指定玩家发送数据包。
+     *
+     * @param player  玩家
+     * @param message 数据包
+     */
+    public static void sendTo(ServerPlayer player, Object message) {
+        CHANNEL.send(message, PacketDistributor.PLAYER.with(player));
+    }
+
+    /**
+     * 从客户端向服务端发送数据包。
+     *
+     * @param message 数据包
+     */
+    public static void sendToServer(Object message) {
+        CHANNEL.send(message, PacketDistributor.SERVER.noArg());
+    }
+}
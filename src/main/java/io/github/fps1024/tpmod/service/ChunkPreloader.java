@@ -0,0 +1,183 @@
+package io.github.fps1024.tpmod.service;
+
+import io.github.fps1024.tpmod.TPMod;
+import io.github.fps1024.tpmod.util.Constants;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.TicketType;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 目标区块预加载器。
+ * 通过区块票据让区块在后台异步加载，并在每个服务端 tick 检查区块是否已完全加载（{@code getChunkNow} 能取到），
+ * 避免传送时在主线程同步加载或生成目标区块。票据生效只说明区块正在加载，不能作为加载完成的依据。
+ * 同一区块的多次请求共享同一张票据（引用计数），所有方法只能在服务端主线程调用。
+ *
+ * @author FPS1024
+ */
+public final class ChunkPreloader {
+    /**
+     * 预加载使用的区块票据类型。
+     */
+    private static final TicketType<ChunkPos> PRELOAD_TICKET =
+            TicketType.create(TPMod.MODID + "_preload", Comparator.comparingLong(ChunkPos::toLong));
+
+    /**
+     * 当前持有票据的区块及其引用计数，key为维度与区块坐标。
+     */
+    private static final Map<ChunkKey, HeldTicket> TICKETS = new HashMap<>();
+
+    /**
+     * 持有票据的区块当前的加载请求。超时的请求从这里移除，之后的 {@link #acquire} 会重新等待加载，
+     * 而不是拿到已经失败的 Future；票据仍按 {@link #TICKETS} 的引用计数保留。
+     */
+    private static final Map<ChunkKey, PendingChunk> CHUNKS = new HashMap<>();
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private ChunkPreloader() {
+        throw new UnsupportedOperationException("Service class cannot be instantiated");
+    }
+
+    /**
+     * 请求加载指定区块并持有票据，直到调用 {@link #release(ServerLevel, ChunkPos)}。
+     * 返回的 Future 在区块完全加载后于主线程完成；超时则以 {@link TimeoutException} 异常完成。
+     *
+     * @param level 目标世界
+     * @param pos   区块坐标
+     * @return 区块加载完成的 Future
+     */
+    public static CompletableFuture<Void> acquire(ServerLevel level, ChunkPos pos) {
+        ChunkKey key = new ChunkKey(level.dimension(), pos.toLong());
+        HeldTicket ticket = TICKETS.get(key);
+        if (ticket == null) {
+            ticket = new HeldTicket(level, pos);
+            level.getChunkSource().addRegionTicket(PRELOAD_TICKET, pos, Constants.PRELOAD_TICKET_RADIUS, pos);
+            TICKETS.put(key, ticket);
+        }
+        ticket.references++;
+
+        PendingChunk pending = CHUNKS.get(key);
+        if (pending == null) {
+            pending = new PendingChunk(level, pos);
+            CHUNKS.put(key, pending);
+            if (isLoaded(level, pos)) {
+                pending.future.complete(null);
+            }
+        }
+        return pending.future;
+    }
+
+    /**
+     * 释放一次对指定区块的持有，引用归零时移除票据。
+     *
+     * @param level 目标世界
+     * @param pos   区块坐标
+     */
+    public static void release(ServerLevel level, ChunkPos pos) {
+        ChunkKey key = new ChunkKey(level.dimension(), pos.toLong());
+        HeldTicket ticket = TICKETS.get(key);
+
+        if (ticket != null && --ticket.references <= 0) {
+            TICKETS.remove(key);
+            CHUNKS.remove(key);
+            level.getChunkSource().removeRegionTicket(PRELOAD_TICKET, pos, Constants.PRELOAD_TICKET_RADIUS, pos);
+        }
+    }
+
+    /**
+     * 每个服务端 tick 调用一次，完成已加载区块的 Future 并处理超时。
+     */
+    public static void tick() {
+        // 回调可能再次调用 acquire/release，先收集再完成，避免并发修改
+        List<PendingChunk> loaded = new ArrayList<>();
+        List<PendingChunk> timedOut = new ArrayList<>();
+
+        Iterator<PendingChunk> iterator = CHUNKS.values().iterator();
+        while (iterator.hasNext()) {
+            PendingChunk pending = iterator.next();
+            if (pending.future.isDone()) {
+                continue;
+            }
+            if (isLoaded(pending.level, pending.pos)) {
+                loaded.add(pending);
+            } else if (++pending.ticksWaited > Constants.PRELOAD_TIMEOUT_TICKS) {
+                iterator.remove();
+                timedOut.add(pending);
+            }
+        }
+
+        loaded.forEach(pending -> pending.future.complete(null));
+        timedOut.forEach(pending -> pending.future.completeExceptionally(
+                new TimeoutException("Chunk " + pending.pos + " did not load in time")
+        ));
+    }
+
+    /**
+     * 服务器关闭时移除所有票据并取消未完成的请求。
+     */
+    public static void clear() {
+        List<PendingChunk> pending = new ArrayList<>(CHUNKS.values());
+        CHUNKS.clear();
+        for (HeldTicket ticket : TICKETS.values()) {
+            ticket.level.getChunkSource().removeRegionTicket(
+                    PRELOAD_TICKET, ticket.pos, Constants.PRELOAD_TICKET_RADIUS, ticket.pos
+            );
+        }
+        TICKETS.clear();
+        pending.forEach(chunk -> chunk.future.cancel(false));
+    }
+
+    /**
+     * 区块是否已完全加载。{@code hasChunk} 只检查票据等级，票据生效后区块可能仍在加载或生成。
+     */
+    private static boolean isLoaded(ServerLevel level, ChunkPos pos) {
+        return level.getChunkSource().getChunkNow(pos.x, pos.z) != null;
+    }
+
+    /**
+     * 区块键：维度加区块坐标。
+     */
+    record ChunkKey(ResourceKey<Level> dimension, long pos) {
+    }
+
+    /**
+     * 一张预加载票据及持有它的请求数。
+     */
+    private static final class HeldTicket {
+        private final ServerLevel level;
+        private final ChunkPos pos;
+        private int references;
+
+        private HeldTicket(ServerLevel level, ChunkPos pos) {
+            this.level = level;
+            this.pos = pos;
+        }
+    }
+
+    /**
+     * 一个区块的加载状态。
+     */
+    private static final class PendingChunk {
+        private final ServerLevel level;
+        private final ChunkPos pos;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private int ticksWaited;
+
+        private PendingChunk(ServerLevel level, ChunkPos pos) {
+            this.level = level;
+            this.pos = pos;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package io.github.fps1024.tpmod.service;
+
+import io.github.fps1024.tpmod.TPMod;
+import io.github.fps1024.tpmod.util.Constants;
+import io.github.fps1024.tpmod.util.TPModConfig;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.TicketType;
+import net.minecraft.world.level.ChunkPos;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 热门目的地的区块保活。
+ * 每次成功传送都会给目标区块的使用计数加一，计数按配置的半衰期指数衰减（读取时按经过的 tick 数惰性计算）。
+ * 每隔 {@link Constants#HOT_CHUNK_EVALUATE_INTERVAL} 个 tick 重新排名：计数达到阈值的区块按热度从高到低持有票据，
+ * 直到用完配置的区块预算；热度下降或被更热的区块挤出预算后释放票据。
+ * 已持有票据的区块只需达到一半阈值即可保留，避免计数在阈值附近时反复加载卸载。
+ * 所有方法只能在服务端主线程调用。
+ *
+ * @author FPS1024
+ */
+public final class HotDestinationKeeper {
+    /**
+     * 保活使用的区块票据类型。
+     */
+    private static final TicketType<ChunkPos> KEEP_ALIVE_TICKET =
+            TicketType.create(TPMod.MODID + "_keepalive", Comparator.comparingLong(ChunkPos::toLong));
+
+    /**
+     * 每张票据占用的区块数。
+     */
+    private static final int CHUNKS_PER_TICKET =
+            (2 * Constants.PRELOAD_TICKET_RADIUS + 1) * (2 * Constants.PRELOAD_TICKET_RADIUS + 1);
+
+    /**
+     * 正在统计的目标区块。
+     */
+    private static final Map<ChunkPreloader.ChunkKey, Destination> DESTINATIONS = new HashMap<>();
+
+    /**
+     * 自服务器启动以来经过的 tick 数，作为衰减的时间基准。
+     */
+    private static long ticks;
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private HotDestinationKeeper() {
+        throw new UnsupportedOperationException("Service class cannot be instantiated");
+    }
+
+    /**
+     * 记录一次到达指定区块的传送。
+     *
+     * @param level 目标世界
+     * @param pos   目标区块
+     */
+    public static void recordArrival(ServerLevel level, ChunkPos pos) {
+        if (TPModConfig.HOT_CHUNK_BUDGET.get() <= 0) {
+            return;
+        }
+        ChunkPreloader.ChunkKey key = new ChunkPreloader.ChunkKey(level.dimension(), pos.toLong());
+        Destination destination = DESTINATIONS.get(key);
+        if (destination == null) {
+            if (DESTINATIONS.size() >= Constants.HOT_CHUNK_TRACKED_MAX) {
+                return;
+            }
+            destination = new Destination(level, pos);
+            DESTINATIONS.put(key, destination);
+        }
+        destination.score = destination.decayedScore(ticks, halfLifeTicks()) + 1;
+        destination.updatedAt = ticks;
+    }
+
+    /**
+     * 每个服务端 tick 调用一次，定期重新排名并调整票据。
+     */
+    public static void tick() {
+        if (++ticks % Constants.HOT_CHUNK_EVALUATE_INTERVAL != 0 || DESTINATIONS.isEmpty()) {
+            return;
+        }
+
+        double halfLife = halfLifeTicks();
+        double threshold = TPModConfig.HOT_CHUNK_MIN_SCORE.get();
+        int budget = TPModConfig.HOT_CHUNK_BUDGET.get() / CHUNKS_PER_TICKET;
+
+        List<Destination> candidates = new ArrayList<>();
+        Iterator<Destination> iterator = DESTINATIONS.values().iterator();
+        while (iterator.hasNext()) {
+            Destination destination = iterator.next();
+            destination.score = destination.decayedScore(ticks, halfLife);
+            destination.updatedAt = ticks;
+            if (destination.score >= (destination.held ? threshold / 2 : threshold)) {
+                candidates.add(destination);
+            } else if (destination.held) {
+                destination.release();
+            } else if (destination.score < Constants.HOT_CHUNK_FORGET_SCORE) {
+                iterator.remove();
+            }
+        }
+
+        candidates.sort(Comparator.comparingDouble((Destination destination) -> destination.score).reversed());
+        for (int i = 0; i < candidates.size(); i++) {
+            Destination destination = candidates.get(i);
+            if (i < budget) {
+                destination.acquire();
+            } else if (destination.held) {
+                destination.release();
+            }
+        }
+    }
+
+    /**
+     * 获取当前持有票据的区块数（含票据半径内的区块）。
+     *
+     * @return 区块数
+     */
+    public static int heldChunkCount() {
+        int held = 0;
+        for (Destination destination : DESTINATIONS.values()) {
+            if (destination.held) {
+                held++;
+            }
+        }
+        return held * CHUNKS_PER_TICKET;
+    }
+
+    /**
+     * 服务器关闭时移除所有票据并清空统计。
+     */
+    public static void clear() {
+        DESTINATIONS.values().forEach(Destination::release);
+        DESTINATIONS.clear();
+        ticks = 0;
+    }
+
+    private static double halfLifeTicks() {
+        return TPModConfig.HOT_CHUNK_HALF_LIFE_MINUTES.get() * 60.0 * 20.0;
+    }
+
+    /**
+     * 一个目标区块的使用统计和票据状态。
+     */
+    private static final class Destination {
+        private final ServerLevel level;
+        private final ChunkPos pos;
+        private double score;
+        private long updatedAt;
+        private boolean held;
+
+        private Destination(ServerLevel level, ChunkPos pos) {
+            this.level = level;
+            this.pos = pos;
+        }
+
+        private double decayedScore(long now, double halfLife) {
+            return score * Math.pow(0.5, (now - updatedAt) / halfLife);
+        }
+
+        private void acquire() {
+            if (!held) {
+                level.getChunkSource().addRegionTicket(KEEP_ALIVE_TICKET, pos, Constants.PRELOAD_TICKET_RADIUS, pos);
+                held = true;
+            }
+        }
+
+        private void release() {
+            if (held) {
+                level.getChunkSource().removeRegionTicket(KEEP_ALIVE_TICKET, pos, Constants.PRELOAD_TICKET_RADIUS, pos);
+                held = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package io.github.fps1024.tpmod.service;
+
+import io.github.fps1024.tpmod.data.LocationData;
+import io.github.fps1024.tpmod.data.LocationRepository;
+import io.github.fps1024.tpmod.data.LocationTagIndex;
+import io.github.fps1024.tpmod.data.LocationTags;
+import io.github.fps1024.tpmod.data.PlayerLocations;
+import io.github.fps1024.tpmod.util.Constants;
+import net.minecraft.network.chat.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * 传送点列表分页渲染器。
+ * 每页渲染为一条多行消息，并按（过滤条件，页码）缓存；
+ * 只有当 {@link LocationRepository} 或 {@link LocationTags} 的版本号变化时才清空缓存。
+ * 过滤条件中 {@code tag:<标签>} 形式的词按标签过滤（多个标签取交集），其余部分作为名称前缀。
+ * 只能在服务端主线程调用。
+ *
+ * @author FPS1024
+ */
+public final class LocationListRenderer {
+    /**
+     * 已渲染页面的缓存，超过上限时淘汰最久未使用的页面。
+     */
+    private static final Map<PageKey, TeleportationService.LocationListResult> PAGES =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<PageKey, TeleportationService.LocationListResult> eldest) {
+                    return size() > Constants.LIST_CACHE_PAGES;
+                }
+            };
+
+    /**
+     * 缓存所属的仓库。
+     */
+    private static LocationRepository cachedLocations;
+
+    /**
+     * 缓存对应的数据版本号。
+     */
+    private static long cachedVersion;
+
+    /**
+     * 缓存对应的标签版本号。
+     */
+    private static long cachedTagVersion;
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private LocationListRenderer() {
+        throw new UnsupportedOperationException("Service class cannot be instantiated");
+    }
+
+    /**
+     * 获取指定页的渲染结果，优先使用缓存。
+     *
+     * @param locations 全局传送点仓库
+     * @param page      页码（从1开始）
+     * @param filter    名称前缀过滤条件，空字符串表示不过滤
+     * @return 列表结果
+     */
+    static TeleportationService.LocationListResult render(LocationRepository locations, int page, String filter) {
+        LocationTags tags = LocationTags.get();
+        if (cachedLocations != locations
+                || cachedVersion != locations.getVersion()
+                || cachedTagVersion != tags.getVersion()) {
+            PAGES.clear();
+            cachedLocations = locations;
+            cachedVersion = locations.getVersion();
+            cachedTagVersion = tags.getVersion();
+        }
+
+        return PAGES.computeIfAbsent(new PageKey(filter, page), key -> renderPage(locations, page, filter));
+    }
+
+    /**
+     * 服务器关闭时清空缓存，释放对仓库的引用。
+     */
+    public static void clear() {
+        PAGES.clear();
+        cachedLocations = null;
+    }
+
+    /**
+     * 渲染玩家私人传送点的指定页。私人传送点数量少且只有本人查看，不做缓存。
+     *
+     * @param store 玩家的私人传送点
+     * @param page  页码（从1开始）
+     * @return 列表结果
+     */
+    static TeleportationService.LocationListResult renderPrivate(PlayerLocations store, int page) {
+        return renderPage(
+                "private",
+                store.countLocationNames(""),
+                page,
+                "",
+                offset -> store.listLocationNames("", offset, Constants.LIST_PAGE_SIZE),
+                store::getLocation
+        );
+    }
+
+    private static TeleportationService.LocationListResult renderPage(
+            LocationRepository locations,
+            int page,
+            String filter
+    ) {
+        Filter parsed = Filter.parse(filter);
+        if (!parsed.tags().isEmpty()) {
+            // 标签中可能残留已被其他途径删除的传送点，渲染前过滤掉
+            List<String> matches = new ArrayList<>();
+            for (String name : LocationTags.get().query(parsed.tags(), parsed.prefix())) {
+                if (locations.getLocation(name) != null) {
+                    matches.add(name);
+                }
+            }
+            return renderPage(
+                    "tagged",
+                    matches.size(),
+                    page,
+                    filter,
+                    offset -> matches.subList(
+                            Math.min(offset, matches.size()),
+                            Math.min(offset + Constants.LIST_PAGE_SIZE, matches.size())
+                    ),
+                    locations::getLocation
+            );
+        }
+
+        return renderPage(
+                "global",
+                locations.countLocationNames(filter),
+                page,
+                filter,
+                offset -> locations.listLocationNames(filter, offset, Constants.LIST_PAGE_SIZE),
+                locations::getLocation
+        );
+    }
+
+    private static TeleportationService.LocationListResult renderPage(
+            String kind,
+            int total,
+            int page,
+            String filter,
+            IntFunction<List<String>> names,
+            Function<String, LocationData> lookup
+    ) {
+        if (total == 0) {
+            return filter.isEmpty()
+                    ? TeleportationService.LocationListResult.empty()
+                    : TeleportationService.LocationListResult.pageNotFound(Component.literal(String.format(
+                            "No %s locations match '%s'.",
+                            kind,
+                            filter
+                    )));
+        }
+
+        int pageCount = (total + Constants.LIST_PAGE_SIZE - 1) / Constants.LIST_PAGE_SIZE;
+        if (page > pageCount) {
+            return TeleportationService.LocationListResult.pageNotFound(Component.literal(String.format(
+                    "Page %d does not exist, there are %d pages.",
+                    page,
+                    pageCount
+            )));
+        }
+
+        List<String> pageNames = names.apply((page - 1) * Constants.LIST_PAGE_SIZE);
+
+        StringBuilder content = new StringBuilder(64 + pageNames.size() * 32);
+        content.append(String.format("Saved %s locations (page %d/%d, %d total):", kind, page, pageCount, total));
+        for (String name : pageNames) {
+            LocationData loc = lookup.apply(name);
+            content.append('\n')
+                    .append(name).append(' ')
+                    .append(loc.getX()).append(' ')
+                    .append(loc.getY()).append(' ')
+                    .append(loc.getZ());
+        }
+
+        return TeleportationService.LocationListResult.page(Component.literal(content.toString()));
+    }
+
+    /**
+     * 解析后的过滤条件。
+     *
+     * @param tags   规范化后的标签，为空表示不按标签过滤
+     * @param prefix 名称前缀
+     */
+    record Filter(List<String> tags, String prefix) {
+        /**
+         * 解析过滤条件：{@code tag:} 开头的词作为标签，其余的词以空格连接作为名称前缀。
+         *
+         * @param filter 原始过滤条件
+         * @return 解析结果
+         */
+        static Filter parse(String filter) {
+            if (!filter.contains(Constants.TAG_FILTER_PREFIX)) {
+                return new Filter(List.of(), filter);
+            }
+            List<String> tags = new ArrayList<>(2);
+            StringBuilder prefix = new StringBuilder();
+            for (String word : filter.trim().split(" +")) {
+                if (word.startsWith(Constants.TAG_FILTER_PREFIX)) {
+                    String tag = LocationTagIndex.normalize(word.substring(Constants.TAG_FILTER_PREFIX.length()));
+                    if (!tag.isEmpty() && !tags.contains(tag)) {
+                        tags.add(tag);
+                    }
+                } else {
+                    if (!prefix.isEmpty()) {
+                        prefix.append(' ');
+                    }
+                    prefix.append(word);
+                }
+            }
+            return new Filter(tags, prefix.toString());
+        }
+    }
+
+    /**
+     * 缓存键：过滤条件加页码。
+     */
+    private record PageKey(String filter, int page) {
+    }
+}
@@ -0,0 +1,295 @@
+package io.github.fps1024.tpmod.service;
+
+import io.github.fps1024.tpmod.data.LocationRepositories;
+import io.github.fps1024.tpmod.data.LocationUsage;
+import io.github.fps1024.tpmod.network.LocationSyncPacket;
+import io.github.fps1024.tpmod.network.TPModNetwork;
+import io.github.fps1024.tpmod.util.Constants;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * 全局传送点名称到客户端的同步。
+ * 有权限使用 /tpm 且安装了模组的玩家登录时收到一份完整快照，之后同一 tick 内的添加和删除合并为一个增量推送，
+ * 客户端据此维护本地名称缓存并在本地完成命令补全。
+ * 快照和增量都按 {@link Constants#SYNC_NAMES_PER_PACKET} 个名称分片，避免超出数据包大小上限。
+ * 客户端请求重新同步时，同一玩家每 {@link Constants#SYNC_RESYNC_INTERVAL_TICKS} tick 最多发送一次快照。
+ * {@link LocationUsage} 的常用传送点排名随快照发送，排名变化后随下一个增量推送，客户端补全因此与服务端顺序一致。
+ * 所有方法只能在服务端主线程调用。
+ *
+ * @author FPS1024
+ */
+public final class LocationSync {
+    /**
+     * 正在接收同步的玩家。
+     */
+    private static final Map<UUID, ServerPlayer> SUBSCRIBERS = new LinkedHashMap<>();
+
+    /**
+     * 本 tick 内尚未推送的修改，value为true表示添加、false表示删除，同名的后一次修改覆盖前一次。
+     */
+    private static final Map<String, Boolean> PENDING = new LinkedHashMap<>();
+
+    /**
+     * 每名玩家最近一次收到的完整快照。
+     */
+    private static final Map<UUID, SentSnapshot> SNAPSHOTS = new HashMap<>();
+
+    /**
+     * 因发送间隔未到而推迟的重新同步请求。
+     */
+    private static final Set<UUID> DEFERRED = new HashSet<>();
+
+    /**
+     * 最后推送的同步序号。
+     */
+    private static long sequence;
+
+    /**
+     * 最后推送的排名对应的 {@link LocationUsage#getRankVersion()}。
+     */
+    private static long rankVersion = -1;
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private LocationSync() {
+        throw new UnsupportedOperationException("Service class cannot be instantiated");
+    }
+
+    /**
+     * 玩家登录时，若其有权限且安装了模组，开始同步并发送完整快照。
+     *
+     * @param player 玩家
+     */
+    public static void subscribe(ServerPlayer player) {
+        update(player, player.hasPermissions(Constants.REQUIRED_PERMISSION_LEVEL));
+    }
+
+    /**
+     * 玩家权限等级变化时开始或停止同步。
+     *
+     * @param player   玩家
+     * @param newLevel 新的权限等级
+     */
+    public static void onPermissionsChanged(ServerPlayer player, int newLevel) {
+        update(player, newLevel >= Constants.REQUIRED_PERMISSION_LEVEL);
+    }
+
+    /**
+     * 玩家退出时停止同步。
+     *
+     * @param player 玩家
+     */
+    public static void unsubscribe(ServerPlayer player) {
+        SUBSCRIBERS.remove(player.getUUID());
+        SNAPSHOTS.remove(player.getUUID());
+        DEFERRED.remove(player.getUUID());
+    }
+
+    /**
+     * 客户端发现序号不连续时重新发送完整快照。
+     * 出错的数据包早于最近发给该玩家的快照时，快照还在途中，客户端收到后自然恢复，请求被忽略；
+     * 距上次快照不足 {@link Constants#SYNC_RESYNC_INTERVAL_TICKS} tick 时推迟到间隔结束后发送。
+     *
+     * @param player   玩家
+     * @param sequence 客户端无法应用的数据包的序号
+     */
+    public static void resync(ServerPlayer player, long sequence) {
+        if (!SUBSCRIBERS.containsKey(player.getUUID())) {
+            return;
+        }
+        SentSnapshot last = SNAPSHOTS.get(player.getUUID());
+        if (last != null) {
+            if (sequence <= last.sequence()) {
+                return;
+            }
+            if (player.getServer().getTickCount() - last.tick() < Constants.SYNC_RESYNC_INTERVAL_TICKS) {
+                DEFERRED.add(player.getUUID());
+                return;
+            }
+        }
+        sendSnapshot(player);
+    }
+
+    /**
+     * 记录一个新增或被覆盖的传送点。
+     *
+     * @param name 传送点名称
+     */
+    public static void locationAdded(String name) {
+        if (!SUBSCRIBERS.isEmpty()) {
+            PENDING.put(name, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * 记录一个被删除的传送点。
+     *
+     * @param name 传送点名称
+     */
+    public static void locationRemoved(String name) {
+        if (!SUBSCRIBERS.isEmpty()) {
+            PENDING.put(name, Boolean.FALSE);
+        }
+    }
+
+    /**
+     * 传送点被整体替换（如批量导入）后，向所有玩家重新发送完整快照。
+     */
+    public static void locationsReplaced() {
+        PENDING.clear();
+        sequence++;
+        SUBSCRIBERS.values().forEach(LocationSync::sendSnapshot);
+    }
+
+    /**
+     * 每个服务端 tick 调用一次，推送本 tick 内累积的修改。
+     */
+    public static void tick() {
+        if (!DEFERRED.isEmpty()) {
+            sendDeferred();
+        }
+
+        LocationUsage usage = LocationUsage.get();
+        boolean rankChanged = usage.getRankVersion() != rankVersion;
+        if (PENDING.isEmpty() && !rankChanged) {
+            return;
+        }
+        rankVersion = usage.getRankVersion();
+        if (SUBSCRIBERS.isEmpty()) {
+            PENDING.clear();
+            return;
+        }
+
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        PENDING.forEach((name, isAdded) -> (isAdded ? added : removed).add(name));
+        PENDING.clear();
+        List<String> ranked = rankChanged ? usage.ranked() : null;
+
+        sequence++;
+        for (ServerPlayer player : SUBSCRIBERS.values()) {
+            send(player, LocationSyncPacket.delta(sequence, added, removed, ranked));
+        }
+    }
+
+    /**
+     * 服务器关闭时清空同步状态。
+     */
+    public static void clear() {
+        SUBSCRIBERS.clear();
+        PENDING.clear();
+        SNAPSHOTS.clear();
+        DEFERRED.clear();
+        rankVersion = -1;
+    }
+
+    private static void update(ServerPlayer player, boolean permitted) {
+        if (permitted && TPModNetwork.isPresent(player)) {
+            if (SUBSCRIBERS.put(player.getUUID(), player) == null) {
+                sendSnapshot(player);
+            }
+        } else if (SUBSCRIBERS.remove(player.getUUID()) != null) {
+            SNAPSHOTS.remove(player.getUUID());
+            DEFERRED.remove(player.getUUID());
+            // 失去权限后清空客户端缓存
+            send(player, LocationSyncPacket.snapshot(sequence, List.of(), List.of()));
+        }
+    }
+
+    /**
+     * 发送间隔已结束的推迟请求。
+     */
+    private static void sendDeferred() {
+        Iterator<UUID> iterator = DEFERRED.iterator();
+        while (iterator.hasNext()) {
+            ServerPlayer player = SUBSCRIBERS.get(iterator.next());
+            if (player == null) {
+                iterator.remove();
+                continue;
+            }
+            SentSnapshot last = SNAPSHOTS.get(player.getUUID());
+            if (last == null
+                    || player.getServer().getTickCount() - last.tick() >= Constants.SYNC_RESYNC_INTERVAL_TICKS) {
+                iterator.remove();
+                sendSnapshot(player);
+            }
+        }
+    }
+
+    /**
+     * 边遍历仓库边按分片发送名称，不为每次登录和重新同步复制一份完整快照。
+     */
+    private static void sendSnapshot(ServerPlayer player) {
+        SNAPSHOTS.put(player.getUUID(), new SentSnapshot(player.getServer().getTickCount(), sequence));
+        DEFERRED.remove(player.getUUID());
+
+        SnapshotSender sender = new SnapshotSender(player, LocationUsage.get().ranked());
+        LocationRepositories.get().forEachLocationName(sender);
+        sender.finish();
+    }
+
+    private static void send(ServerPlayer player, List<LocationSyncPacket> packets) {
+        for (LocationSyncPacket packet : packets) {
+            TPModNetwork.sendTo(player, packet);
+        }
+    }
+
+    /**
+     * 把遍历到的名称攒满一个分片就发送给玩家。
+     */
+    private static final class SnapshotSender implements Consumer<String> {
+        private final ServerPlayer player;
+        private List<String> ranked;
+        private List<String> names = new ArrayList<>();
+
+        private SnapshotSender(ServerPlayer player, List<String> ranked) {
+            this.player = player;
+            this.ranked = ranked;
+        }
+
+        @Override
+        public void accept(String name) {
+            names.add(name);
+            if (names.size() >= Constants.SYNC_NAMES_PER_PACKET) {
+                sendPart();
+            }
+        }
+
+        /**
+         * 发送剩余的名称；没有任何名称时仍发送第一个分片，让客户端清空缓存。
+         */
+        private void finish() {
+            if (!names.isEmpty() || ranked != null) {
+                sendPart();
+            }
+        }
+
+        private void sendPart() {
+            // 数据包可能在网络线程编码，每个分片使用新的列表
+            TPModNetwork.sendTo(player, LocationSyncPacket.snapshotPart(sequence, names, ranked));
+            names = new ArrayList<>();
+            ranked = null;
+        }
+    }
+
+    /**
+     * 发给一名玩家的完整快照。
+     *
+     * @param tick     发送时的服务端 tick
+     * @param sequence 快照的同步序号
+     */
+    private record SentSnapshot(int tick, long sequence) {
+    }
+}
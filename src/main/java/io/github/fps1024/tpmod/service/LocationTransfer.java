@@ -0,0 +1,508 @@
+package io.github.fps1024.tpmod.service;
+
+import io.github.fps1024.tpmod.data.LocationData;
+import io.github.fps1024.tpmod.data.LocationRepositories;
+import io.github.fps1024.tpmod.data.LocationRepository;
+import io.github.fps1024.tpmod.data.LocationSnapshot;
+import io.github.fps1024.tpmod.data.LocationTags;
+import io.github.fps1024.tpmod.data.LocationUsage;
+import io.github.fps1024.tpmod.util.Constants;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.mojang.logging.LogUtils;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+import org.slf4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 全局传送点的批量导入导出。
+ * 文件位于服务器目录下的 {@value Constants#TRANSFER_DIRECTORY} 中，按扩展名选择 JSON 或 CSV 格式。
+ * 导出在主线程取一份不可变快照后交给工作线程流式写出；导入在工作线程流式解析并准备好新数据，
+ * 再回到主线程一次性提交，因此大文件的读写和解析都不会占用服务端 tick。
+ * 同一时间只允许一个导入或导出任务。
+ *
+ * @author FPS1024
+ */
+public final class LocationTransfer {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    /**
+     * CSV 文件的表头。
+     */
+    private static final String CSV_HEADER = "name,dimension,x,y,z";
+
+    /**
+     * 准备好的导入因数据在此期间被修改而提交失败时，最多重新准备的次数。
+     */
+    private static final int MAX_IMPORT_ATTEMPTS = 3;
+
+    /**
+     * 执行文件读写和解析的后台线程。
+     */
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tpmod-transfer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 是否有任务正在执行，只在主线程读写。
+     */
+    private static boolean busy;
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private LocationTransfer() {
+        throw new UnsupportedOperationException("Service class cannot be instantiated");
+    }
+
+    /**
+     * 导出全部全局传送点。
+     *
+     * @param server   服务器实例
+     * @param fileName 文件名（.json 或 .csv）
+     * @return 完成后（于主线程）给出结果消息的 Future
+     */
+    public static CompletableFuture<Result> exportLocations(MinecraftServer server, String fileName) {
+        Path file;
+        try {
+            file = resolve(server, fileName);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(Result.failure(e.getMessage()));
+        }
+        if (busy) {
+            return CompletableFuture.completedFuture(Result.failure("Another import or export is still running."));
+        }
+
+        busy = true;
+        LocationSnapshot snapshot = LocationRepositories.get().snapshot();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                write(file, snapshot);
+                return Result.success(String.format("Exported %d global locations to %s.", snapshot.size(), fileName));
+            } catch (IOException e) {
+                LOGGER.error("Failed to export global locations to {}.", file, e);
+                return Result.failure(String.format("Failed to export to %s: %s", fileName, e.getMessage()));
+            }
+        }, WORKER).whenCompleteAsync((result, error) -> busy = false, server);
+    }
+
+    /**
+     * 导入全局传送点。
+     *
+     * @param server   服务器实例
+     * @param fileName 文件名（.json 或 .csv）
+     * @param replace  是否替换全部已有传送点（否则合并，同名覆盖）
+     * @return 完成后（于主线程）给出结果消息的 Future
+     */
+    public static CompletableFuture<Result> importLocations(MinecraftServer server, String fileName, boolean replace) {
+        Path file;
+        try {
+            file = resolve(server, fileName);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(Result.failure(e.getMessage()));
+        }
+        if (!Files.isRegularFile(file)) {
+            return CompletableFuture.completedFuture(Result.failure(String.format("File %s does not exist.", fileName)));
+        }
+        if (busy) {
+            return CompletableFuture.completedFuture(Result.failure("Another import or export is still running."));
+        }
+
+        busy = true;
+        CompletableFuture<Result> result = new CompletableFuture<>();
+        CompletableFuture.supplyAsync(() -> read(file), WORKER).whenCompleteAsync((parsed, error) -> {
+            if (error != null) {
+                LOGGER.error("Failed to import global locations from {}.", file, error);
+                busy = false;
+                result.complete(Result.failure(String.format(
+                        "Failed to import %s: %s",
+                        fileName,
+                        error.getCause() != null ? error.getCause().getMessage() : error.getMessage()
+                )));
+                return;
+            }
+            apply(server, fileName, parsed, replace, 1, result);
+        }, server);
+        return result;
+    }
+
+    /**
+     * 在主线程记下当前版本号后准备并提交导入；准备期间数据被修改时重试。
+     */
+    private static void apply(
+            MinecraftServer server,
+            String fileName,
+            ParsedFile parsed,
+            boolean replace,
+            int attempt,
+            CompletableFuture<Result> result
+    ) {
+        LocationRepository repository = LocationRepositories.get();
+        // 只需要版本号判断准备期间数据是否被修改，不必在主线程复制整份快照
+        long baseVersion = repository.getVersion();
+
+        CompletableFuture.supplyAsync(
+                () -> repository.prepareImport(baseVersion, parsed.names, parsed.locations, replace),
+                WORKER
+        ).whenCompleteAsync((prepared, error) -> {
+            if (error != null) {
+                LOGGER.error("Failed to prepare import of {}.", fileName, error);
+                busy = false;
+                result.complete(Result.failure(String.format("Failed to import %s.", fileName)));
+                return;
+            }
+            // 准备期间服务器可能已停止并切换了仓库
+            if (LocationRepositories.get() != repository) {
+                busy = false;
+                result.complete(Result.failure(String.format("Import of %s was cancelled.", fileName)));
+                return;
+            }
+            boolean committed;
+            try {
+                committed = prepared.commit();
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to commit import of {}.", fileName, e);
+                busy = false;
+                result.complete(Result.failure(String.format("Failed to import %s: %s", fileName, e.getMessage())));
+                return;
+            }
+            if (!committed) {
+                if (attempt < MAX_IMPORT_ATTEMPTS) {
+                    apply(server, fileName, parsed, replace, attempt + 1, result);
+                    return;
+                }
+                busy = false;
+                result.complete(Result.failure(String.format(
+                        "Import of %s gave up: locations kept changing while it was prepared.",
+                        fileName
+                )));
+                return;
+            }
+
+            if (replace) {
+                LocationTags.get().retainLocations(name -> repository.getLocation(name) != null);
+                LocationUsage.get().retainLocations(name -> repository.getLocation(name) != null);
+            }
+            LocationSync.locationsReplaced();
+            busy = false;
+            String skipped = parsed.skipped > 0 ? String.format(" (%d invalid rows skipped)", parsed.skipped) : "";
+            result.complete(Result.success(String.format(
+                    "%s %d global locations from %s%s.",
+                    replace ? "Replaced all locations with" : "Merged",
+                    parsed.names.size(),
+                    fileName,
+                    skipped
+            )));
+        }, server);
+    }
+
+    /**
+     * 解析文件名，只允许访问传送点交换目录内的 .json 或 .csv 文件。
+     */
+    private static Path resolve(MinecraftServer server, String fileName) {
+        Path directory = server.getServerDirectory().resolve(Constants.TRANSFER_DIRECTORY).toAbsolutePath().normalize();
+        Path file = directory.resolve(fileName).normalize();
+        if (!file.startsWith(directory) || file.equals(directory)) {
+            throw new IllegalArgumentException(String.format("Invalid file name %s.", fileName));
+        }
+        if (formatOf(file) == null) {
+            throw new IllegalArgumentException(String.format("File %s must end with .json or .csv.", fileName));
+        }
+        return file;
+    }
+
+    private static Format formatOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".json")) {
+            return Format.JSON;
+        }
+        if (name.endsWith(".csv")) {
+            return Format.CSV;
+        }
+        return null;
+    }
+
+    /**
+     * 写入临时文件后替换目标文件，导出中途失败不会留下不完整的文件。
+     */
+    private static void write(Path file, LocationSnapshot snapshot) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            if (formatOf(file) == Format.JSON) {
+                writeJson(writer, snapshot);
+            } else {
+                writeCsv(writer, snapshot);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeJson(Writer writer, LocationSnapshot snapshot) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.setIndent("  ");
+        json.beginObject();
+        json.name("format").value(1);
+        json.name("locations").beginArray();
+        IOException[] failure = new IOException[1];
+        snapshot.forEach((name, location) -> {
+            if (failure[0] != null) {
+                return;
+            }
+            try {
+                json.beginObject()
+                        .name("name").value(name)
+                        .name("dimension").value(location.getDimension().location().toString())
+                        .name("x").value(location.getX())
+                        .name("y").value(location.getY())
+                        .name("z").value(location.getZ())
+                        .endObject();
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    private static void writeCsv(BufferedWriter writer, LocationSnapshot snapshot) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.newLine();
+        IOException[] failure = new IOException[1];
+        snapshot.forEach((name, location) -> {
+            if (failure[0] != null) {
+                return;
+            }
+            try {
+                writer.write(csvField(name));
+                writer.write(',');
+                writer.write(location.getDimension().location().toString());
+                writer.write(',');
+                writer.write(Integer.toString(location.getX()));
+                writer.write(',');
+                writer.write(Integer.toString(location.getY()));
+                writer.write(',');
+                writer.write(Integer.toString(location.getZ()));
+                writer.newLine();
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static ParsedFile read(Path file) {
+        ParsedFile parsed = new ParsedFile();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (formatOf(file) == Format.JSON) {
+                readJson(reader, parsed);
+            } else {
+                readCsv(reader, parsed);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        return parsed;
+    }
+
+    /**
+     * 读取 JSON：顶层可以是传送点数组，也可以是带 {@code locations} 数组的对象。
+     */
+    private static void readJson(BufferedReader reader, ParsedFile parsed) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        if (json.peek() == JsonToken.BEGIN_OBJECT) {
+            json.beginObject();
+            while (json.hasNext()) {
+                if (json.nextName().equals("locations")) {
+                    readJsonArray(json, parsed);
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        } else {
+            readJsonArray(json, parsed);
+        }
+    }
+
+    private static void readJsonArray(JsonReader json, ParsedFile parsed) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            String name = null;
+            String dimension = null;
+            Integer x = null;
+            Integer y = null;
+            Integer z = null;
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "name" -> name = json.nextString();
+                    case "dimension" -> dimension = json.nextString();
+                    case "x" -> x = json.nextInt();
+                    case "y" -> y = json.nextInt();
+                    case "z" -> z = json.nextInt();
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+            if (x == null || y == null || z == null) {
+                parsed.skipped++;
+            } else {
+                parsed.add(name, dimension, x, y, z);
+            }
+        }
+        json.endArray();
+    }
+
+    private static void readCsv(BufferedReader reader, ParsedFile parsed) throws IOException {
+        String line;
+        boolean first = true;
+        while ((line = reader.readLine()) != null) {
+            if (first) {
+                first = false;
+                if (line.startsWith("name,")) {
+                    continue;
+                }
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = splitCsv(line);
+            if (fields.size() != 5) {
+                parsed.skipped++;
+                continue;
+            }
+            try {
+                parsed.add(
+                        fields.get(0),
+                        fields.get(1).trim(),
+                        Integer.parseInt(fields.get(2).trim()),
+                        Integer.parseInt(fields.get(3).trim()),
+                        Integer.parseInt(fields.get(4).trim())
+                );
+            } catch (NumberFormatException e) {
+                parsed.skipped++;
+            }
+        }
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(5);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * 文件格式。
+     */
+    private enum Format {
+        JSON,
+        CSV
+    }
+
+    /**
+     * 解析出的传送点，名称和位置数据按下标一一对应。
+     */
+    private static final class ParsedFile {
+        private final List<String> names = new ArrayList<>();
+        private final List<LocationData> locations = new ArrayList<>();
+        private int skipped;
+
+        private void add(String name, String dimension, int x, int y, int z) {
+            // 与命令使用相同的规则，导入的名称之后都能在命令中输入
+            if (!LocationData.isValidName(name) || dimension == null) {
+                skipped++;
+                return;
+            }
+            try {
+                locations.add(new LocationData(LocationData.parseDimension(dimension), x, y, z));
+                names.add(name);
+            } catch (RuntimeException e) {
+                // 无效的维度名称
+                skipped++;
+            }
+        }
+    }
+
+    /**
+     * 导入导出结果。
+     */
+    public static final class Result {
+        private final boolean success;
+        private final Component message;
+
+        private Result(boolean success, Component message) {
+            this.success = success;
+            this.message = message;
+        }
+
+        private static Result success(String message) {
+            return new Result(true, Component.literal(message));
+        }
+
+        private static Result failure(String message) {
+            return new Result(false, Component.literal(message));
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public Component getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package io.github.fps1024.tpmod.service;
+
+import io.github.fps1024.tpmod.data.LocationData;
+import io.github.fps1024.tpmod.util.Constants;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.tags.BlockTags;
+import net.minecraft.tags.FluidTags;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.levelgen.Heightmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 安全落点解析器。
+ * 传送前确认目标位置脚下有实体方块、身体所在的两格没有碰撞箱且不是危险方块；
+ * 不安全时在周围 {@link Constants#SAFE_LANDING_RADIUS} 格、上下 {@link Constants#SAFE_LANDING_VERTICAL} 格内
+ * 由近及远查找，无顶棚的维度再以高度图的地表作为后备。
+ * 找到的落点按传送点缓存，并登记到目标位置和落点所在的区块段；只有这些区块段内的方块变化才会使缓存失效，
+ * 热门传送点的重复传送只需一次 O(1) 的复查。找不到安全位置的结果不缓存：搜索范围内（包括高度图地表）
+ * 任何方块的变化都可能产生新的落点，每次传送都重新搜索。所有方法只能在服务端主线程调用。
+ *
+ * @author FPS1024
+ */
+public final class SafeLandingResolver {
+    /**
+     * 已解析的落点，超过上限时淘汰最久未使用的项。
+     */
+    private static final Map<SpotKey, Spot> SPOTS = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SpotKey, Spot> eldest) {
+            if (size() <= Constants.SAFE_LANDING_CACHE_SIZE) {
+                return false;
+            }
+            unindex(eldest.getKey(), eldest.getValue());
+            return true;
+        }
+    };
+
+    /**
+     * 区块段到依赖它的缓存项的索引，按维度分区，key为 {@link SectionPos#asLong()}。
+     */
+    private static final Map<ResourceKey<Level>, Long2ObjectMap<List<SpotKey>>> SECTIONS =
+            new Reference2ObjectOpenHashMap<>();
+
+    /**
+     * 由近及远排列的水平搜索偏移，每项为 {dx, dz}。
+     */
+    private static final int[][] COLUMN_OFFSETS = columnOffsets(Constants.SAFE_LANDING_RADIUS);
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private SafeLandingResolver() {
+        throw new UnsupportedOperationException("Service class cannot be instantiated");
+    }
+
+    /**
+     * 获取传送点的安全落点。目标区块应已加载。
+     *
+     * @param level    目标世界
+     * @param location 传送点
+     * @return 落点（玩家脚下所在方块），找不到安全位置时返回传送点本身
+     */
+    static BlockPos resolve(ServerLevel level, LocationData location) {
+        SpotKey key = new SpotKey(location.getDimension(), location.getPackedPos());
+        Spot cached = SPOTS.get(key);
+        if (cached != null) {
+            // 区块段变化事件没有覆盖所有改动方块的途径，命中时仍做一次廉价的复查
+            if (isSafe(level, cached.pos)) {
+                return cached.pos;
+            }
+            invalidate(key);
+        }
+
+        BlockPos origin = BlockPos.of(location.getPackedPos());
+        BlockPos spot = search(level, origin);
+        if (spot == null) {
+            return origin;
+        }
+        Spot resolved = new Spot(spot, sectionsOf(origin, spot));
+        SPOTS.put(key, resolved);
+        index(key, resolved);
+        return resolved.pos;
+    }
+
+    /**
+     * 方块变化时使依赖该区块段的缓存失效。
+     *
+     * @param level 世界
+     * @param pos   变化的方块坐标
+     */
+    public static void onBlockChanged(ServerLevel level, BlockPos pos) {
+        if (SPOTS.isEmpty()) {
+            return;
+        }
+        Long2ObjectMap<List<SpotKey>> sections = SECTIONS.get(level.dimension());
+        if (sections == null) {
+            return;
+        }
+        List<SpotKey> dependents = sections.get(SectionPos.asLong(pos));
+        if (dependents != null) {
+            for (SpotKey key : new ArrayList<>(dependents)) {
+                invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * 服务器关闭时清空缓存。
+     */
+    public static void clear() {
+        SPOTS.clear();
+        SECTIONS.clear();
+    }
+
+    /**
+     * 在传送点周围查找安全落点。
+     *
+     * @return 安全落点，找不到时返回null
+     */
+    private static BlockPos search(ServerLevel level, BlockPos origin) {
+        if (isSafe(level, origin)) {
+            return origin;
+        }
+
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        for (int[] offset : COLUMN_OFFSETS) {
+            int x = origin.getX() + offset[0];
+            int z = origin.getZ() + offset[1];
+            if (!level.hasChunk(SectionPos.blockToSectionCoord(x), SectionPos.blockToSectionCoord(z))) {
+                continue;
+            }
+            for (int step = 0; step <= 2 * Constants.SAFE_LANDING_VERTICAL; step++) {
+                // 依次检查 0, +1, -1, +2, -2 ...
+                int dy = (step + 1) / 2 * (step % 2 == 1 ? 1 : -1);
+                cursor.set(x, origin.getY() + dy, z);
+                if (isSafe(level, cursor)) {
+                    return cursor.immutable();
+                }
+            }
+        }
+
+        if (!level.dimensionType().hasCeiling()) {
+            for (int[] offset : COLUMN_OFFSETS) {
+                int x = origin.getX() + offset[0];
+                int z = origin.getZ() + offset[1];
+                if (!level.hasChunk(SectionPos.blockToSectionCoord(x), SectionPos.blockToSectionCoord(z))) {
+                    continue;
+                }
+                cursor.set(x, level.getHeight(Heightmap.Types.MOTION_BLOCKING_NO_LEAVES, x, z), z);
+                if (isSafe(level, cursor)) {
+                    return cursor.immutable();
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * 玩家站在该方块位置是否安全：脚下可站立，脚和头所在方块无碰撞箱且不会造成伤害。
+     */
+    private static boolean isSafe(ServerLevel level, BlockPos feet) {
+        if (feet.getY() <= level.getMinY() || feet.getY() + 1 > level.getMaxY()) {
+            return false;
+        }
+
+        BlockPos below = feet.below();
+        BlockState floor = level.getBlockState(below);
+        if (floor.getCollisionShape(level, below).isEmpty() || isHazard(floor)) {
+            return false;
+        }
+
+        BlockPos head = feet.above();
+        BlockState feetState = level.getBlockState(feet);
+        BlockState headState = level.getBlockState(head);
+        return feetState.getCollisionShape(level, feet).isEmpty() && !isHazard(feetState)
+                && headState.getCollisionShape(level, head).isEmpty() && !isHazard(headState);
+    }
+
+    private static boolean isHazard(BlockState state) {
+        return state.getFluidState().is(FluidTags.LAVA)
+                || state.is(BlockTags.FIRE)
+                || state.is(BlockTags.CAMPFIRES)
+                || state.is(Blocks.MAGMA_BLOCK)
+                || state.is(Blocks.CACTUS)
+                || state.is(Blocks.SWEET_BERRY_BUSH)
+                || state.is(Blocks.POWDER_SNOW)
+                || state.is(Blocks.WITHER_ROSE);
+    }
+
+    /**
+     * 缓存项依赖的区块段：传送点本身，以及落点的地面、脚和头所在的区块段。
+     */
+    private static long[] sectionsOf(BlockPos origin, BlockPos spot) {
+        long[] sections = {
+                SectionPos.asLong(origin),
+                SectionPos.asLong(spot.below()),
+                SectionPos.asLong(spot),
+                SectionPos.asLong(spot.above())
+        };
+        return Arrays.stream(sections).distinct().toArray();
+    }
+
+    private static void index(SpotKey key, Spot spot) {
+        Long2ObjectMap<List<SpotKey>> sections =
+                SECTIONS.computeIfAbsent(key.dimension, dimension -> new Long2ObjectOpenHashMap<>());
+        for (long section : spot.sections) {
+            sections.computeIfAbsent(section, s -> new ArrayList<>(1)).add(key);
+        }
+    }
+
+    private static void unindex(SpotKey key, Spot spot) {
+        Long2ObjectMap<List<SpotKey>> sections = SECTIONS.get(key.dimension);
+        if (sections == null) {
+            return;
+        }
+        for (long section : spot.sections) {
+            List<SpotKey> dependents = sections.get(section);
+            if (dependents != null) {
+                dependents.remove(key);
+                if (dependents.isEmpty()) {
+                    sections.remove(section);
+                }
+            }
+        }
+        if (sections.isEmpty()) {
+            SECTIONS.remove(key.dimension);
+        }
+    }
+
+    private static void invalidate(SpotKey key) {
+        Spot removed = SPOTS.remove(key);
+        if (removed != null) {
+            unindex(key, removed);
+        }
+    }
+
+    private static int[][] columnOffsets(int radius) {
+        List<int[]> offsets = new ArrayList<>();
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dz = -radius; dz <= radius; dz++) {
+                offsets.add(new int[]{dx, dz});
+            }
+        }
+        offsets.sort((a, b) -> Integer.compare(a[0] * a[0] + a[1] * a[1], b[0] * b[0] + b[1] * b[1]));
+        return offsets.toArray(new int[0][]);
+    }
+
+    /**
+     * 缓存键：传送点的维度与打包坐标。
+     */
+    private record SpotKey(ResourceKey<Level> dimension, long pos) {
+    }
+
+    /**
+     * 已解析的安全落点以及依赖的区块段。
+     */
+    private record Spot(BlockPos pos, long[] sections) {
+    }
+}
@@ -0,0 +1,255 @@
+package io.github.fps1024.tpmod.service;
+
+import io.github.fps1024.tpmod.data.LocationData;
+import io.github.fps1024.tpmod.metrics.TPModMetrics;
+import io.github.fps1024.tpmod.util.TPModConfig;
+import net.minecraft.core.SectionPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraftforge.server.ServerLifecycleHooks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 传送调度器。
+ * 将传送请求按目标区块分组，每组只预加载一次区块，
+ * 每个服务端 tick 在配置的次数和时间预算内执行传送，使大批量传送分摊到多个 tick 上；
+ * 服务器已经跟不上 tick 速率时每个 tick 只执行一次，保证队列仍能前进但不加重卡顿。
+ * 同一名玩家同时只保留一个请求：目标相同的重复请求合并为一个，目标不同时新请求取代旧请求。
+ * 排队请求达到上限后直接拒绝新请求，由调用方把失败反馈给发送者。所有方法只能在服务端主线程调用。
+ *
+ * @author FPS1024
+ */
+public final class TeleportScheduler {
+    /**
+     * 按目标区块分组的待执行请求，保持提交顺序。
+     */
+    private static final Map<ChunkPreloader.ChunkKey, ChunkGroup> GROUPS = new LinkedHashMap<>();
+
+    /**
+     * 每名玩家当前排队的请求。
+     */
+    private static final Map<UUID, TeleportRequest> PENDING = new HashMap<>();
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private TeleportScheduler() {
+        throw new UnsupportedOperationException("Service class cannot be instantiated");
+    }
+
+    /**
+     * 提交一次传送请求。
+     * 玩家已有去往同一位置的请求时直接返回该请求的 Future；队列已满时返回失败结果。
+     *
+     * @param player       目标玩家
+     * @param targetLevel  目标世界
+     * @param locationData 目标位置
+     * @param locationName 传送点名称
+     * @param backSteps    到达后从位置历史中丢弃的最近记录数
+     * @return 玩家到达（或失败）后完成的 Future
+     */
+    static CompletableFuture<TeleportationService.TeleportationResult> submit(
+            ServerPlayer player,
+            ServerLevel targetLevel,
+            LocationData locationData,
+            String locationName,
+            int backSteps
+    ) {
+        TeleportRequest existing = PENDING.get(player.getUUID());
+        if (existing != null) {
+            if (existing.locationData.isIn(locationData.getDimension())
+                    && existing.locationData.getPackedPos() == locationData.getPackedPos()) {
+                TPModMetrics.get().recordCoalescedTeleport();
+                return existing.future;
+            }
+            supersede(existing, locationName);
+        }
+
+        int maxQueued = TPModConfig.MAX_QUEUED_TELEPORTS.get();
+        if (PENDING.size() >= maxQueued) {
+            TPModMetrics.get().recordRejectedTeleport();
+            return CompletableFuture.completedFuture(TeleportationService.TeleportationResult.failure(
+                    Component.literal(String.format(
+                            "Teleport queue is full (%d pending), request for %s was dropped.",
+                            maxQueued,
+                            player.getName().getString()
+                    ))
+            ));
+        }
+
+        ChunkPos chunkPos = new ChunkPos(
+                SectionPos.blockToSectionCoord(locationData.getX()),
+                SectionPos.blockToSectionCoord(locationData.getZ())
+        );
+        ChunkPreloader.ChunkKey key = new ChunkPreloader.ChunkKey(targetLevel.dimension(), chunkPos.toLong());
+
+        TeleportRequest request = new TeleportRequest(player, locationData, locationName, backSteps, key);
+        GROUPS.computeIfAbsent(key, k -> new ChunkGroup(targetLevel, chunkPos)).requests.add(request);
+        PENDING.put(player.getUUID(), request);
+        return request.future;
+    }
+
+    /**
+     * 当前排队中的请求数量。
+     *
+     * @return 请求数量
+     */
+    public static int pendingCount() {
+        return PENDING.size();
+    }
+
+    /**
+     * 每个服务端 tick 调用一次，在预算内执行目标区块已加载的传送请求。
+     */
+    public static void tick() {
+        if (GROUPS.isEmpty()) {
+            return;
+        }
+
+        int budget = overloaded() ? 1 : TPModConfig.TELEPORTS_PER_TICK.get();
+        long deadline = System.nanoTime() + TPModConfig.TELEPORT_TICK_BUDGET_MICROS.get() * 1000L;
+        // 完成 Future 会触发回调，先收集结果，遍历结束后再完成
+        List<Runnable> completions = new ArrayList<>();
+
+        Iterator<ChunkGroup> iterator = GROUPS.values().iterator();
+        while (iterator.hasNext() && budget > 0 && System.nanoTime() < deadline) {
+            ChunkGroup group = iterator.next();
+            if (!group.loaded.isDone()) {
+                continue;
+            }
+
+            if (group.loaded.isCompletedExceptionally()) {
+                for (TeleportRequest request : group.requests) {
+                    PENDING.remove(request.player.getUUID(), request);
+                    TPModMetrics.get().recordTeleport(false);
+                    completions.add(() -> request.future.complete(TeleportationService.TeleportationResult.failure(
+                            Component.literal(String.format(
+                                    "Destination of '%s' could not be loaded.",
+                                    request.locationName
+                            ))
+                    )));
+                }
+                group.requests.clear();
+            }
+
+            while (budget > 0 && !group.requests.isEmpty() && System.nanoTime() < deadline) {
+                TeleportRequest request = group.requests.poll();
+                PENDING.remove(request.player.getUUID(), request);
+                TeleportationService.TeleportationResult result =
+                        TeleportationService.moveToLocation(
+                                request.player, group.level, request.locationData, request.locationName,
+                                request.backSteps
+                        );
+                completions.add(() -> request.future.complete(result));
+                budget--;
+            }
+
+            if (group.requests.isEmpty()) {
+                iterator.remove();
+                ChunkPreloader.release(group.level, group.pos);
+            }
+        }
+
+        completions.forEach(Runnable::run);
+    }
+
+    /**
+     * 服务器关闭时取消所有未执行的请求并释放区块。
+     */
+    public static void clear() {
+        List<ChunkGroup> groups = new ArrayList<>(GROUPS.values());
+        GROUPS.clear();
+        PENDING.clear();
+
+        for (ChunkGroup group : groups) {
+            ChunkPreloader.release(group.level, group.pos);
+            group.requests.forEach(request -> request.future.cancel(false));
+        }
+    }
+
+    /**
+     * 服务器最近的平均 tick 耗时是否已超过目标 tick 间隔。
+     */
+    private static boolean overloaded() {
+        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        return server != null
+                && server.getAverageTickTimeNanos() > server.tickRateManager().nanosecondsPerTick();
+    }
+
+    /**
+     * 用新请求取代玩家已排队的旧请求，旧请求以失败结束。
+     */
+    private static void supersede(TeleportRequest previous, String newLocationName) {
+        PENDING.remove(previous.player.getUUID());
+        ChunkGroup group = GROUPS.get(previous.groupKey);
+        if (group != null) {
+            group.requests.remove(previous);
+            if (group.requests.isEmpty()) {
+                GROUPS.remove(previous.groupKey);
+                ChunkPreloader.release(group.level, group.pos);
+            }
+        }
+        previous.future.complete(TeleportationService.TeleportationResult.failure(Component.literal(String.format(
+                "Teleport of %s to '%s' was replaced by a request for '%s'.",
+                previous.player.getName().getString(),
+                previous.locationName,
+                newLocationName
+        ))));
+    }
+
+    /**
+     * 同一目标区块的一组请求，共享一次区块预加载。
+     */
+    private static final class ChunkGroup {
+        private final ServerLevel level;
+        private final ChunkPos pos;
+        private final CompletableFuture<Void> loaded;
+        private final Deque<TeleportRequest> requests = new ArrayDeque<>();
+
+        private ChunkGroup(ServerLevel level, ChunkPos pos) {
+            this.level = level;
+            this.pos = pos;
+            this.loaded = ChunkPreloader.acquire(level, pos);
+        }
+    }
+
+    /**
+     * 单个玩家的传送请求。
+     */
+    private static final class TeleportRequest {
+        private final ServerPlayer player;
+        private final LocationData locationData;
+        private final String locationName;
+        private final int backSteps;
+        private final ChunkPreloader.ChunkKey groupKey;
+        private final CompletableFuture<TeleportationService.TeleportationResult> future =
+                new CompletableFuture<>();
+
+        private TeleportRequest(
+                ServerPlayer player,
+                LocationData locationData,
+                String locationName,
+                int backSteps,
+                ChunkPreloader.ChunkKey groupKey
+        ) {
+            this.player = player;
+            this.locationData = locationData;
+            this.locationName = locationName;
+            this.backSteps = backSteps;
+            this.groupKey = groupKey;
+        }
+    }
+}
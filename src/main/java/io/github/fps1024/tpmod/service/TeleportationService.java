@@ -1,14 +1,35 @@
 package io.github.fps1024.tpmod.service;
 
-import io.github.fps1024.tpmod.data.GlobalLocations;
 import io.github.fps1024.tpmod.data.LocationData;
+import io.github.fps1024.tpmod.data.LocationHistory;
+import io.github.fps1024.tpmod.data.LocationRepositories;
+import io.github.fps1024.tpmod.data.LocationRepository;
+import io.github.fps1024.tpmod.data.LocationTags;
+import io.github.fps1024.tpmod.data.LocationUsage;
+import io.github.fps1024.tpmod.data.PlayerLocationStores;
+import io.github.fps1024.tpmod.data.PlayerLocations;
+import io.github.fps1024.tpmod.data.PositionHistories;
+import io.github.fps1024.tpmod.data.PositionHistory;
+import io.github.fps1024.tpmod.data.RemovedLocations;
+import io.github.fps1024.tpmod.data.SpatialIndex;
+import io.github.fps1024.tpmod.metrics.TPModMetrics;
 import io.github.fps1024.tpmod.util.Constants;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec3;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 
 /**
  * 传送服务类。
@@ -17,6 +38,31 @@ import java.util.Set;
  * @author FPS1024
  */
 public final class TeleportationService {
+    /**
+     * 处理存储后端报告的外部修改（例如其他服务器实例对共享存储的修改），与本地修改做同样的后续处理。
+     */
+    public static final LocationRepository.ChangeListener EXTERNAL_CHANGES = new LocationRepository.ChangeListener() {
+        @Override
+        public void locationAdded(String name) {
+            LocationSync.locationAdded(name);
+        }
+
+        @Override
+        public void locationRemoved(String name) {
+            LocationTags.get().removeLocation(name);
+            LocationSync.locationRemoved(name);
+            LocationUsage.get().remove(name);
+        }
+
+        @Override
+        public void locationsReplaced() {
+            LocationRepository repository = LocationRepositories.get();
+            LocationTags.get().retainLocations(name -> repository.getLocation(name) != null);
+            LocationUsage.get().retainLocations(name -> repository.getLocation(name) != null);
+            LocationSync.locationsReplaced();
+        }
+    };
+
     /**
      * 私有构造函数，防止实例化。
      */
@@ -33,17 +79,11 @@ public final class TeleportationService {
      */
     public static Component setLocation(ServerPlayer player, String name) {
         BlockPos playerPos = player.blockPosition();
-        String dimension = player.level().dimension().toString();
-
-        LocationData newLocation = new LocationData(
-                dimension,
-                playerPos.getX(),
-                playerPos.getY(),
-                playerPos.getZ()
-        );
+        LocationData newLocation = new LocationData(player.level().dimension(), playerPos.asLong());
 
-        GlobalLocations locations = GlobalLocations.get(player.level());
+        LocationRepository locations = LocationRepositories.get();
         locations.addLocation(name, newLocation);
+        LocationSync.locationAdded(name);
 
         return Component.literal(String.format(
                 "Global location '%s' set to %d %d %d",
@@ -56,37 +96,217 @@ public final class TeleportationService {
 
     /**
      * 将指定玩家传送到指定名称的全局传送点。
-     * 仅支持同一维度内传送。
+     * 支持跨维度传送：请求交给 {@link TeleportScheduler}，目标区块异步加载完成后才移动玩家，
+     * 返回的 Future 在玩家实际到达后（或失败时）于服务端主线程完成。传送点存在时计入使用频率统计。
+     *
+     * @param targetPlayer 目标玩家
+     * @param locationName 传送点名称
+     * @return 操作结果的 Future，包含成功消息或错误消息
+     */
+    public static CompletableFuture<TeleportationResult> teleportPlayer(ServerPlayer targetPlayer, String locationName) {
+        LocationRepository locations = LocationRepositories.get();
+        LocationData locationData = locations.getLocation(locationName);
+        if (locationData != null) {
+            LocationUsage.get().record(locationName);
+        }
+        return teleportTo(targetPlayer, locationData, locationName, 0);
+    }
+
+    /**
+     * 将玩家传送到自己的私人传送点。
+     *
+     * @param player       玩家
+     * @param locationName 私人传送点名称
+     * @return 操作结果的 Future
+     */
+    public static CompletableFuture<TeleportationResult> teleportToPrivateLocation(ServerPlayer player, String locationName) {
+        PlayerLocations store = PlayerLocationStores.get(player.getUUID());
+        return teleportTo(player, store.getLocation(locationName), locationName, 0);
+    }
+
+    /**
+     * 将玩家传送回倒数第n次传送之前的位置，到达后丢弃这之后的历史；传送失败时历史保持不变。
+     * 这次传送本身也会记录出发位置，因此连续执行 /tpm back 会在两个位置之间来回。
+     *
+     * @param player 玩家
+     * @param steps  回退的步数，1表示最近一次传送之前的位置
+     * @return 操作结果的 Future
+     */
+    public static CompletableFuture<TeleportationResult> teleportBack(ServerPlayer player, int steps) {
+        PositionHistory history = PositionHistories.get(player.getUUID());
+        LocationData previous = history.get(steps);
+        if (previous == null) {
+            return CompletableFuture.completedFuture(TeleportationResult.failure(Component.literal(
+                    history.size() == 0
+                            ? "You have no previous positions."
+                            : String.format("You only have %d previous positions.", history.size())
+            )));
+        }
+        return teleportTo(player, previous, "previous position", steps);
+    }
+
+    /**
+     * 检查目标后把传送请求交给调度器。
      *
      * @param targetPlayer 目标玩家
+     * @param locationData 位置数据，可能为null
      * @param locationName 传送点名称
-     * @return 操作结果，包含成功消息或错误消息
+     * @param backSteps    到达后从位置历史中丢弃的最近记录数，/tpm back 以外为0
+     * @return 操作结果的 Future
+     */
+    private static CompletableFuture<TeleportationResult> teleportTo(
+            ServerPlayer targetPlayer,
+            LocationData locationData,
+            String locationName,
+            int backSteps
+    ) {
+        TeleportationResult error = checkDestination(targetPlayer.getServer(), locationData, locationName);
+        if (error != null) {
+            return CompletableFuture.completedFuture(error);
+        }
+
+        ServerLevel targetLevel = resolveLevel(targetPlayer.getServer(), locationData.getDimension());
+        return TeleportScheduler.submit(targetPlayer, targetLevel, locationData, locationName, backSteps);
+    }
+
+    /**
+     * 将多名玩家传送到同一个全局传送点。
+     * 请求由 {@link TeleportScheduler} 分摊到多个 tick 执行，目标区块只加载一次。整批只计一次使用。
+     *
+     * @param targetPlayers 目标玩家集合
+     * @param locationName  传送点名称
+     * @param onEach        每名玩家传送完成（或失败）时的回调
+     * @return 全部完成后的汇总结果
      */
-    public static TeleportationResult teleportPlayer(ServerPlayer targetPlayer, String locationName) {
-        GlobalLocations locations = GlobalLocations.get(targetPlayer.level());
+    public static CompletableFuture<TeleportationResult> teleportPlayers(
+            Collection<ServerPlayer> targetPlayers,
+            String locationName,
+            BiConsumer<ServerPlayer, TeleportationResult> onEach
+    ) {
+        ServerPlayer firstPlayer = targetPlayers.iterator().next();
+        MinecraftServer server = firstPlayer.getServer();
+        LocationRepository locations = LocationRepositories.get();
         LocationData locationData = locations.getLocation(locationName);
 
+        TeleportationResult error = checkDestination(server, locationData, locationName);
+        if (error != null) {
+            return CompletableFuture.completedFuture(error);
+        }
+        LocationUsage.get().record(locationName);
+
+        ServerLevel targetLevel = resolveLevel(server, locationData.getDimension());
+        int[] succeeded = new int[1];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[targetPlayers.size()];
+        int index = 0;
+
+        for (ServerPlayer player : targetPlayers) {
+            futures[index++] = TeleportScheduler.submit(player, targetLevel, locationData, locationName, 0)
+                    .thenAccept(result -> {
+                        if (result.isSuccess()) {
+                            succeeded[0]++;
+                        }
+                        onEach.accept(player, result);
+                    });
+        }
+
+        return CompletableFuture.allOf(futures).thenApply(ignored -> {
+            Component summary = Component.literal(String.format(
+                    "Teleported %d/%d players to '%s'.",
+                    succeeded[0],
+                    futures.length,
+                    locationName
+            ));
+            return succeeded[0] > 0
+                    ? TeleportationResult.success(summary, null)
+                    : TeleportationResult.failure(summary);
+        });
+    }
+
+    /**
+     * 检查传送点是否存在且其维度可用。
+     *
+     * @param server       服务器实例
+     * @param locationData 位置数据，可能为null
+     * @param locationName 传送点名称
+     * @return 失败结果；目标可用时返回null
+     */
+    private static TeleportationResult checkDestination(
+            MinecraftServer server,
+            LocationData locationData,
+            String locationName
+    ) {
         if (locationData == null) {
+            TPModMetrics.get().recordTeleport(false);
             return TeleportationResult.failure(
                     Component.literal(String.format("Global location '%s' not found.", locationName))
             );
         }
 
-        String currentDimension = targetPlayer.level().dimension().toString();
-        if (!currentDimension.equals(locationData.getDimension())) {
-            return TeleportationResult.failure(
-                    Component.literal(String.format(
-                            "Cannot teleport across dimensions. Location is in %s",
-                            locationData.getDimension()
-                    ))
-            );
+        if (resolveLevel(server, locationData.getDimension()) == null) {
+            TPModMetrics.get().recordDimensionRejection();
+            return TeleportationResult.failure(Component.literal(String.format(
+                    "Dimension %s of location '%s' is not loaded.",
+                    locationData.getDimension().location(),
+                    locationName
+            )));
+        }
+
+        return null;
+    }
+
+    /**
+     * 在目标区块已加载的前提下移动玩家，由 {@link TeleportScheduler} 调用。
+     * 实际落点由 {@link SafeLandingResolver} 确定，避开已被方块填住或失去地面的位置；
+     * 到达后先丢弃 /tpm back 回退过的历史，再把出发位置记入玩家的 {@link PositionHistories}，
+     * 并计入 {@link HotDestinationKeeper} 的目的地热度。
+     *
+     * @param targetPlayer 目标玩家
+     * @param targetLevel  目标世界
+     * @param locationData 位置数据
+     * @param locationName 传送点名称
+     * @param backSteps    到达后从位置历史中丢弃的最近记录数
+     * @return 操作结果
+     */
+    static TeleportationResult moveToLocation(
+            ServerPlayer targetPlayer,
+            ServerLevel targetLevel,
+            LocationData locationData,
+            String locationName,
+            int backSteps
+    ) {
+        if (targetPlayer.hasDisconnected()) {
+            TPModMetrics.get().recordTeleport(false);
+            return TeleportationResult.failure(Component.literal(String.format(
+                    "Player %s left before reaching '%s'.",
+                    targetPlayer.getName().getString(),
+                    locationName
+            )));
         }
 
-        double x = locationData.getX() + Constants.TELEPORT_OFFSET;
-        double y = locationData.getY();
-        double z = locationData.getZ() + Constants.TELEPORT_OFFSET;
+        ResourceKey<Level> previousDimension = targetPlayer.level().dimension();
+        long previousPos = targetPlayer.blockPosition().asLong();
+
+        BlockPos landing = SafeLandingResolver.resolve(targetLevel, locationData);
+        double x = landing.getX() + Constants.TELEPORT_OFFSET;
+        double y = landing.getY();
+        double z = landing.getZ() + Constants.TELEPORT_OFFSET;
+
+        boolean arrived = targetPlayer.teleportTo(
+                targetLevel, x, y, z, Set.of(), targetPlayer.getYRot(), targetPlayer.getXRot(), true
+        );
+        TPModMetrics.get().recordTeleport(arrived);
+        if (!arrived) {
+            return TeleportationResult.failure(Component.literal(String.format(
+                    "Failed to teleport player %s to '%s'.",
+                    targetPlayer.getName().getString(),
+                    locationName
+            )));
+        }
 
-        targetPlayer.teleportTo(x, y, z);
+        PositionHistory history = PositionHistories.get(targetPlayer.getUUID());
+        history.drop(backSteps);
+        history.push(previousDimension, previousPos);
+        HotDestinationKeeper.recordArrival(targetLevel, new ChunkPos(landing));
 
         Component adminMessage = Component.literal(String.format(
                 "Teleported player %s to '%s'.",
@@ -101,17 +321,87 @@ public final class TeleportationService {
         return TeleportationResult.success(adminMessage, playerMessage);
     }
 
+    /**
+     * 根据存储的维度查找服务端世界。
+     *
+     * @param server    服务器实例
+     * @param dimension 维度
+     * @return 对应的世界，不存在时返回null
+     */
+    private static ServerLevel resolveLevel(MinecraftServer server, ResourceKey<Level> dimension) {
+        return server.getLevel(dimension);
+    }
+
+    /**
+     * 将玩家当前位置保存为自己的私人传送点。
+     *
+     * @param player 执行命令的玩家
+     * @param name   传送点名称
+     * @return 操作结果消息
+     */
+    public static Component setPrivateLocation(ServerPlayer player, String name) {
+        BlockPos playerPos = player.blockPosition();
+        PlayerLocationStores.get(player.getUUID())
+                .addLocation(name, new LocationData(player.level().dimension(), playerPos.asLong()));
+
+        return Component.literal(String.format(
+                "Private location '%s' set to %d %d %d",
+                name,
+                playerPos.getX(),
+                playerPos.getY(),
+                playerPos.getZ()
+        ));
+    }
+
+    /**
+     * 删除玩家自己的私人传送点。
+     *
+     * @param player 玩家
+     * @param name   传送点名称
+     * @return 是否删除成功
+     */
+    public static boolean removePrivateLocation(ServerPlayer player, String name) {
+        return PlayerLocationStores.get(player.getUUID()).removeLocation(name);
+    }
+
+    /**
+     * 分页列出玩家自己的私人传送点。
+     *
+     * @param player 玩家
+     * @param page   页码（从1开始）
+     * @return 传送点列表结果
+     */
+    public static LocationListResult listPrivateLocations(ServerPlayer player, int page) {
+        return LocationListRenderer.renderPrivate(PlayerLocationStores.get(player.getUUID()), page);
+    }
+
+    /**
+     * 按前缀补全玩家自己的私人传送点名称。
+     *
+     * @param player 玩家
+     * @param prefix 已输入的前缀
+     * @return 最多 {@link Constants#MAX_SUGGESTIONS} 个有序的名称
+     */
+    public static List<String> completePrivateLocationNames(ServerPlayer player, String prefix) {
+        return PlayerLocationStores.get(player.getUUID()).completeLocationNames(prefix, Constants.MAX_SUGGESTIONS);
+    }
+
     /**
      * 删除指定名称的全局传送点。
      *
-     * @param level 世界对象
-     * @param name  传送点名称
+     * @param name 传送点名称
      * @return 操作结果消息
      */
-    public static Component removeLocation(Level level, String name) {
-        GlobalLocations locations = GlobalLocations.get(level);
+    public static Component removeLocation(String name) {
+        LocationRepository locations = LocationRepositories.get();
 
         if (locations.removeLocation(name)) {
+            if (!locations.getHistory().isEmpty()) {
+                RemovedLocations.remember(name);
+            }
+            LocationTags.get().removeLocation(name);
+            LocationSync.locationRemoved(name);
+            LocationUsage.get().remove(name);
             return Component.literal(String.format("Global location '%s' removed.", name));
         } else {
             return Component.literal(String.format("Global location '%s' not found.", name));
@@ -119,31 +409,219 @@ public final class TeleportationService {
     }
 
     /**
-     * 列出所有已保存的全局传送点。
+     * 撤销最近的若干次全局传送点修改（设置、删除、导入），并同步标签、使用统计和客户端名称缓存。
+     * 被 /tpm rm 删除后又被撤销恢复的传送点从 {@link RemovedLocations} 还原原来的标签和使用统计。
      *
-     * @param level 世界对象
-     * @return 传送点列表结果
+     * @param steps 撤销的修改次数
+     * @return 操作结果
+     */
+    public static UndoResult undo(int steps) {
+        LocationRepository locations = LocationRepositories.get();
+        int available = locations.getHistory().size() - 1;
+        if (available < 0) {
+            return UndoResult.failure("Location history is not available with this storage backend.");
+        }
+
+        LocationHistory.Changes changes = locations.undo(steps);
+        if (changes == null) {
+            return UndoResult.failure(available == 0
+                    ? "There are no edits to undo."
+                    : String.format("Only %d edits can be undone.", available));
+        }
+
+        for (String name : changes.removed()) {
+            LocationTags.get().removeLocation(name);
+            LocationSync.locationRemoved(name);
+            LocationUsage.get().remove(name);
+        }
+        for (String name : changes.updated()) {
+            RemovedLocations.restore(name);
+            LocationSync.locationAdded(name);
+        }
+
+        return UndoResult.success(String.format(
+                "Undid %d edit%s: %d locations restored or moved, %d removed.",
+                steps,
+                steps == 1 ? "" : "s",
+                changes.updated().size(),
+                changes.removed().size()
+        ));
+    }
+
+    /**
+     * 列出保留的全局传送点历史版本，从当前版本开始，编号即撤销到该版本所需的次数。
+     *
+     * @return 历史列表消息
+     */
+    public static Component listHistory() {
+        List<LocationHistory.Entry> entries = LocationRepositories.get().getHistory();
+        if (entries.isEmpty()) {
+            return Component.literal("Location history is not available with this storage backend.");
+        }
+
+        long now = System.currentTimeMillis();
+        StringBuilder content = new StringBuilder(64 + entries.size() * 48);
+        content.append("Location history (newest first, undo n to return to #n):");
+        for (int i = 0; i < entries.size(); i++) {
+            LocationHistory.Entry entry = entries.get(i);
+            content.append('\n').append(String.format(
+                    "#%d %s - %d locations, %s ago%s",
+                    i,
+                    entry.description(),
+                    entry.locationCount(),
+                    formatAge(now - entry.timeMillis()),
+                    i == 0 ? " (current)" : ""
+            ));
+        }
+        return Component.literal(content.toString());
+    }
+
+    private static String formatAge(long millis) {
+        long seconds = Math.max(0, millis / 1000);
+        if (seconds < 60) {
+            return seconds + "s";
+        }
+        if (seconds < 3600) {
+            return seconds / 60 + "m";
+        }
+        return seconds / 3600 + "h";
+    }
+
+    /**
+     * 给全局传送点添加标签。
+     *
+     * @param name 传送点名称
+     * @param tag  标签
+     * @return 操作结果消息
+     */
+    public static Component tagLocation(String name, String tag) {
+        if (LocationRepositories.get().getLocation(name) == null) {
+            return Component.literal(String.format("Global location '%s' not found.", name));
+        }
+        if (LocationTags.get().addTag(name, tag)) {
+            return Component.literal(String.format("Tagged global location '%s' with '%s'.", name, tag));
+        }
+        return Component.literal(String.format("Global location '%s' is already tagged with '%s'.", name, tag));
+    }
+
+    /**
+     * 移除全局传送点的一个标签。
+     *
+     * @param name 传送点名称
+     * @param tag  标签
+     * @return 是否移除成功
+     */
+    public static boolean untagLocation(String name, String tag) {
+        return LocationTags.get().removeTag(name, tag);
+    }
+
+    /**
+     * 获取全局传送点的标签。
+     *
+     * @param name 传送点名称
+     * @return 按字母顺序排列的标签
+     */
+    public static Set<String> getTags(String name) {
+        return LocationTags.get().getTags(name);
+    }
+
+    /**
+     * 按前缀补全标签。
+     *
+     * @param prefix 已输入的前缀
+     * @return 最多 {@link Constants#MAX_SUGGESTIONS} 个有序的标签
      */
-    public static LocationListResult listLocations(Level level) {
-        GlobalLocations locations = GlobalLocations.get(level);
-        Set<String> locationNames = locations.getLocationNames();
+    public static List<String> completeTags(String prefix) {
+        return LocationTags.get().completeTags(prefix, Constants.MAX_SUGGESTIONS);
+    }
 
-        if (locationNames.isEmpty()) {
-            return LocationListResult.empty();
+    /**
+     * 补全 /tpm ls 过滤条件的最后一个词：{@code tag:} 开头时补全标签；
+     * 前面已有标签时只在这些标签的交集内补全名称，不遍历全部传送点；否则按名称前缀补全。
+     *
+     * @param filter 已输入的过滤条件
+     * @return 最后一个词的候选值
+     */
+    public static List<String> completeListFilter(String filter) {
+        int start = filter.lastIndexOf(' ') + 1;
+        String word = filter.substring(start);
+        if (word.startsWith(Constants.TAG_FILTER_PREFIX)) {
+            List<String> tags = completeTags(word.substring(Constants.TAG_FILTER_PREFIX.length()));
+            tags.replaceAll(tag -> Constants.TAG_FILTER_PREFIX + tag);
+            return tags;
+        }
+
+        LocationListRenderer.Filter scope = LocationListRenderer.Filter.parse(filter.substring(0, start));
+        if (scope.tags().isEmpty()) {
+            return completeLocationNames(word);
         }
+        List<String> names = LocationTags.get().query(scope.tags(), word);
+        return names.size() > Constants.MAX_SUGGESTIONS ? names.subList(0, Constants.MAX_SUGGESTIONS) : names;
+    }
+
+    /**
+     * 按名称顺序分页列出已保存的全局传送点，过滤条件中的 {@code tag:<标签>} 按标签过滤。
+     * 渲染结果由 {@link LocationListRenderer} 缓存，传送点变化后才重新渲染。
+     *
+     * @param page   页码（从1开始）
+     * @param filter 名称前缀过滤条件，空字符串表示不过滤
+     * @return 传送点列表结果
+     */
+    public static LocationListResult listLocations(int page, String filter) {
+        LocationRepository locations = LocationRepositories.get();
+        return LocationListRenderer.render(locations, page, filter);
+    }
 
-        return LocationListResult.withLocations(locations, locationNames);
+    /**
+     * 查找与给定坐标同维度的最近传送点。
+     *
+     * @param level    所在世界
+     * @param position 查询坐标
+     * @return 最近的传送点，不存在时返回null
+     */
+    public static SpatialIndex.Match findNearest(ServerLevel level, Vec3 position) {
+        LocationRepository locations = LocationRepositories.get();
+        return locations.findNearest(level.dimension(), position.x, position.y, position.z);
     }
 
     /**
-     * 获取所有全局传送点名称集合，用于命令补全。
+     * 查找与给定坐标同维度、在指定半径内的传送点，按距离排序。
      *
-     * @param level 世界对象
-     * @return 传送点名称集合
+     * @param level    所在世界
+     * @param position 查询坐标
+     * @param radius   半径
+     * @return 匹配结果列表
      */
-    public static Set<String> getLocationNames(Level level) {
-        GlobalLocations locations = GlobalLocations.get(level);
-        return locations.getLocationNames();
+    public static List<SpatialIndex.Match> findNearby(ServerLevel level, Vec3 position, double radius) {
+        LocationRepository locations = LocationRepositories.get();
+        return locations.findWithin(level.dimension(), position.x, position.y, position.z, radius);
+    }
+
+    /**
+     * 按前缀补全全局传送点名称。
+     * 最常用的传送点按使用频率排在前面，剩余名额按名称顺序从前缀索引补足；
+     * 两部分都只读取定长的结果，开销与传送点总数无关。
+     *
+     * @param prefix 已输入的前缀
+     * @return 最多 {@link Constants#MAX_SUGGESTIONS} 个名称
+     */
+    public static List<String> completeLocationNames(String prefix) {
+        List<String> names = LocationUsage.get().completeRanked(prefix, Constants.MAX_SUGGESTIONS);
+        if (names.size() >= Constants.MAX_SUGGESTIONS) {
+            return names;
+        }
+
+        LocationRepository locations = LocationRepositories.get();
+        Set<String> ranked = new HashSet<>(names);
+        for (String name : locations.completeLocationNames(prefix, Constants.MAX_SUGGESTIONS)) {
+            if (names.size() >= Constants.MAX_SUGGESTIONS) {
+                break;
+            }
+            if (!ranked.contains(name)) {
+                names.add(name);
+            }
+        }
+        return names;
     }
 
     /**
@@ -195,19 +673,60 @@ public final class TeleportationService {
         }
     }
 
+    /**
+     * 撤销结果类。
+     */
+    public static final class UndoResult {
+        private final boolean success;
+        private final Component message;
+
+        private UndoResult(boolean success, Component message) {
+            this.success = success;
+            this.message = message;
+        }
+
+        /**
+         * 创建成功结果。
+         *
+         * @param message 成功消息
+         * @return 成功结果对象
+         */
+        public static UndoResult success(String message) {
+            return new UndoResult(true, Component.literal(message));
+        }
+
+        /**
+         * 创建失败结果。
+         *
+         * @param errorMessage 错误消息
+         * @return 失败结果对象
+         */
+        public static UndoResult failure(String errorMessage) {
+            return new UndoResult(false, Component.literal(errorMessage));
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public Component getMessage() {
+            return message;
+        }
+    }
+
     /**
      * 传送点列表结果类。
-     * 封装列出传送点的结果。
+     * 封装列出传送点的结果，一页内容为一条多行消息。
      */
     public static final class LocationListResult {
         private final boolean empty;
-        private final GlobalLocations locations;
-        private final Set<String> locationNames;
+        private final boolean pageFound;
+        private final Component message;
 
-        private LocationListResult(boolean empty, GlobalLocations locations, Set<String> locationNames) {
+        private LocationListResult(boolean empty, boolean pageFound, Component message) {
             this.empty = empty;
-            this.locations = locations;
-            this.locationNames = locationNames;
+            this.pageFound = pageFound;
+            this.message = message;
         }
 
         /**
@@ -216,31 +735,39 @@ public final class TeleportationService {
          * @return 空列表结果对象
          */
         public static LocationListResult empty() {
-            return new LocationListResult(true, null, null);
+            return new LocationListResult(true, false, null);
         }
 
         /**
-         * 创建包含传送点的列表结果。
+         * 创建包含一页传送点的列表结果。
          *
-         * @param locations     全局传送点数据对象
-         * @param locationNames 传送点名称集合
+         * @param content 渲染好的页面内容
          * @return 列表结果对象
          */
-        public static LocationListResult withLocations(GlobalLocations locations, Set<String> locationNames) {
-            return new LocationListResult(false, locations, locationNames);
+        public static LocationListResult page(Component content) {
+            return new LocationListResult(false, true, content);
+        }
+
+        /**
+         * 创建页码超出范围的结果。
+         *
+         * @param errorMessage 错误消息
+         * @return 列表结果对象
+         */
+        public static LocationListResult pageNotFound(Component errorMessage) {
+            return new LocationListResult(false, false, errorMessage);
         }
 
         public boolean isEmpty() {
             return empty;
         }
 
-        public GlobalLocations getLocations() {
-            return locations;
+        public boolean isPageFound() {
+            return pageFound;
         }
 
-        public Set<String> getLocationNames() {
-            return locationNames;
+        public Component getMessage() {
+            return message;
         }
     }
 }
-
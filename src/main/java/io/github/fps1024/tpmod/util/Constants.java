@@ -20,10 +20,96 @@ public final class Constants {
     public static final int REQUIRED_PERMISSION_LEVEL = 2;
 
     /**
-     * 传送点数据存储的NBT键名。
+     * 传送点数据存储的NBT键名（旧版格式，每个传送点一个 CompoundTag）。
      */
     public static final String NBT_KEY_LOCATIONS = "locations";
 
+    /**
+     * 列式存档格式的NBT键名。
+     */
+    public static final String NBT_KEY_FORMAT_VERSION = "format";
+    public static final String NBT_KEY_NAMES = "names";
+    public static final String NBT_KEY_DIMENSION_PALETTE = "dimension_palette";
+    public static final String NBT_KEY_DIMENSION_IDS = "dimension_ids";
+    public static final String NBT_KEY_POSITIONS = "positions";
+
+    /**
+     * 当前存档格式版本。没有版本号的数据视为旧版格式。
+     */
+    public static final int SAVE_FORMAT_VERSION = 2;
+
+    /**
+     * 快照中记录已包含的最后一个日志序号的NBT键名。
+     */
+    public static final String NBT_KEY_JOURNAL_SEQUENCE = "journal_sequence";
+
+    /**
+     * 修改日志的文件名（位于世界存档的 data 目录）。
+     */
+    public static final String JOURNAL_FILE_NAME = "tpmod_locations.journal";
+
+    /**
+     * 自上次快照以来累计多少条日志记录后标记数据为脏，由下次自动保存压缩为快照。
+     */
+    public static final int JOURNAL_COMPACT_THRESHOLD = 1000;
+
+    /**
+     * 默认存储后端：随世界存档保存的 SavedData。
+     */
+    public static final String STORAGE_BACKEND_SAVED_DATA = "saveddata";
+
+    /**
+     * 内存映射文件存储后端，适用于传送点数量非常多的服务器。
+     */
+    public static final String STORAGE_BACKEND_MAPPED = "mmap";
+
+    /**
+     * 内存映射存储后端的文件目录名（位于世界存档的 data 目录）。
+     */
+    public static final String MAPPED_STORE_DIRECTORY = "tpmod_locations_mmap";
+
+    /**
+     * 多个服务器实例共享的存储后端，数据保存在各实例都能访问的公共目录中。
+     */
+    public static final String STORAGE_BACKEND_SHARED = "shared";
+
+    /**
+     * 共享存储的默认目录（相对于服务器运行目录）。
+     */
+    public static final String SHARED_STORE_DIRECTORY = "tpmod_shared";
+
+    /**
+     * 共享存储的快照、日志和锁文件名。
+     */
+    public static final String SHARED_SNAPSHOT_FILE = "locations.dat";
+    public static final String SHARED_JOURNAL_FILE = "locations.journal";
+    public static final String SHARED_LOCK_FILE = "locations.lock";
+
+    /**
+     * 共享日志超过此大小（字节）后，由正在写入的实例压缩为新快照。
+     */
+    public static final int SHARED_COMPACT_BYTES = 1 << 20;
+
+    /**
+     * 共享快照中记录其代数的NBT键名。
+     */
+    public static final String NBT_KEY_GENERATION = "generation";
+
+    /**
+     * 私人传送点的文件目录名（位于世界存档的 data 目录），每名玩家一个文件。
+     */
+    public static final String PLAYER_STORE_DIRECTORY = "tpmod_players";
+
+    /**
+     * 最多同时缓存的玩家私人传送点数量。在线玩家的数据在退出前一般不会被淘汰。
+     */
+    public static final int PLAYER_STORE_CACHE_SIZE = 256;
+
+    /**
+     * 传送点名称的最大长度。内存映射存储后端的记录是定长的，名称不能超过此长度。
+     */
+    public static final int MAX_NAME_LENGTH = 48;
+
     /**
      * 位置数据的NBT键名。
      */
@@ -37,9 +123,184 @@ public final class Constants {
      */
     public static final String SAVED_DATA_SUFFIX = "_locations";
 
+    /**
+     * 标签数据存储的文件名后缀。
+     */
+    public static final String TAGS_DATA_SUFFIX = "_tags";
+
+    /**
+     * 标签数据中按标签分组的名称列表的NBT键名。
+     */
+    public static final String NBT_KEY_TAGS = "tags";
+
+    /**
+     * 使用统计数据存储的文件名后缀。
+     */
+    public static final String USAGE_DATA_SUFFIX = "_usage";
+
+    /**
+     * 使用统计的NBT键名：计数基准时间、计数列表。
+     */
+    public static final String NBT_KEY_USAGE_EPOCH = "epoch";
+    public static final String NBT_KEY_USAGE_SCORES = "scores";
+
+    /**
+     * /tpm ls 过滤条件中表示标签的前缀，例如 {@code tag:event}。
+     */
+    public static final String TAG_FILTER_PREFIX = "tag:";
+
     /**
      * 传送时的坐标偏移量（用于将方块坐标转换为实体坐标中心）。
      */
     public static final double TELEPORT_OFFSET = 0.5;
-}
 
+    /**
+     * 预加载票据的半径（区块）。半径为1时中心区块可达到完全加载状态。
+     */
+    public static final int PRELOAD_TICKET_RADIUS = 1;
+
+    /**
+     * 等待目标区块加载的最长时间（tick），超时则放弃传送。
+     */
+    public static final int PRELOAD_TIMEOUT_TICKS = 600;
+
+    /**
+     * 热门目的地保活的区块预算（配置默认值，含票据半径内的区块，0 表示关闭）。
+     */
+    public static final int HOT_CHUNK_BUDGET = 81;
+
+    /**
+     * 目的地使用计数的半衰期（分钟，配置默认值）。
+     */
+    public static final int HOT_CHUNK_HALF_LIFE_MINUTES = 10;
+
+    /**
+     * 目的地开始保活所需的衰减后使用计数（配置默认值）。
+     */
+    public static final double HOT_CHUNK_MIN_SCORE = 3.0;
+
+    /**
+     * 热门目的地重新排名的间隔（tick）。
+     */
+    public static final int HOT_CHUNK_EVALUATE_INTERVAL = 200;
+
+    /**
+     * 衰减后低于此计数且未持有票据的目的地不再统计。
+     */
+    public static final double HOT_CHUNK_FORGET_SCORE = 0.1;
+
+    /**
+     * 最多同时统计的目的地区块数量。
+     */
+    public static final int HOT_CHUNK_TRACKED_MAX = 4096;
+
+    /**
+     * 安全落点的水平搜索半径（格）。不超过预加载票据覆盖的范围。
+     */
+    public static final int SAFE_LANDING_RADIUS = 3;
+
+    /**
+     * 安全落点在每一列中向上、向下搜索的格数。
+     */
+    public static final int SAFE_LANDING_VERTICAL = 4;
+
+    /**
+     * 最多缓存的安全落点数量。
+     */
+    public static final int SAFE_LANDING_CACHE_SIZE = 4096;
+
+    /**
+     * 每个服务端 tick 最多执行的传送次数（配置默认值）。
+     */
+    public static final int TELEPORTS_PER_TICK = 20;
+
+    /**
+     * 每个服务端 tick 用于执行传送的最长时间（微秒，配置默认值）。
+     */
+    public static final int TELEPORT_TICK_BUDGET_MICROS = 2000;
+
+    /**
+     * 排队中的传送请求上限（配置默认值）。
+     */
+    public static final int MAX_QUEUED_TELEPORTS = 1000;
+
+    /**
+     * 批量传送时每完成多少名玩家向管理员报告一次进度。
+     */
+    public static final int BATCH_PROGRESS_INTERVAL = 25;
+
+    /**
+     * 空间索引的网格边长（格）。
+     */
+    public static final int SPATIAL_CELL_SIZE = 64;
+
+    /**
+     * /tpm near 的默认搜索半径（格）。
+     */
+    public static final int NEAR_DEFAULT_RADIUS = 128;
+
+    /**
+     * /tpm near 最多显示的结果数量。
+     */
+    public static final int NEAR_MAX_RESULTS = 10;
+
+    /**
+     * 传送点名称补全最多返回的建议数量。
+     */
+    public static final int MAX_SUGGESTIONS = 50;
+
+    /**
+     * /tpm ls 每页显示的传送点数量。
+     */
+    public static final int LIST_PAGE_SIZE = 10;
+
+    /**
+     * /tpm ls 最多缓存的已渲染页面数量。
+     */
+    public static final int LIST_CACHE_PAGES = 64;
+
+    /**
+     * /tpm export 与 /tpm import 使用的文件目录（相对服务器目录）。
+     */
+    public static final String TRANSFER_DIRECTORY = "tpmod_transfers";
+
+    /**
+     * 传送点名称同步时每个数据包最多携带的名称数量。
+     */
+    public static final int SYNC_NAMES_PER_PACKET = 2048;
+
+    /**
+     * 同一玩家两次发送完整快照之间的最少 tick 数，更早的重新同步请求推迟到间隔结束后处理。
+     */
+    public static final int SYNC_RESYNC_INTERVAL_TICKS = 40;
+
+    /**
+     * 传送点使用计数的半衰期（小时）。
+     */
+    public static final double USAGE_HALF_LIFE_HOURS = 72;
+
+    /**
+     * 计数权重增长到 2 的多少次方时归一化，避免浮点溢出。
+     */
+    public static final double USAGE_RENORMALIZE_HALF_LIVES = 64;
+
+    /**
+     * 归一化时低于此值的计数被丢弃。
+     */
+    public static final double USAGE_FORGET_SCORE = 0.01;
+
+    /**
+     * 按使用频率排名、优先出现在补全结果中的传送点数量。
+     */
+    public static final int USAGE_RANKED_SIZE = 64;
+
+    /**
+     * 每名玩家保留的传送前位置数量（/tpm back 可回退的最大步数）。
+     */
+    public static final int BACK_HISTORY_SIZE = 16;
+
+    /**
+     * 全局传送点最多可撤销的修改次数（/tpm undo），历史中另外保留当前版本。
+     */
+    public static final int UNDO_HISTORY_SIZE = 32;
+}
@@ -0,0 +1,120 @@
+package io.github.fps1024.tpmod.util;
+
+import net.minecraftforge.common.ForgeConfigSpec;
+
+/**
+ * 模组服务端配置。
+ * 保存在每个世界存档的 serverconfig 目录下，服务器启动前加载。
+ *
+ * @author FPS1024
+ */
+public final class TPModConfig {
+    /**
+     * 配置规范，由模组主类注册。
+     */
+    public static final ForgeConfigSpec SPEC;
+
+    /**
+     * 全局传送点的存储后端。
+     */
+    public static final ForgeConfigSpec.ConfigValue<String> STORAGE_BACKEND;
+
+    /**
+     * 共享存储后端使用的公共目录。
+     */
+    public static final ForgeConfigSpec.ConfigValue<String> SHARED_DIRECTORY;
+
+    /**
+     * 每个服务端 tick 最多执行的传送次数。
+     */
+    public static final ForgeConfigSpec.IntValue TELEPORTS_PER_TICK;
+
+    /**
+     * 每个服务端 tick 用于执行传送的最长时间（微秒）。
+     */
+    public static final ForgeConfigSpec.IntValue TELEPORT_TICK_BUDGET_MICROS;
+
+    /**
+     * 排队中的传送请求上限，超出时拒绝新请求。
+     */
+    public static final ForgeConfigSpec.IntValue MAX_QUEUED_TELEPORTS;
+
+    /**
+     * 热门目的地保活可占用的区块数，0 表示关闭。
+     */
+    public static final ForgeConfigSpec.IntValue HOT_CHUNK_BUDGET;
+
+    /**
+     * 目的地使用计数的半衰期（分钟）。
+     */
+    public static final ForgeConfigSpec.IntValue HOT_CHUNK_HALF_LIFE_MINUTES;
+
+    /**
+     * 目的地开始保活所需的衰减后使用计数。
+     */
+    public static final ForgeConfigSpec.DoubleValue HOT_CHUNK_MIN_SCORE;
+
+    static {
+        ForgeConfigSpec.Builder builder = new ForgeConfigSpec.Builder();
+
+        builder.push("storage");
+        STORAGE_BACKEND = builder
+                .comment(
+                        "Storage backend for global locations.",
+                        "\"" + Constants.STORAGE_BACKEND_SAVED_DATA + "\" keeps all locations in memory and saves them with the world.",
+                        "\"" + Constants.STORAGE_BACKEND_MAPPED + "\" keeps fixed-size records in memory-mapped files, for very large stores.",
+                        "\"" + Constants.STORAGE_BACKEND_SHARED + "\" shares one set of locations between several server instances on the same host."
+                )
+                .define("backend", Constants.STORAGE_BACKEND_SAVED_DATA);
+        SHARED_DIRECTORY = builder
+                .comment(
+                        "Directory used by the \"" + Constants.STORAGE_BACKEND_SHARED + "\" backend.",
+                        "Point every instance at the same directory; relative paths are resolved against the server directory."
+                )
+                .define("sharedDirectory", Constants.SHARED_STORE_DIRECTORY);
+        builder.pop();
+
+        builder.push("teleport");
+        TELEPORTS_PER_TICK = builder
+                .comment("Maximum number of queued teleports executed per server tick.")
+                .defineInRange("perTick", Constants.TELEPORTS_PER_TICK, 1, 1000);
+        TELEPORT_TICK_BUDGET_MICROS = builder
+                .comment(
+                        "Maximum time in microseconds spent executing queued teleports per server tick.",
+                        "While the server is already behind its tick rate only one teleport runs per tick."
+                )
+                .defineInRange("tickBudgetMicros", Constants.TELEPORT_TICK_BUDGET_MICROS, 100, 50_000);
+        MAX_QUEUED_TELEPORTS = builder
+                .comment("Maximum number of pending teleports. Further requests are rejected until the queue drains.")
+                .defineInRange("maxQueued", Constants.MAX_QUEUED_TELEPORTS, 1, 100_000);
+        builder.pop();
+
+        builder.push("hotChunks");
+        HOT_CHUNK_BUDGET = builder
+                .comment(
+                        "Maximum number of chunks kept loaded around frequently used destinations.",
+                        "Each kept destination uses " + (2 * Constants.PRELOAD_TICKET_RADIUS + 1)
+                                * (2 * Constants.PRELOAD_TICKET_RADIUS + 1) + " chunks. Set to 0 to disable."
+                )
+                .defineInRange("chunkBudget", Constants.HOT_CHUNK_BUDGET, 0, 4096);
+        HOT_CHUNK_HALF_LIFE_MINUTES = builder
+                .comment("Half-life in minutes of the per-destination usage counters.")
+                .defineInRange("halfLifeMinutes", Constants.HOT_CHUNK_HALF_LIFE_MINUTES, 1, 1440);
+        HOT_CHUNK_MIN_SCORE = builder
+                .comment(
+                        "Decayed usage count a destination needs before its chunks are kept loaded.",
+                        "Kept destinations are released once they drop below half of this."
+                )
+                .defineInRange("minScore", Constants.HOT_CHUNK_MIN_SCORE, 0.5, 1000.0);
+        builder.pop();
+
+        SPEC = builder.build();
+    }
+
+    /**
+     * 私有构造函数，防止实例化。
+     */
+    private TPModConfig() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+}